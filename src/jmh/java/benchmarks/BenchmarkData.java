@@ -0,0 +1,107 @@
+package benchmarks;
+
+import app.models.ActionType;
+import app.models.SubAction;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import testdata.SyntheticExport;
+import utils.csv.CsvRow;
+import utils.parsers.RowDecoder;
+
+/**
+ * The rows of a synthetic export, prepared once per trial for the benchmarks that measure single steps
+ * of the import. Every row is kept as its line, as a tokenized row and with its sub-action, and the rows
+ * are also grouped by the action type that selects their parser.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+    /** The seed of every export generated by the benchmarks. */
+    public static final long SEED = 212L;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    RowDecoder decoder;
+    int actionIndex;
+    int totalIndex;
+    int currencyIndex;
+    String[] lines;
+    String[] actions;
+    String[] totals;
+    String[] currencies;
+    final EnumMap<ActionType, Slice> slices = new EnumMap<>(ActionType.class);
+
+    /**
+     * Generates and tokenizes the export.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        this.decoder = RowDecoder.forHeader(CsvRow.fromLine(SyntheticExport.HEADER));
+        this.actionIndex = this.decoder.getActionIndex();
+        this.totalIndex = this.decoder.getTotalIndex();
+        this.currencyIndex = this.decoder.getCurrencyIndex();
+        this.lines = SyntheticExport.rows(this.rows, SEED).toArray(new String[0]);
+        this.actions = new String[this.rows];
+        this.totals = new String[this.rows];
+        this.currencies = new String[this.rows];
+
+        EnumMap<ActionType, List<Integer>> indicesByType = new EnumMap<>(ActionType.class);
+        CsvRow[] tokenized = new CsvRow[this.rows];
+        SubAction[] subActions = new SubAction[this.rows];
+        for (int i = 0; i < this.rows; i++) {
+            tokenized[i] = CsvRow.fromLine(this.lines[i]);
+            this.actions[i] = tokenized[i].getString(this.actionIndex);
+            this.totals[i] = tokenized[i].getString(this.totalIndex);
+            this.currencies[i] = tokenized[i].getString(this.currencyIndex);
+            subActions[i] = SubAction.fromString(this.actions[i]);
+            indicesByType.computeIfAbsent(subActions[i].getActionType(), type -> new ArrayList<>()).add(i);
+        }
+        for (ActionType type : ActionType.values()) {
+            List<Integer> indices = indicesByType.getOrDefault(type, List.of());
+            Slice slice = new Slice(indices.size());
+            for (int i = 0; i < indices.size(); i++) {
+                int index = indices.get(i);
+                slice.lines[i] = this.lines[index];
+                slice.rows[i] = tokenized[index];
+                slice.subActions[i] = subActions[index];
+            }
+            this.slices.put(type, slice);
+        }
+    }
+
+    /**
+     * Gets the rows handled by the parser of an action type.
+     *
+     * @param type the action type.
+     * @return the rows, in file order.
+     */
+    Slice slice(ActionType type) {
+        return this.slices.get(type);
+    }
+
+    /**
+     * The rows of one action type, as lines, tokenized rows and sub-actions at matching positions.
+     */
+    static final class Slice {
+        final String[] lines;
+        final CsvRow[] rows;
+        final SubAction[] subActions;
+
+        /**
+         * Creates an empty slice.
+         *
+         * @param size the number of rows.
+         */
+        Slice(int size) {
+            this.lines = new String[size];
+            this.rows = new CsvRow[size];
+            this.subActions = new SubAction[size];
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.parsers.OrdersParser;
+
+/**
+ * Measures a whole import: {@link CsvManager#parseCsvFile(String, CsvManager.ParseMode)} on a synthetic export,
+ * from memory-mapping the file to the filled parsers.
+ * The export is written to the download folder of the application before the trial and removed after it.
+ * Snapshots are disabled, so every invocation parses the whole file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dtrading212.snapshots=false"})
+public class CsvIngestBenchmark {
+    private static final Path DOWNLOAD_LOCATION_PATH = Paths.get("src/main/java/", "data");
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public CsvManager.ParseMode mode;
+
+    private String fileId;
+
+    /**
+     * Writes the export for this trial.
+     *
+     * @throws IOException if the export cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void writeExport() throws IOException {
+        this.fileId = "benchmark-" + this.rows;
+        Files.createDirectories(DOWNLOAD_LOCATION_PATH);
+        SyntheticExport.write(DOWNLOAD_LOCATION_PATH.resolve(this.fileId + ".csv"), this.rows, BenchmarkData.SEED);
+    }
+
+    /**
+     * Removes the export of this trial.
+     *
+     * @throws IOException if the export cannot be removed.
+     */
+    @TearDown(Level.Trial)
+    public void deleteExport() throws IOException {
+        Files.deleteIfExists(DOWNLOAD_LOCATION_PATH.resolve(this.fileId + ".csv"));
+    }
+
+    /**
+     * Parses the whole export.
+     *
+     * @return the number of parsed orders, so the work cannot be eliminated.
+     * @throws IOException if the export cannot be read.
+     */
+    @Benchmark
+    public int parseCsvFile() throws IOException {
+        CsvManager.parseCsvFile(this.fileId, this.mode);
+        return OrdersParser.getInstance().getAllData().size();
+    }
+}
@@ -0,0 +1,119 @@
+package benchmarks;
+
+import app.models.ActionType;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.csv.CsvRow;
+import utils.parsers.Cents;
+import utils.parsers.OrdersParser;
+import utils.parsers.Parser;
+
+/**
+ * Measures the per-field steps of the import on every row of a synthetic export: tokenizing a line,
+ * classifying its Action value and formatting its Total. Each step has a benchmark for the way the
+ * parsers used to do it next to the current one, so both can be compared on the same rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FieldBenchmark {
+    private static final MethodHandle FORMAT_NUMBER_VALUE = findFormatNumberValue();
+
+    /**
+     * Finds {@code Parser.formatNumberValue}, which is only visible to parsers.
+     *
+     * @return a handle to the method.
+     */
+    private static MethodHandle findFormatNumberValue() {
+        try {
+            return MethodHandles.privateLookupIn(Parser.class, MethodHandles.lookup()).findVirtual(Parser.class,
+                    "formatNumberValue", MethodType.methodType(String.class, String.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Splits every line on commas, as the parsers did before rows were tokenized.
+     *
+     * @param data      the rows of the export.
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void splitLine(BenchmarkData data, Blackhole blackhole) {
+        for (String line : data.lines) {
+            blackhole.consume(line.split(","));
+        }
+    }
+
+    /**
+     * Tokenizes every line into a row.
+     *
+     * @param data      the rows of the export.
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void tokenizeLine(BenchmarkData data, Blackhole blackhole) {
+        for (String line : data.lines) {
+            blackhole.consume(CsvRow.fromLine(line));
+        }
+    }
+
+    /**
+     * Classifies every Action value.
+     *
+     * @param data      the rows of the export.
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void actionTypeFromString(BenchmarkData data, Blackhole blackhole) {
+        for (String action : data.actions) {
+            blackhole.consume(ActionType.fromString(action));
+        }
+    }
+
+    /**
+     * Formats every Total with {@code Parser.formatNumberValue}.
+     *
+     * @param data      the rows of the export.
+     * @param blackhole consumes the results.
+     * @throws Throwable if the method fails.
+     */
+    @Benchmark
+    public void formatNumberValue(BenchmarkData data, Blackhole blackhole) throws Throwable {
+        Parser<?> parser = OrdersParser.getInstance();
+        for (int i = 0; i < data.totals.length; i++) {
+            blackhole.consume((String) FORMAT_NUMBER_VALUE.invoke(parser, data.totals[i], data.currencies[i]));
+        }
+    }
+
+    /**
+     * Parses every Total into cents and formats it, as the parsers do now.
+     *
+     * @param data      the rows of the export.
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void centsParseAndFormat(BenchmarkData data, Blackhole blackhole) {
+        for (BenchmarkData.Slice slice : data.slices.values()) {
+            for (CsvRow row : slice.rows) {
+                blackhole.consume(Cents.format(Cents.parse(row, data.totalIndex)));
+            }
+        }
+    }
+}
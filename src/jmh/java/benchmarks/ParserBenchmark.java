@@ -0,0 +1,175 @@
+package benchmarks;
+
+import app.models.ActionType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.parsers.DividendsParser;
+import utils.parsers.InterestParser;
+import utils.parsers.OrdersParser;
+import utils.parsers.Parser;
+import utils.parsers.TransactionsParser;
+
+/**
+ * Measures the parse methods of every parser on the rows of a synthetic export that belong to it.
+ * The row benchmarks call {@link Parser#parse(utils.csv.CsvRow, app.models.SubAction)} on rows that are
+ * already tokenized and classified, as {@link utils.CsvManager} does; the line benchmarks call
+ * {@link Parser#parse(String)}, which tokenizes each line itself. One operation parses all rows of the
+ * parser's action type into an emptied parser, so the row count of an operation is a share of the export size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParserBenchmark {
+    private Parser<?> orders;
+    private Parser<?> transactions;
+    private Parser<?> dividends;
+    private Parser<?> interest;
+
+    /**
+     * Creates parsers that are independent of the singleton instances.
+     *
+     * @param data the rows of the export.
+     */
+    @Setup(Level.Trial)
+    public void createParsers(BenchmarkData data) {
+        this.orders = OrdersParser.getInstance().createEmpty();
+        this.transactions = TransactionsParser.getInstance().createEmpty();
+        this.dividends = DividendsParser.getInstance().createEmpty();
+        this.interest = InterestParser.getInstance().createEmpty();
+        this.orders.setRowDecoder(data.decoder);
+        this.transactions.setRowDecoder(data.decoder);
+        this.dividends.setRowDecoder(data.decoder);
+        this.interest.setRowDecoder(data.decoder);
+    }
+
+    /**
+     * Parses the order rows.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int ordersParseRow(BenchmarkData data) {
+        return parseRows(this.orders, data.slice(ActionType.ORDER));
+    }
+
+    /**
+     * Parses the order lines.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int ordersParseLine(BenchmarkData data) {
+        return parseLines(this.orders, data.slice(ActionType.ORDER));
+    }
+
+    /**
+     * Parses the transaction rows.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int transactionsParseRow(BenchmarkData data) {
+        return parseRows(this.transactions, data.slice(ActionType.TRANSACTION));
+    }
+
+    /**
+     * Parses the transaction lines.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int transactionsParseLine(BenchmarkData data) {
+        return parseLines(this.transactions, data.slice(ActionType.TRANSACTION));
+    }
+
+    /**
+     * Parses the dividend rows.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int dividendsParseRow(BenchmarkData data) {
+        return parseRows(this.dividends, data.slice(ActionType.DIVIDEND));
+    }
+
+    /**
+     * Parses the dividend lines.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int dividendsParseLine(BenchmarkData data) {
+        return parseLines(this.dividends, data.slice(ActionType.DIVIDEND));
+    }
+
+    /**
+     * Parses the interest rows.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int interestParseRow(BenchmarkData data) {
+        return parseRows(this.interest, data.slice(ActionType.INTEREST));
+    }
+
+    /**
+     * Parses the interest lines.
+     *
+     * @param data the rows of the export.
+     * @return the number of stored rows.
+     */
+    @Benchmark
+    public int interestParseLine(BenchmarkData data) {
+        return parseLines(this.interest, data.slice(ActionType.INTEREST));
+    }
+
+    /**
+     * Clears a parser and parses tokenized rows into it.
+     *
+     * @param parser the parser to use.
+     * @param slice  the rows to parse.
+     * @return the number of stored rows.
+     */
+    private static int parseRows(Parser<?> parser, BenchmarkData.Slice slice) {
+        parser.clearData();
+        for (int i = 0; i < slice.rows.length; i++) {
+            parser.parse(slice.rows[i], slice.subActions[i]);
+        }
+        return parser.getAllData().size();
+    }
+
+    /**
+     * Clears a parser and parses lines into it.
+     *
+     * @param parser the parser to use.
+     * @param slice  the rows to parse.
+     * @return the number of stored rows.
+     */
+    private static int parseLines(Parser<?> parser, BenchmarkData.Slice slice) {
+        parser.clearData();
+        for (String line : slice.lines) {
+            parser.parse(line);
+        }
+        return parser.getAllData().size();
+    }
+}
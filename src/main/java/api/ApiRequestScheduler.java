@@ -0,0 +1,468 @@
+package api;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues requests to the Trading212 API so that every endpoint stays within its rate limit.
+ *
+ * <p>Each endpoint, such as {@code "GET /history/exports"}, has its own queue and token bucket. A request
+ * is sent when its endpoint has a token; otherwise it waits in the queue until the bucket refills. The
+ * rate-limit headers of the responses ({@code x-ratelimit-limit}, {@code x-ratelimit-period},
+ * {@code x-ratelimit-remaining} and {@code x-ratelimit-reset}) override the configured limit whenever the
+ * API sends them.</p>
+ *
+ * <p>Responses with status 429 or 5xx are retried with jittered exponential backoff, or after the time given
+ * by a {@code Retry-After} header if that is longer, and the whole endpoint is held back meanwhile. When the
+ * attempts run out, the last response is returned to the caller. A GET request that is identical to one
+ * still waiting in the queue is not queued again; both callers get the response of the one request, so a
+ * burst of refreshes becomes as few calls as possible.</p>
+ *
+ * <p>Each request names the body handler of its response, so a caller can decode the body while it
+ * arrives instead of buffering it as a string. Error responses that may be retried should be read
+ * completely by the handler, as their body is discarded with them.</p>
+ *
+ * <p>The scheduler is thread-safe.</p>
+ */
+public class ApiRequestScheduler {
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final Duration DEFAULT_BASE_BACKOFF = Duration.ofSeconds(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final Transport transport;
+    private final long baseBackoffNanos;
+    private final int maxAttempts;
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Creates a scheduler with the default backoff of one second and five attempts per request.
+     *
+     * @param transport sends a request and gives its response.
+     */
+    public ApiRequestScheduler(Transport transport) {
+        this(transport, DEFAULT_BASE_BACKOFF, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param transport   sends a request and gives its response.
+     * @param baseBackoff the backoff before the first retry; it doubles with every further retry.
+     * @param maxAttempts the number of times a request is sent at most.
+     */
+    public ApiRequestScheduler(Transport transport, Duration baseBackoff, int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("A request has to be attempted at least once");
+        }
+        this.transport = transport;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxAttempts = maxAttempts;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "trading-api-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.timer = executor;
+    }
+
+    /**
+     * Sets the rate limit of an endpoint. Endpoints without a limit send requests right away,
+     * until the API reports a limit in its response headers.
+     *
+     * @param endpoint the endpoint, as the HTTP method and the path, for example "GET /history/exports".
+     * @param requests the number of requests allowed per period.
+     * @param period   the period of the limit.
+     */
+    public synchronized void setLimit(String endpoint, int requests, Duration period) {
+        endpointOf(endpoint).setLimit(requests, period.toNanos(), System.nanoTime());
+    }
+
+    /**
+     * Queues a request to an endpoint, with the body of its response read as a string.
+     *
+     * @param endpoint the endpoint the request belongs to.
+     * @param request  the request.
+     * @return a CompletableFuture that completes with the response, which may be an error response if all
+     *         attempts failed, or exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<HttpResponse<String>> submit(String endpoint, HttpRequest request) {
+        return submit(endpoint, request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Queues a request to an endpoint. A GET request is only coalesced with a queued one that uses the
+     * same body handler instance, so callers that want to share responses should share the handler.
+     *
+     * @param <T>         the type of the response body.
+     * @param endpoint    the endpoint the request belongs to.
+     * @param request     the request.
+     * @param bodyHandler the handler of the response body.
+     * @return a CompletableFuture that completes with the response, which may be an error response if all
+     *         attempts failed, or exceptionally if the request could not be sent.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> submit(String endpoint, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        synchronized (this) {
+            Endpoint target = endpointOf(endpoint);
+            if (request.method().equals("GET")) {
+                for (Pending<?> queued : target.queue) {
+                    if (queued.bodyHandler == bodyHandler && queued.request.method().equals("GET")
+                            && queued.request.uri().equals(request.uri())) {
+                        @SuppressWarnings("unchecked") // The same handler gives the same body type
+                        Pending<T> same = (Pending<T>) queued;
+                        return same.future.copy();
+                    }
+                }
+            }
+            Pending<T> pending = new Pending<>(request, bodyHandler);
+            target.queue.add(pending);
+            drain(target);
+            return pending.future.copy();
+        }
+    }
+
+    /**
+     * Gets the number of requests waiting to be sent, over all endpoints.
+     *
+     * @return the number of queued requests.
+     */
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (Endpoint endpoint : this.endpoints.values()) {
+            depth += endpoint.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Gets the number of requests to an endpoint waiting to be sent.
+     *
+     * @param endpoint the endpoint.
+     * @return the number of queued requests.
+     */
+    public synchronized int getQueueDepth(String endpoint) {
+        Endpoint target = this.endpoints.get(endpoint);
+        return target == null ? 0 : target.queue.size();
+    }
+
+    /**
+     * Gets how long a new request to an endpoint would wait before being sent, given the requests already
+     * queued, the rate limit and any backoff in progress.
+     *
+     * @param endpoint the endpoint.
+     * @return the expected wait, zero if a request would be sent right away.
+     */
+    public synchronized Duration getWaitTime(String endpoint) {
+        Endpoint target = this.endpoints.get(endpoint);
+        if (target == null) {
+            return Duration.ZERO;
+        }
+        long now = System.nanoTime();
+        target.refill(now);
+        return Duration.ofNanos(Math.max(0, target.readyAt(now, target.queue.size() + 1) - now));
+    }
+
+    /**
+     * Gets the state of an endpoint, creating it on first use.
+     *
+     * @param endpoint the endpoint.
+     * @return the state of the endpoint.
+     */
+    private Endpoint endpointOf(String endpoint) {
+        return this.endpoints.computeIfAbsent(endpoint, name -> new Endpoint(System.nanoTime()));
+    }
+
+    /**
+     * Sends the queued requests of an endpoint for which tokens are available, and schedules the next
+     * attempt when the rest has to wait. Must be called while holding the lock.
+     *
+     * @param endpoint the endpoint.
+     */
+    private void drain(Endpoint endpoint) {
+        long now = System.nanoTime();
+        endpoint.refill(now);
+        while (!endpoint.queue.isEmpty()) {
+            long readyAt = endpoint.readyAt(now, 1);
+            if (readyAt > now) {
+                scheduleDrain(endpoint, readyAt - now);
+                return;
+            }
+            endpoint.takeToken();
+            send(endpoint, endpoint.queue.poll());
+        }
+    }
+
+    /**
+     * Schedules a drain of an endpoint, unless one is already scheduled.
+     *
+     * @param endpoint   the endpoint.
+     * @param delayNanos the delay before the drain.
+     */
+    private void scheduleDrain(Endpoint endpoint, long delayNanos) {
+        if (endpoint.scheduledDrain != null && !endpoint.scheduledDrain.isDone()) {
+            return;
+        }
+        endpoint.scheduledDrain = this.timer.schedule(() -> {
+            synchronized (this) {
+                endpoint.scheduledDrain = null;
+                drain(endpoint);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sends a request through the transport.
+     *
+     * @param <T>      the type of the response body.
+     * @param endpoint the endpoint of the request.
+     * @param pending  the request.
+     */
+    private <T> void send(Endpoint endpoint, Pending<T> pending) {
+        pending.attempts++;
+        CompletableFuture<HttpResponse<T>> response;
+        try {
+            response = this.transport.send(pending.request, pending.bodyHandler);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, error) -> onResponse(endpoint, pending, result, error));
+    }
+
+    /**
+     * Handles the outcome of an attempt: updates the limit of the endpoint from the response headers and
+     * either completes the request or puts it back at the front of the queue for a retry.
+     *
+     * @param <T>      the type of the response body.
+     * @param endpoint the endpoint of the request.
+     * @param pending  the request.
+     * @param response the response, or null if the request failed.
+     * @param error    the failure, or null if a response was received.
+     */
+    private <T> void onResponse(Endpoint endpoint, Pending<T> pending, HttpResponse<T> response, Throwable error) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (response != null) {
+                endpoint.readRateLimitHeaders(response, now);
+            }
+            if (response != null && isRetryable(response.statusCode()) && pending.attempts < this.maxAttempts) {
+                long delay = Math.max(backoffNanos(pending.attempts), retryAfterNanos(response));
+                endpoint.blockedUntil = Math.max(endpoint.blockedUntil, now + delay);
+                endpoint.queue.addFirst(pending);
+                drain(endpoint);
+                return;
+            }
+        }
+        if (error != null) {
+            pending.future.completeExceptionally(error);
+        } else {
+            pending.future.complete(response);
+        }
+    }
+
+    /**
+     * Checks whether a response status means the request should be tried again later.
+     *
+     * @param statusCode the status of the response.
+     * @return true for 429 Too Many Requests and for server errors.
+     */
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == TOO_MANY_REQUESTS || statusCode >= 500;
+    }
+
+    /**
+     * Computes the backoff before a retry: the base backoff doubled for every attempt made so far,
+     * randomized to between half and all of that so that retries of several clients spread out.
+     *
+     * @param attempts the number of attempts made so far.
+     * @return the backoff in nanoseconds.
+     */
+    private long backoffNanos(int attempts) {
+        long backoff = Math.min(MAX_BACKOFF_NANOS, this.baseBackoffNanos << Math.min(attempts - 1, 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * Reads the Retry-After header of a response, if it gives a number of seconds.
+     *
+     * @param response the response.
+     * @return the delay in nanoseconds, or 0 if there is no usable header.
+     */
+    private static long retryAfterNanos(HttpResponse<?> response) {
+        OptionalLong seconds = headerAsLong(response, "Retry-After");
+        return seconds.isPresent() ? TimeUnit.SECONDS.toNanos(Math.max(0, seconds.getAsLong())) : 0;
+    }
+
+    /**
+     * Reads a header of a response as a number.
+     *
+     * @param response the response.
+     * @param name     the name of the header.
+     * @return the value, or an empty OptionalLong if the header is missing or not a number.
+     */
+    private static OptionalLong headerAsLong(HttpResponse<?> response, String name) {
+        Optional<String> value = response.headers().firstValue(name);
+        if (value.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong(value.get().trim()));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Sends requests for the scheduler, typically {@code HttpClient::sendAsync}.
+     */
+    @FunctionalInterface
+    public interface Transport {
+        /**
+         * Sends a request.
+         *
+         * @param <T>         the type of the response body.
+         * @param request     the request.
+         * @param bodyHandler the handler of the response body.
+         * @return a CompletableFuture that completes with the response.
+         */
+        <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler);
+    }
+
+    /**
+     * A request waiting to be sent, with the future its callers wait on.
+     *
+     * @param <T> the type of the response body.
+     */
+    private static final class Pending<T> {
+        private final HttpRequest request;
+        private final HttpResponse.BodyHandler<T> bodyHandler;
+        private final CompletableFuture<HttpResponse<T>> future = new CompletableFuture<>();
+        private int attempts;
+
+        /**
+         * Creates a pending request.
+         *
+         * @param request     the request.
+         * @param bodyHandler the handler of the response body.
+         */
+        private Pending(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+            this.request = request;
+            this.bodyHandler = bodyHandler;
+        }
+    }
+
+    /**
+     * The queue and token bucket of one endpoint. A capacity of 0 means the endpoint has no limit.
+     */
+    private static final class Endpoint {
+        private final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+        private int capacity;
+        private long periodNanos;
+        private double tokens;
+        private long lastRefill;
+        private long blockedUntil;
+        private ScheduledFuture<?> scheduledDrain;
+
+        /**
+         * Creates an endpoint without a limit.
+         *
+         * @param now the current time in nanoseconds.
+         */
+        private Endpoint(long now) {
+            this.lastRefill = now;
+            this.blockedUntil = now;
+        }
+
+        /**
+         * Sets the limit and fills the bucket.
+         *
+         * @param requests    the number of requests allowed per period.
+         * @param periodNanos the period in nanoseconds.
+         * @param now         the current time in nanoseconds.
+         */
+        private void setLimit(int requests, long periodNanos, long now) {
+            if (requests < 1 || periodNanos < 1) {
+                throw new IllegalArgumentException("A rate limit needs at least one request per positive period");
+            }
+            this.capacity = requests;
+            this.periodNanos = periodNanos;
+            this.tokens = requests;
+            this.lastRefill = now;
+        }
+
+        /**
+         * Adds the tokens earned since the last refill.
+         *
+         * @param now the current time in nanoseconds.
+         */
+        private void refill(long now) {
+            if (this.capacity > 0 && now > this.lastRefill) {
+                this.tokens = Math.min(this.capacity, this.tokens + (double) (now - this.lastRefill) * this.capacity / this.periodNanos);
+            }
+            this.lastRefill = now;
+        }
+
+        /**
+         * Uses up one token.
+         */
+        private void takeToken() {
+            if (this.capacity > 0) {
+                this.tokens -= 1;
+            }
+        }
+
+        /**
+         * Computes when the given number of requests will have been allowed, assuming the bucket was just refilled.
+         *
+         * @param now      the current time in nanoseconds.
+         * @param requests the number of requests.
+         * @return the time in nanoseconds at which the last of the requests may be sent.
+         */
+        private long readyAt(long now, int requests) {
+            long ready = Math.max(now, this.blockedUntil);
+            if (this.capacity > 0 && this.tokens < requests) {
+                ready = Math.max(ready, now + (long) Math.ceil((requests - this.tokens) * this.periodNanos / this.capacity));
+            }
+            return ready;
+        }
+
+        /**
+         * Updates the limit from the rate-limit headers of a response, if it has them.
+         *
+         * @param response the response.
+         * @param now      the current time in nanoseconds.
+         */
+        private void readRateLimitHeaders(HttpResponse<?> response, long now) {
+            OptionalLong limit = headerAsLong(response, "x-ratelimit-limit");
+            OptionalLong period = headerAsLong(response, "x-ratelimit-period");
+            if (limit.isPresent() && period.isPresent() && limit.getAsLong() > 0 && period.getAsLong() > 0) {
+                this.capacity = (int) Math.min(Integer.MAX_VALUE, limit.getAsLong());
+                this.periodNanos = TimeUnit.SECONDS.toNanos(period.getAsLong());
+                this.tokens = Math.min(this.tokens, this.capacity);
+            }
+            OptionalLong remaining = headerAsLong(response, "x-ratelimit-remaining");
+            if (remaining.isPresent() && this.capacity > 0) {
+                // The API counts every request, including those of other clients using the same key
+                this.tokens = Math.max(0, Math.min(this.capacity, remaining.getAsLong()));
+            }
+            OptionalLong reset = headerAsLong(response, "x-ratelimit-reset");
+            if (remaining.isPresent() && remaining.getAsLong() <= 0 && reset.isPresent()) {
+                long untilReset = TimeUnit.MILLISECONDS.toNanos(TimeUnit.SECONDS.toMillis(reset.getAsLong()) - System.currentTimeMillis());
+                this.blockedUntil = Math.max(this.blockedUntil, now + Math.max(0, untilReset));
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package api;
+
+import app.models.DocumentsListItem;
+import app.models.Status;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Follows requested exports until they are done, so that each one is shown as soon as it finishes.
+ *
+ * <p>The API has no endpoint for the status of a single report, so the tracker polls the export history
+ * and looks up the tracked report IDs in it. It polls with backoff: first after the initial delay, then
+ * twice as long after every poll that found no change, up to the maximum delay. A poll that finds a new
+ * status reports it to the listeners of that report, and a report that is {@link Status#FINISHED},
+ * {@link Status#FAILED} or {@link Status#CANCELED} stops being tracked. All reports are polled together
+ * on one shared scheduler thread, and the history requests still go through the rate limit of the
+ * {@link ApiRequestScheduler}, which may space them out further.</p>
+ *
+ * <p>The tracker is thread-safe. Listeners are called on the scheduler thread.</p>
+ */
+public class PendingReportTracker {
+    private static final Duration DEFAULT_INITIAL_DELAY = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_MAX_DELAY = Duration.ofMinutes(1);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(30);
+
+    private static PendingReportTracker instance = null;
+
+    private final Supplier<CompletableFuture<List<DocumentsListItem>>> historySource;
+    private final long initialDelayNanos;
+    private final long maxDelayNanos;
+    private final long timeoutNanos;
+    private final ScheduledExecutorService executor;
+    private final Map<Integer, PendingReport> pending = new HashMap<>();
+    private long delayNanos;
+    private boolean pollScheduled;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param historySource fetches the export history.
+     * @param initialDelay  the delay before the first poll, and after a poll that found a change.
+     * @param maxDelay      the longest delay between polls.
+     * @param timeout       how long a report is tracked at most before its future fails.
+     */
+    public PendingReportTracker(Supplier<CompletableFuture<List<DocumentsListItem>>> historySource,
+                                Duration initialDelay, Duration maxDelay, Duration timeout) {
+        this.historySource = historySource;
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.maxDelayNanos = Math.max(maxDelay.toNanos(), this.initialDelayNanos);
+        this.timeoutNanos = timeout.toNanos();
+        this.delayNanos = this.initialDelayNanos;
+        ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "report-status-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutor.setRemoveOnCancelPolicy(true);
+        this.executor = scheduledExecutor;
+    }
+
+    /**
+     * Retrieves the singleton instance of the tracker, which polls the export history of the
+     * {@link TradingApiCommunicator}.
+     *
+     * @return the singleton instance of the tracker.
+     */
+    public static synchronized PendingReportTracker getInstance() {
+        if (instance == null) {
+            instance = new PendingReportTracker(TradingApiCommunicator::getExportHistoryAsync,
+                    DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, DEFAULT_TIMEOUT);
+        }
+        return instance;
+    }
+
+    /**
+     * Tracks a report until it is done. Tracking a report that is already tracked adds the listener
+     * to it, and the polls continue as before.
+     *
+     * @param reportId the ID of the report.
+     * @param onUpdate called with the report whenever a poll finds it with a new status.
+     * @return a CompletableFuture that completes with the report once it is done, or exceptionally with a
+     *         TimeoutException if it is not done within the timeout.
+     */
+    public synchronized CompletableFuture<DocumentsListItem> track(int reportId, Consumer<DocumentsListItem> onUpdate) {
+        PendingReport report = this.pending.get(reportId);
+        if (report == null) {
+            report = new PendingReport(System.nanoTime() + this.timeoutNanos);
+            this.pending.put(reportId, report);
+            // A new report is likely to change soon, so the backoff starts over
+            this.delayNanos = this.initialDelayNanos;
+        }
+        report.listeners.add(onUpdate);
+        schedulePoll();
+        return report.future.copy();
+    }
+
+    /**
+     * Gets the number of reports that are still being tracked.
+     *
+     * @return the number of pending reports.
+     */
+    public synchronized int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * Checks whether a status means the report will not change anymore.
+     *
+     * @param status the status.
+     * @return true for finished, failed and canceled reports.
+     */
+    public static boolean isDone(Status status) {
+        return status == Status.FINISHED || status == Status.FAILED || status == Status.CANCELED;
+    }
+
+    /**
+     * Schedules the next poll, unless one is already scheduled or nothing is tracked.
+     * Must be called while holding the lock.
+     */
+    private void schedulePoll() {
+        if (this.pollScheduled || this.pending.isEmpty()) {
+            return;
+        }
+        this.pollScheduled = true;
+        this.executor.schedule(this::poll, this.delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Fetches the export history and applies it to the tracked reports.
+     */
+    private void poll() {
+        CompletableFuture<List<DocumentsListItem>> history;
+        try {
+            history = this.historySource.get();
+        } catch (RuntimeException e) {
+            history = CompletableFuture.failedFuture(e);
+        }
+        history.whenCompleteAsync((documents, error) -> onPolled(documents), this.executor);
+    }
+
+    /**
+     * Reports the new statuses found by a poll, stops tracking the reports that are done or timed out,
+     * and schedules the next poll with a delay that depends on whether anything changed.
+     *
+     * @param documents the export history, or null if the poll failed.
+     */
+    private void onPolled(List<DocumentsListItem> documents) {
+        List<Runnable> notifications = new ArrayList<>();
+        synchronized (this) {
+            this.pollScheduled = false;
+            boolean changed = false;
+            long now = System.nanoTime();
+            var iterator = this.pending.entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                PendingReport report = entry.getValue();
+                DocumentsListItem document = documents == null ? null : find(documents, entry.getKey());
+                if (document != null && document.getStatus() != report.lastStatus) {
+                    report.lastStatus = document.getStatus();
+                    changed = true;
+                    for (Consumer<DocumentsListItem> listener : report.listeners) {
+                        notifications.add(() -> listener.accept(document));
+                    }
+                }
+                if (document != null && isDone(document.getStatus())) {
+                    iterator.remove();
+                    notifications.add(() -> report.future.complete(document));
+                } else if (now - report.deadline >= 0) {
+                    iterator.remove();
+                    notifications.add(() -> report.future.completeExceptionally(
+                            new TimeoutException("Report " + entry.getKey() + " was not done in time")));
+                }
+            }
+            this.delayNanos = changed ? this.initialDelayNanos : Math.min(this.maxDelayNanos, this.delayNanos * 2);
+            schedulePoll();
+        }
+        for (Runnable notification : notifications) {
+            try {
+                notification.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Finds a report in the export history.
+     *
+     * @param documents the export history.
+     * @param reportId  the ID of the report.
+     * @return the report, or null if the history does not list it yet.
+     */
+    private static DocumentsListItem find(List<DocumentsListItem> documents, int reportId) {
+        for (DocumentsListItem document : documents) {
+            if (document.getReportId() == reportId) {
+                return document;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A tracked report, with its listeners and the future of its final state.
+     */
+    private static final class PendingReport {
+        private final List<Consumer<DocumentsListItem>> listeners = new ArrayList<>();
+        private final CompletableFuture<DocumentsListItem> future = new CompletableFuture<>();
+        private final long deadline;
+        private Status lastStatus;
+
+        /**
+         * Creates a tracked report.
+         *
+         * @param deadline the time in nanoseconds after which the report is no longer tracked.
+         */
+        private PendingReport(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
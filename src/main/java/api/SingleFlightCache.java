@@ -0,0 +1,91 @@
+package api;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Loads a value asynchronously at most once at a time and keeps it for a short time.
+ *
+ * <p>Callers that ask for the value while a load is in flight share that load instead of starting their
+ * own, and callers that ask within the time to live of a loaded value get it without loading again.
+ * Failed loads are not kept, so the next caller loads again. {@link #invalidate()} drops the value and detaches any load in flight, for
+ * use when the source is known to have changed.</p>
+ *
+ * @param <T> the type of the value.
+ */
+public class SingleFlightCache<T> {
+    private final Supplier<CompletableFuture<T>> loader;
+    private final long timeToLiveNanos;
+    private CompletableFuture<T> inFlight;
+    private T value;
+    private long loadedAt;
+    private long generation;
+
+    /**
+     * Creates a cache.
+     *
+     * @param loader     starts a load of the value.
+     * @param timeToLive how long a loaded value is served before it is loaded again.
+     */
+    public SingleFlightCache(Supplier<CompletableFuture<T>> loader, Duration timeToLive) {
+        this.loader = loader;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * Gets the value, from the cache, from the load in flight, or from a new load.
+     *
+     * @return a CompletableFuture that completes with the value. Each caller gets its own future,
+     *         so cancelling it does not affect other callers.
+     */
+    public synchronized CompletableFuture<T> get() {
+        if (this.value != null && System.nanoTime() - this.loadedAt < this.timeToLiveNanos) {
+            return CompletableFuture.completedFuture(this.value);
+        }
+        if (this.inFlight != null) {
+            return this.inFlight.copy();
+        }
+        CompletableFuture<T> load;
+        try {
+            load = this.loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        long loadGeneration = this.generation;
+        this.inFlight = load;
+        CompletableFuture<T> caller = load.copy();
+        // A load that has already finished runs onLoaded right away, which clears inFlight again
+        CompletableFuture<T> started = load;
+        load.whenComplete((result, error) -> onLoaded(started, loadGeneration, result, error));
+        return caller;
+    }
+
+    /**
+     * Drops the cached value. A load in flight is still completed for the callers waiting on it, but its
+     * value is not cached and later callers start a new load.
+     */
+    public synchronized void invalidate() {
+        this.value = null;
+        this.inFlight = null;
+        this.generation++;
+    }
+
+    /**
+     * Records the outcome of a load.
+     *
+     * @param load           the load.
+     * @param loadGeneration the generation of the cache when the load started.
+     * @param result         the loaded value, or null if the load failed.
+     * @param error          the failure, or null if the load succeeded.
+     */
+    private synchronized void onLoaded(CompletableFuture<T> load, long loadGeneration, T result, Throwable error) {
+        if (this.inFlight == load) {
+            this.inFlight = null;
+        }
+        if (error == null && loadGeneration == this.generation && result != null) {
+            this.value = result;
+            this.loadedAt = System.nanoTime();
+        }
+    }
+}
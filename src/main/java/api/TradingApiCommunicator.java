@@ -1,18 +1,35 @@
 package api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.*;
 import java.net.http.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import utils.KeySaver;
+import app.models.DocumentsListItem;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
 /**
  * The TradingApiCommunicator class provides methods to interact with the Trading212 API.
  * It supports asynchronous operations for fetching and posting export history data.
  * 
- * <p>API URL: {@value #API_URL}</p>
+ * <p>API URL: {@value #DEFAULT_API_URL}, unless another base URL is set with {@link #setApiUrl(String)}
+ * or the {@value #API_URL_PROPERTY} system property.</p>
  * 
  * <p>Endpoints:</p>
  * <ul>
@@ -22,7 +39,7 @@ import com.google.gson.JsonParser;
  * <p>Usage:</p>
  * <pre>
  * {@code
- * CompletableFuture<JsonElement> historyFuture = TradingApiCommunicator.getExportHistoryAsync();
+ * CompletableFuture<List<DocumentsListItem>> historyFuture = TradingApiCommunicator.getExportHistoryAsync();
  * historyFuture.thenAccept(history -> {
  *     // Process the history data
  * });
@@ -41,8 +58,20 @@ import com.google.gson.JsonParser;
  *   <li>com.google.gson.JsonElement</li>
  *   <li>com.google.gson.JsonObject</li>
  *   <li>com.google.gson.JsonParser</li>
+ *   <li>com.google.gson.stream.JsonReader</li>
  * </ul>
  * 
+ * <p>All requests share one long-lived HTTP/2 client, so connections and TLS sessions are reused between
+ * calls. Requests are queued in an {@link ApiRequestScheduler}, which keeps every endpoint within its
+ * rate limit and retries throttled requests. They are sent with {@link HttpClient#sendAsync}, and the
+ * client runs its work and the completion of the returned futures on a small executor of its own, so
+ * API calls never occupy threads of the common ForkJoinPool, which is used for parsing.</p>
+ *
+ * <p>The export history is decoded with a {@link JsonReader} straight from the body as it arrives, into
+ * immutable {@link DocumentsListItem}s, without holding the body as a string or building a JSON tree.
+ * The decoding blocks while it waits for the body, so it runs on a decoder thread of its own rather than
+ * on the threads of the client, which deliver the body.</p>
+ *
  * <p>Note: Ensure that the API key is set in the KeySaver instance before making requests.</p>
  * 
  * @see java.net.http.HttpClient
@@ -51,90 +80,278 @@ import com.google.gson.JsonParser;
  * @see com.google.gson.JsonParser
  */
 public class TradingApiCommunicator {
-    private static final String API_URL = "https://live.trading212.com/api/v0";
+    private static final String DEFAULT_API_URL = "https://live.trading212.com/api/v0";
+    private static final String API_URL_PROPERTY = "trading212.apiUrl";
     private static final String HISTORY_EXPORTS = "/history/exports";
-    private static HttpClient client = HttpClient.newBuilder().build();
+    /** The scheduler endpoint of export history requests. */
+    public static final String GET_HISTORY_EXPORTS = "GET " + HISTORY_EXPORTS;
+    /** The scheduler endpoint of new export requests. */
+    public static final String POST_HISTORY_EXPORTS = "POST " + HISTORY_EXPORTS;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final ExecutorService API_EXECUTOR = createExecutor("trading-api-", 2);
+    private static final ExecutorService DECODER_EXECUTOR = createExecutor("trading-api-decoder-", 1);
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(API_EXECUTOR)
+            .build();
+    private static final ApiRequestScheduler SCHEDULER = createScheduler();
+    private static final long HISTORY_TIME_TO_LIVE_SECONDS = 10;
+    private static final Duration HISTORY_TIME_TO_LIVE = Duration.ofSeconds(HISTORY_TIME_TO_LIVE_SECONDS);
+    private static final SingleFlightCache<List<DocumentsListItem>> HISTORY_CACHE = new SingleFlightCache<>(
+            TradingApiCommunicator::fetchExportHistoryAsync, HISTORY_TIME_TO_LIVE);
+    private static final HttpResponse.BodyHandler<Supplier<List<DocumentsListItem>>> HISTORY_BODY_HANDLER =
+            TradingApiCommunicator::historySubscriber;
+    private static volatile String apiUrl = System.getProperty(API_URL_PROPERTY, DEFAULT_API_URL);
+
+    /**
+     * Creates an executor for API work. Its threads are daemon threads, so pending requests
+     * do not keep the application running after the window is closed.
+     *
+     * @param namePrefix the prefix of the thread names.
+     * @param threads    the number of threads.
+     * @return the executor.
+     */
+    private static ExecutorService createExecutor(String namePrefix, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the scheduler that keeps requests within the documented rate limits of the API:
+     * one export history request per minute and one new export per 30 seconds.
+     *
+     * @return the scheduler.
+     */
+    private static ApiRequestScheduler createScheduler() {
+        ApiRequestScheduler scheduler = new ApiRequestScheduler(CLIENT::sendAsync);
+        scheduler.setLimit(GET_HISTORY_EXPORTS, 1, Duration.ofMinutes(1));
+        scheduler.setLimit(POST_HISTORY_EXPORTS, 1, Duration.ofSeconds(30));
+        return scheduler;
+    }
+
+    /**
+     * Gets the shared HTTP client, for requests outside the API such as report downloads, so that they
+     * reuse its connections and executor.
+     *
+     * @return the client.
+     */
+    public static HttpClient getHttpClient() {
+        return CLIENT;
+    }
+
+    /**
+     * Gets the scheduler all requests are queued in, for example to show how long a request will wait.
+     *
+     * @return the scheduler.
+     */
+    public static ApiRequestScheduler getScheduler() {
+        return SCHEDULER;
+    }
+
+    /**
+     * Sets the base URL of the API, for example to point the application at a local stub server.
+     * The cached export history belongs to the previous URL and is dropped.
+     *
+     * @param url the base URL, without a trailing slash.
+     */
+    public static void setApiUrl(String url) {
+        apiUrl = Objects.requireNonNull(url);
+        HISTORY_CACHE.invalidate();
+    }
+
+    /**
+     * Gets the base URL of the API.
+     *
+     * @return the base URL.
+     */
+    public static String getApiUrl() {
+        return apiUrl;
+    }
 
     /**
      * Asynchronously retrieves the export history.
      *
      * This method returns a CompletableFuture that, when completed, will contain
-     * a JsonElement representing the export history. The history is fetched by
-     * calling the getHistoryExportsArray() method.
-     *
-     * @return a CompletableFuture containing the export history as a JsonElement.
-     */
-    public static CompletableFuture<JsonElement> getExportHistoryAsync() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JsonElement response = getHistoryExportsArray();
-                return response;
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
-            }
-        });
+     * the exports as immutable items. The request does not block any thread
+     * while it waits for the response, but it may wait in the queue of the rate limit.
+     * Callers share a request that is already in flight, and a history fetched in the last
+     * {@value #HISTORY_TIME_TO_LIVE_SECONDS} seconds is returned without a new request.
+     *
+     * @return a CompletableFuture containing the read-only list of exports. It completes exceptionally with a
+     *         {@link TradingApiException} if the API refused the request, or with the cause of the failure
+     *         if the request could not be sent or the response could not be decoded.
+     */
+    public static CompletableFuture<List<DocumentsListItem>> getExportHistoryAsync() {
+        return HISTORY_CACHE.get();
     }
 
     /**
-     * Retrieves the history exports array from the Trading API.
+     * Requests the export history from the API and decodes it on the decoder thread.
      *
-     * This method sends a GET request to the Trading API's history exports endpoint
-     * and returns the response as a JsonElement.
+     * @return a CompletableFuture containing the export history, as for {@link #getExportHistoryAsync()}.
+     */
+    private static CompletableFuture<List<DocumentsListItem>> fetchExportHistoryAsync() {
+        try {
+            return SCHEDULER.submit(GET_HISTORY_EXPORTS, newRequest(HISTORY_EXPORTS).GET().build(), HISTORY_BODY_HANDLER)
+                    .thenApplyAsync(response -> response.body().get(), DECODER_EXECUTOR);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Chooses how to read the body of an export history response. A successful body is exposed as a stream
+     * and decoded only when the returned supplier is called, as decoding blocks until the body has arrived.
+     * An error body is read completely, and the supplier throws a {@link TradingApiException} with its message.
      *
-     * @return JsonElement representing the history exports array.
-     * @throws Exception if an error occurs during the HTTP request or response parsing.
+     * @param responseInfo the status and headers of the response.
+     * @return the subscriber of the body.
      */
-    private static JsonElement getHistoryExportsArray() throws Exception {
-        client = HttpClient.newBuilder().build();
-        var request = HttpRequest.newBuilder()
-                .GET()
-                .uri(URI.create(API_URL + HISTORY_EXPORTS))
-                .header("Content-Type", "application/json")
-                .header("Authorization", KeySaver.getInstance().getApiKey())
-                .build();
+    private static HttpResponse.BodySubscriber<Supplier<List<DocumentsListItem>>> historySubscriber(HttpResponse.ResponseInfo responseInfo) {
+        int status = responseInfo.statusCode();
+        if (isSuccess(status)) {
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+                    body -> () -> decodeHistory(body));
+        }
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                body -> () -> {
+                    throw new TradingApiException(status, errorMessage(status, body));
+                });
+    }
 
-        var response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        return JsonParser.parseString(response.body());
+    /**
+     * Decodes the export history from the body stream of a response.
+     * The stream is read to its end before it is closed: closing it earlier cancels the body, and the
+     * client then closes the connection instead of returning it to its pool.
+     *
+     * @param body the body of the response; it is closed afterwards.
+     * @return the read-only list of exports.
+     */
+    private static List<DocumentsListItem> decodeHistory(InputStream body) {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<DocumentsListItem> history = DocumentsListItem.readList(reader);
+            body.transferTo(OutputStream.nullOutputStream());
+            return history;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
      * Asynchronously sends a POST request to export history with the given request body.
+     * When the API accepts the export, the cached export history is dropped, as it lacks the new export.
      *
      * @param requestBody The request body to be sent in the POST request, in JSON format.
-     * @return A CompletableFuture that, when completed, will contain the JsonObject response from the POST request.
+     * @return A CompletableFuture that, when completed, will contain the JsonObject response from the POST request,
+     *         which has an "errorMessage" if the API refused the request.
      *         If an exception occurs during the request, the CompletableFuture will complete with null.
      */
     public static CompletableFuture<JsonObject> postExportHistoryAsync(String requestBody) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JsonObject response = postExportHistory(requestBody);
-                return response;
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
-            }
-        });
+        return sendAsync(POST_HISTORY_EXPORTS, () -> newRequest(HISTORY_EXPORTS).POST(HttpRequest.BodyPublishers.ofString(requestBody)).build())
+                .thenApply(JsonElement::getAsJsonObject)
+                .thenApply(response -> {
+                    if (response.has("reportId")) {
+                        HISTORY_CACHE.invalidate();
+                    }
+                    return response;
+                })
+                .exceptionally(TradingApiCommunicator::reportFailure);
     }
 
     /**
-     * Sends a POST request to export history data.
+     * Starts a request builder for an endpoint, with the headers every request needs.
      *
-     * @param requestBody The JSON string to be sent in the request body.
-     * @return A JsonObject containing the response from the server.
-     * @throws Exception If an error occurs during the request.
+     * @param endpoint the path of the endpoint, relative to the base URL.
+     * @return the request builder.
      */
-    private static JsonObject postExportHistory(String requestBody) throws Exception {
-        client = HttpClient.newBuilder().build();
-        HttpRequest request = HttpRequest.newBuilder()
-                .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                .uri(URI.create(API_URL + HISTORY_EXPORTS))
+    private static HttpRequest.Builder newRequest(String endpoint) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl + endpoint))
+                .timeout(REQUEST_TIMEOUT)
                 .header("Content-Type", "application/json")
-                .header("Authorization", KeySaver.getInstance().getApiKey())
-                .build();
+                .header("Authorization", KeySaver.getInstance().getApiKey());
+    }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Queues a request in the scheduler, which sends it with the shared client once the rate limit allows it.
+     *
+     * @param endpoint the scheduler endpoint of the request.
+     * @param request  supplies the request; errors while building it, such as an invalid base URL,
+     *                 complete the future exceptionally.
+     * @return a CompletableFuture that completes with the parsed body of the response.
+     */
+    private static CompletableFuture<JsonElement> sendAsync(String endpoint, Supplier<HttpRequest> request) {
+        try {
+            return SCHEDULER.submit(endpoint, request.get()).thenApply(TradingApiCommunicator::toJson);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-        return JsonParser.parseString(response.body()).getAsJsonObject();
+    /**
+     * Parses the body of a response. An error response is turned into a JsonObject with an
+     * "errorMessage", as given by {@link #errorMessage(int, String)}.
+     *
+     * @param response the response.
+     * @return the parsed body.
+     */
+    private static JsonElement toJson(HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (isSuccess(status)) {
+            return JsonParser.parseString(response.body());
+        }
+        JsonObject error = new JsonObject();
+        error.addProperty("errorMessage", errorMessage(status, response.body()));
+        return error;
+    }
+
+    /**
+     * Checks whether a response status means the request succeeded.
+     *
+     * @param status the status of the response.
+     * @return true for 2xx statuses.
+     */
+    private static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * Gets the message of an error response: the JSON "errorMessage" of the body if it has one, or a
+     * message the user can read, such as for a 429 Too Many Requests that outlasted all retries.
+     *
+     * @param status the status of the response.
+     * @param body   the body of the response.
+     * @return the error message.
+     */
+    private static String errorMessage(int status, String body) {
+        try {
+            JsonElement parsed = JsonParser.parseString(body);
+            if (parsed.isJsonObject() && parsed.getAsJsonObject().has("errorMessage")) {
+                return parsed.getAsJsonObject().get("errorMessage").getAsString();
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            // Fall through to the generic message
+        }
+        return status == 429
+                ? "The Trading212 API rate limit was exceeded. Please try again in a minute."
+                : "The Trading212 API responded with status " + status + ".";
+    }
+
+    /**
+     * Reports a failed request and gives the null result that callers expect in that case.
+     *
+     * @param <T>       the type of the result.
+     * @param exception the cause of the failure.
+     * @return null.
+     */
+    private static <T> T reportFailure(Throwable exception) {
+        exception.printStackTrace();
+        return null;
     }
 }
@@ -0,0 +1,31 @@
+package api;
+
+/**
+ * Thrown when the Trading212 API refuses a request, for example because the API key is invalid or the
+ * rate limit was exceeded. The message is meant to be shown to the user.
+ */
+public class TradingApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    /**
+     * Creates an exception for an error response.
+     *
+     * @param statusCode the status of the response.
+     * @param message    the error message, readable by the user.
+     */
+    public TradingApiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Gets the status of the error response.
+     *
+     * @return the HTTP status code.
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+}
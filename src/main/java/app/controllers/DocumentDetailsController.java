@@ -1,7 +1,8 @@
 package app.controllers;
 
-import java.util.HashMap;
-
+import app.store.ParsedReportStore;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -9,6 +10,10 @@ import javafx.concurrent.Task;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
+import utils.AlertDialog;
+import utils.CsvManager;
+import utils.ParseReportTask;
+import utils.ReportRowList;
 import utils.ViewManager;
 import utils.parsers.*;
 
@@ -21,14 +26,26 @@ import utils.parsers.*;
 public class DocumentDetailsController extends BaseController {
     private static final String DOCUMENTS_VIEW = ViewManager.getDocumentsViewPath();
 
+    /** The report shown by the view, once it is loaded. */
+    private ParsedReport report;
+
+    /** The task loading the report chosen in the documents view. */
+    private ParseReportTask parseTask;
+
+    /** The rows of the report shown in the document details list. */
+    private ReportRowList detailRows;
+
     @FXML
     private Button backButton;
 
+    @FXML
+    private Label cacheStatsLabel;
+
     @FXML
     private Label depositsLabel;
 
     @FXML
-    private ListView<String> documentDetailsList;
+    private ListView<Integer> documentDetailsList;
 
     @FXML
     private Label expensesLabel;
@@ -39,6 +56,12 @@ public class DocumentDetailsController extends BaseController {
     @FXML
     private Label pageTitle;
 
+    @FXML
+    private ProgressIndicator parseProgressIndicator;
+
+    @FXML
+    private Label parseStatusLabel;
+
     @FXML
     private Label profitLabel;
 
@@ -55,13 +78,19 @@ public class DocumentDetailsController extends BaseController {
     private Label withdrawalsLabel;
 
     /**
-     * Initializes the controller by setting up the document details list and loading
-     * both summary and detailed data asynchronously.
+     * Initializes the controller by setting up the document details list and starting to load
+     * the chosen report in the background. The view is shown right away with the progress of the
+     * parse, and the summary and detailed data are filled in once the report is loaded.
      */
     public void initialize() {
         setupDocumentDetailsList();
-        showSummaryDataAsync();
-        showAllDataAsync();
+        String fileId = ParsedReportStore.getInstance().getCurrentFileId();
+        showReportCacheStats();
+        if (fileId == null) {
+            setParseProgressVisible(false);
+            return;
+        }
+        loadReportAsync(fileId);
     }
 
     /**
@@ -72,14 +101,62 @@ public class DocumentDetailsController extends BaseController {
      */
     @FXML
     void onActionBackButton(ActionEvent event) throws Exception {
+        if (parseTask != null) {
+            parseTask.cancel();
+        }
         switchToView(DOCUMENTS_VIEW);
     }
 
+    /**
+     * Loads a report in the background, showing the progress of the parse until it is done.
+     *
+     * @param fileId the ID of the file of the report
+     */
+    private void loadReportAsync(String fileId) {
+        parseTask = new ParseReportTask(fileId);
+        parseProgressIndicator.progressProperty().bind(parseTask.progressProperty());
+        parseStatusLabel.textProperty().bind(parseTask.messageProperty());
+        parseTask.setOnSucceeded(event -> {
+            setParseProgressVisible(false);
+            showReportCacheStats();
+            report = parseTask.getValue();
+            showSummaryDataAsync();
+            showAllData();
+        });
+        parseTask.setOnFailed(event -> {
+            setParseProgressVisible(false);
+            showReportCacheStats();
+            AlertDialog.showError("Failed to parse CSV", parseTask.getException().getMessage());
+        });
+        parseTask.setOnCancelled(event -> setParseProgressVisible(false));
+        Thread parseThread = new Thread(parseTask, "report-parser");
+        parseThread.setDaemon(true);
+        parseThread.start();
+    }
+
+    /**
+     * Shows the size and the hit, miss and eviction counters of the cache of parsed reports.
+     */
+    private void showReportCacheStats() {
+        cacheStatsLabel.setText("Report cache: " + CsvManager.getReportCacheStats());
+    }
+
+    /**
+     * Shows or hides the progress of the parse.
+     *
+     * @param visible whether the progress should be shown
+     */
+    private void setParseProgressVisible(boolean visible) {
+        parseStatusLabel.textProperty().unbind();
+        parseProgressIndicator.setVisible(visible);
+        parseStatusLabel.setVisible(visible);
+    }
+
     /**
      * Sets up the document details list with custom cell rendering to display detailed data.
      */
     private void setupDocumentDetailsList() {
-        documentDetailsList.setCellFactory(param -> new ListCell<String>() {
+        documentDetailsList.setCellFactory(param -> new ListCell<Integer>() {
             private final Label label = new Label();
             private final HBox content;
 
@@ -92,12 +169,12 @@ public class DocumentDetailsController extends BaseController {
             }
 
             @Override
-            protected void updateItem(String item, boolean empty) {
+            protected void updateItem(Integer item, boolean empty) {
                 super.updateItem(item, empty);
-                if (empty || item == null) {
+                if (empty || item == null || detailRows == null) {
                     setGraphic(null);
                 } else {
-                    label.setText(item);
+                    label.setText(detailRows.getText(item));
                     setGraphic(content);
                 }
             }
@@ -105,49 +182,26 @@ public class DocumentDetailsController extends BaseController {
     }
 
     /**
-     * Asynchronously loads and displays all data (detailed transactions, dividends,
-     * interest, and orders) in the document details list.
-     */
-    private void showAllDataAsync() {
-        Task<Void> showParsedDataTask = new Task<Void>() {
-            @Override
-            protected Void call() throws Exception {
-                showAllData();
-                return null;
-            }
-        };
-        new Thread(showParsedDataTask).start();
-    }
-
-    /**
-     * Loads all detailed data for dividends, transactions, interest, and orders,
-     * and populates the document details list with this data.
+     * Displays all data (detailed transactions, dividends, interest, and orders) in the
+     * document details list. The list only holds the positions of the rows; the text of
+     * a row is built when its cell is shown.
      */
     private void showAllData() {
-        HashMap<String, String> allDividendsData = DividendsParser.getInstance().getAllData();
-        HashMap<String, String> allTransactionsData = TransactionsParser.getInstance().getAllData();
-        HashMap<String, String> allInterestData = InterestParser.getInstance().getAllData();
-        HashMap<String, String> allOrdersData = OrdersParser.getInstance().getAllData();
-
-        documentDetailsList.getItems().add("Dividends:");
-        allDividendsData.forEach((key, value) -> documentDetailsList.getItems().add(value));
-        documentDetailsList.getItems().add("Transactions:");
-        allTransactionsData.forEach((key, value) -> documentDetailsList.getItems().add(value));
-        documentDetailsList.getItems().add("Interest:");
-        allInterestData.forEach((key, value) -> documentDetailsList.getItems().add(value));
-        documentDetailsList.getItems().add("Orders:");
-        allOrdersData.forEach((key, value) -> documentDetailsList.getItems().add(value));
+        detailRows = new ReportRowList(report);
+        documentDetailsList.setItems(FXCollections.observableList(detailRows));
     }
 
     /**
      * Asynchronously loads and displays summary data for transactions, income,
-     * expenses, profits, dividends, and interest.
+     * expenses, profits, dividends, and interest. The texts are built on a background
+     * thread and all labels are then set at once on the JavaFX thread.
      */
     private void showSummaryDataAsync() {
+        ParsedReport shownReport = report;
         Task<Void> showParsedDataTask = new Task<Void>() {
             @Override
             protected Void call() throws Exception {
-                showSummaryData();
+                showSummaryData(shownReport);
                 return null;
             }
         };
@@ -155,71 +209,65 @@ public class DocumentDetailsController extends BaseController {
     }
 
     /**
-     * Loads summarized data for dividends, transactions, interest, and orders,
-     * and sets the values in corresponding labels on the view.
+     * Formats the summarized data for dividends, transactions, interest, and orders,
+     * and sets the values in the corresponding labels on the view in one update.
+     *
+     * @param shownReport the report to show
      */
-    private void showSummaryData() {
-        HashMap<String, String> dividendsData = DividendsParser.getInstance().getSummarizedData();
-        HashMap<String, HashMap<String, String>> transactionsData = TransactionsParser.getInstance().getSummarizedData();
-        HashMap<String, String> interestData = InterestParser.getInstance().getSummarizedData();
-        HashMap<String, HashMap<String, String>> ordersData = OrdersParser.getInstance().getSummarizedData();
-        setSummarizedTransactions(transactionsData);
-        setSummarizedOrders(ordersData);
-        setSummarizedDividends(dividendsData);
-        setSummarizedInterest(interestData);
-    }
-
-    private void setSummarizedTransactions(HashMap<String, HashMap<String, String>> transactionsData) {
+    private void showSummaryData(ParsedReport shownReport) {
         StringBuilder depositsSb = new StringBuilder();
         StringBuilder withdrawalsSb = new StringBuilder();
-        for (String currency : transactionsData.keySet()) {
-            HashMap<String, String> currencyData = transactionsData.get(currency);
-            String totalDeposits = currencyData.get("totalDeposits");
-            String totalWithdrawals = currencyData.get("totalWithdrawals");
-            if (totalDeposits != null) {
-                depositsSb.append(totalDeposits).append(" ").append(currency).append("\n");
+        for (TransactionTotals totals : shownReport.getTransactionTotals()) {
+            if (totals.hasDeposits()) {
+                appendAmount(depositsSb, totals.getDepositCents(), totals.getCurrency());
             }
-            if (totalWithdrawals != null) {
-                withdrawalsSb.append(totalWithdrawals).append(" ").append(currency).append("\n");
+            if (totals.hasWithdrawals()) {
+                appendAmount(withdrawalsSb, totals.getWithdrawalCents(), totals.getCurrency());
             }
         }
-        depositsLabel.setText(depositsSb.toString());
-        withdrawalsLabel.setText(withdrawalsSb.toString());
-    }
-
-    private void setSummarizedOrders(HashMap<String, HashMap<String, String>> ordersData) {
         StringBuilder incomeSb = new StringBuilder();
         StringBuilder expensesSb = new StringBuilder();
         StringBuilder profitSb = new StringBuilder();
-        for (String currency : ordersData.keySet()) {
-            HashMap<String, String> currencyData = ordersData.get(currency);
-            String totalIncome = currencyData.get("totalIncome");
-            String totalExpenses = currencyData.get("totalExpenses");
-            String totalProfit = currencyData.get("totalProfit");
-            incomeSb.append(totalIncome).append(" ").append(currency).append("\n");
-            expensesSb.append(totalExpenses).append(" ").append(currency).append("\n");
-            profitSb.append(totalProfit).append(" ").append(currency).append("\n");
+        for (OrderTotals totals : shownReport.getOrderTotals()) {
+            appendAmount(incomeSb, totals.getIncomeCents(), totals.getCurrency());
+            appendAmount(expensesSb, totals.getExpensesCents(), totals.getCurrency());
+            appendAmount(profitSb, totals.getProfitCents(), totals.getCurrency());
         }
-        incomeLabel.setText(incomeSb.toString());
-        expensesLabel.setText(expensesSb.toString());
-        profitLabel.setText(profitSb.toString());
-    }
-
-    private void setSummarizedDividends(HashMap<String, String> dividendsData) {
         StringBuilder dividendsSb = new StringBuilder();
-        for (String currency : dividendsData.keySet()) {
-            String dividendsValue = dividendsData.get(currency);
-            dividendsSb.append(dividendsValue).append(" ").append(currency).append("\n");
+        for (CurrencyTotal total : shownReport.getDividendTotals()) {
+            appendAmount(dividendsSb, total.getCents(), total.getCurrency());
         }
-        totalDividendsLabel.setText(dividendsSb.toString());
-    }
-
-    private void setSummarizedInterest(HashMap<String, String> interestData) {
         StringBuilder interestSb = new StringBuilder();
-        for (String currency : interestData.keySet()) {
-            String interestValue = interestData.get(currency);
-            interestSb.append(interestValue).append(" ").append(currency).append("\n");
+        for (CurrencyTotal total : shownReport.getInterestTotals()) {
+            appendAmount(interestSb, total.getCents(), total.getCurrency());
         }
-        totalInterestLabel.setText(interestSb.toString());
+
+        String deposits = depositsSb.toString();
+        String withdrawals = withdrawalsSb.toString();
+        String income = incomeSb.toString();
+        String expenses = expensesSb.toString();
+        String profit = profitSb.toString();
+        String dividends = dividendsSb.toString();
+        String interest = interestSb.toString();
+        Platform.runLater(() -> {
+            depositsLabel.setText(deposits);
+            withdrawalsLabel.setText(withdrawals);
+            incomeLabel.setText(income);
+            expensesLabel.setText(expenses);
+            profitLabel.setText(profit);
+            totalDividendsLabel.setText(dividends);
+            totalInterestLabel.setText(interest);
+        });
+    }
+
+    /**
+     * Appends an amount with its currency as a line of a label text.
+     *
+     * @param sb       the text to append to
+     * @param cents    the amount in cents
+     * @param currency the currency code
+     */
+    private static void appendAmount(StringBuilder sb, long cents, String currency) {
+        sb.append(Cents.format(cents)).append(" ").append(currency).append("\n");
     }
 }
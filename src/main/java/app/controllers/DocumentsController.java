@@ -1,19 +1,19 @@
 package app.controllers;
 
-import com.google.gson.*;
+import java.util.concurrent.CompletionException;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import api.*;
 import utils.AlertDialog;
-import utils.CountDownTimer;
 import utils.CsvManager;
+import utils.DownloadQueue;
 import utils.ViewManager;
 import app.models.DocumentsListItem;
 import app.store.DocumentsListItemStore;
+import app.store.ParsedReportStore;
 
 /**
  * DocumentsController is responsible for managing and displaying a list of documents
@@ -23,6 +23,10 @@ import app.store.DocumentsListItemStore;
 public class DocumentsController extends BaseController {
     private static final String DOCUMENT_DETAILS_VIEW = ViewManager.getDocumentDetailsViewPath();
     private static final DocumentsListItemStore documentsListItemStore = DocumentsListItemStore.getInstance();
+    private static final DownloadQueue downloadQueue = DownloadQueue.getInstance();
+
+    @FXML
+    private CheckBox AutoDownloadBox;
 
     @FXML
     private CheckBox DividendsBox;
@@ -64,17 +68,18 @@ public class DocumentsController extends BaseController {
                 
                 // Event handlers
                 downloadButton.setOnAction(event -> {
-                    DocumentsListItem item = getItem();
-                    String downloadLink = item.getDownloadLink();
-                    String reportId = Integer.toString(item.getReportId());
-                    downloadCsvAsync(downloadLink, reportId);
+                    downloadCsvAsync(getItem());
                 });
 
                 showButton.setOnAction(event -> {
                     try {
                         DocumentsListItem item = getItem();
                         String reportId = Integer.toString(item.getReportId());
-                        CsvManager.parseCsvFile(reportId);
+                        if (!CsvManager.isFileDownloaded(reportId)) {
+                            AlertDialog.showError("Failed to parse CSV", "The report " + reportId + " is not downloaded yet.");
+                            return;
+                        }
+                        ParsedReportStore.getInstance().setCurrentFileId(reportId);
                         switchToView(DOCUMENT_DETAILS_VIEW);
                     } catch (Exception e) {
                         AlertDialog.showError("Failed to parse CSV", e.getMessage());
@@ -93,7 +98,7 @@ public class DocumentsController extends BaseController {
                     timeToLabel.setText("To: " + item.getTimeTo());
                     dataIncludedLabel.setText(item.getDataIncluded().toString());
                     statusLabel.setText("Status: " + item.getStatus());
-                    downloadedStateLabel.setText(CsvManager.isFileDownloaded(Integer.toString(item.getReportId())) ? "✅" : "❌");
+                    downloadedStateLabel.setText(getDownloadStateText(item));
                     setGraphic(content);
                 }
             }
@@ -112,72 +117,79 @@ public class DocumentsController extends BaseController {
             return;
         }
         TradingApiCommunicator.getExportHistoryAsync()
-        .thenAccept(result -> {
-            if (result.isJsonArray()) {
-                JsonArray dataArray = result.getAsJsonArray();
-                documentsListItemStore.setDocumentsList(dataArray);
-                Platform.runLater(() -> {
-                    DocumentsList.getItems().clear();
-                    populateDocumentsList(dataArray);
-                });
-            } else if (result.isJsonObject()) {
-                String errorMessage = result.getAsJsonObject().get("errorMessage").getAsString();
-                Platform.runLater(() -> {
-                    AlertDialog.showError("Failed to get documents list", errorMessage);
-                });
-            }
+        .thenAccept(documents -> {
+            documentsListItemStore.setDocumentsList(documents);
+            downloadQueue.offerAll(documents);
+            Platform.runLater(() -> {
+                DocumentsList.getItems().setAll(documentsListItemStore.getDocumentsList());
+            });
         })
         .exceptionally(ex -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            String errorMessage = cause.getMessage() != null ? cause.getMessage() : cause.toString();
             Platform.runLater(() -> {
-                AlertDialog.showError("Failed to get documents list", ex.getMessage());
+                AlertDialog.showError("Failed to get documents list", errorMessage);
             });
             return null;
         });
     }
 
     /**
-     * Populates the documents list with data from the provided JSON array.
+     * Gets the text showing whether the CSV file of a document is downloaded, or how far its download is.
      *
-     * @param dataArray a JsonArray containing document data
+     * @param item the document
+     * @return the text of the downloaded state label
      */
-    private void populateDocumentsList(JsonArray dataArray) {
-        for (JsonElement document : dataArray) {
-            DocumentsListItem listItem = new DocumentsListItem(document);
-            DocumentsList.getItems().add(listItem);
+    private String getDownloadStateText(DocumentsListItem item) {
+        DownloadQueue.State state = downloadQueue.getState(item.getReportId());
+        if (state == DownloadQueue.State.QUEUED) {
+            return "⏳";
         }
+        if (state == DownloadQueue.State.DOWNLOADING) {
+            int percent = downloadQueue.getProgressPercent(item.getReportId());
+            return percent < 0 ? "⬇" : "⬇ " + percent + "%";
+        }
+        if (state == DownloadQueue.State.PARSING) {
+            return "⬇";
+        }
+        return CsvManager.isFileDownloaded(DownloadQueue.fileIdOf(item)) ? "✅" : "❌";
     }
 
     /**
-     * Downloads a CSV file asynchronously using the provided download link and report ID.
+     * Downloads the CSV file of a document in the background download queue.
      *
-     * @param downloadLink the URL link to download the CSV
-     * @param reportId     the report ID for the downloaded CSV
+     * @param item the document to download
      */
-    private void downloadCsvAsync(String downloadLink, String reportId) {
-        Task<Void> downloadTask = new Task<Void>() {
-            @Override
-            protected Void call() throws Exception {
-                CsvManager.downloadCsvFile(downloadLink, reportId);
-                return null;
-            }
-
-            @Override
-            protected void succeeded() {
-                Platform.runLater(() -> {
-                    AlertDialog.showInfo("Downloaded CSV", "The CSV file has been downloaded successfully.");
-                });
-            }
-
-            @Override
-            protected void failed() {
-                String exceptionMessage = getException().getMessage();
-                Platform.runLater(() -> {
-                    AlertDialog.showError("Failed to download CSV", exceptionMessage);
-                });
-            }
-        };
+    private void downloadCsvAsync(DocumentsListItem item) {
+        if (item.getDownloadLink() == null) {
+            AlertDialog.showWarning("Report not finished", "The CSV file can be downloaded once the report is finished.");
+            return;
+        }
+        downloadQueue.enqueue(item)
+        .thenRun(() -> {
+            Platform.runLater(() -> {
+                AlertDialog.showInfo("Downloaded CSV", "The CSV file has been downloaded successfully.");
+            });
+        })
+        .exceptionally(ex -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            Platform.runLater(() -> {
+                AlertDialog.showError("Failed to download CSV", cause.getMessage());
+            });
+            return null;
+        });
+    }
 
-        new Thread(downloadTask).start();
+    /**
+     * Handles the automatic download check box: when it is checked, finished reports that are not
+     * downloaded yet are downloaded in the background, now and whenever they finish later.
+     *
+     * @param event the ActionEvent triggered by clicking the check box
+     */
+    @FXML
+    void onActionAutoDownloadBox(ActionEvent event) {
+        downloadQueue.setAutoDownloadEnabled(AutoDownloadBox.isSelected());
+        downloadQueue.offerAll(documentsListItemStore.getDocumentsList());
     }
 
     @FXML
@@ -201,9 +213,23 @@ public class DocumentsController extends BaseController {
     @FXML
     private HBox PageLayout;
     
+    @FXML
+    private Button RefreshButton;
+
     @FXML
     private Button RequestButton;
 
+    /**
+     * Handles the refresh button by fetching the documents list from the API again, for example to show
+     * exports requested outside of the application.
+     *
+     * @param event the ActionEvent triggered by clicking the refresh button
+     */
+    @FXML
+    void onActionRefreshButton(ActionEvent event) {
+        populateDocumentsListAsync(true);
+    }
+
     /**
      * Handles the action for the request button to initiate a new document export request.
      *
@@ -223,11 +249,7 @@ public class DocumentsController extends BaseController {
     private void postExportHistoryAsync(String requestBody) {
         TradingApiCommunicator.postExportHistoryAsync(requestBody).thenAccept(result -> {
             if (result.has("reportId")) {
-                Platform.runLater(() -> {
-                    CountDownTimer.startTimer(90, timerLabel, () -> {
-                        populateDocumentsListAsync(true);
-                    });
-                });
+                trackReport(result.get("reportId").getAsInt());
             } else {
                 String errorMessage = result.has("errorMessage") ? result.get("errorMessage").getAsString() : result.toString();
                 Platform.runLater(() -> {
@@ -244,6 +266,43 @@ public class DocumentsController extends BaseController {
         });
     }
 
+    /**
+     * Follows a requested report until it is done, updating its row in the documents list
+     * whenever its status changes, and the timer label with its progress.
+     *
+     * @param reportId the ID of the requested report
+     */
+    private void trackReport(int reportId) {
+        Platform.runLater(() -> timerLabel.setText("Report " + reportId + " was requested"));
+        PendingReportTracker.getInstance().track(reportId, document -> {
+            documentsListItemStore.updateDocument(document);
+            downloadQueue.offer(document);
+            Platform.runLater(() -> {
+                updateDocumentRow(document);
+                timerLabel.setText("Report " + reportId + ": " + document.getStatus());
+            });
+        })
+        .exceptionally(ex -> {
+            Platform.runLater(() -> timerLabel.setText("Report " + reportId + " is taking long, refresh later"));
+            return null;
+        });
+    }
+
+    /**
+     * Replaces the row of a report in the documents list, or adds it at the top if it is not listed yet.
+     * Must be called on the JavaFX application thread.
+     *
+     * @param document the new state of the report
+     */
+    private void updateDocumentRow(DocumentsListItem document) {
+        int index = DocumentsListItemStore.indexOf(DocumentsList.getItems(), document.getReportId());
+        if (index >= 0) {
+            DocumentsList.getItems().set(index, document);
+        } else {
+            DocumentsList.getItems().add(0, document);
+        }
+    }
+
     /**
      * Generates the request body for posting a new export history based on selected dates
      * and options (like including dividends, interest, orders, or transactions).
@@ -281,10 +340,23 @@ public class DocumentsController extends BaseController {
     private Label timerLabel;
 
     /**
-     * Initializes the controller by setting up the documents list and populating it asynchronously.
+     * Initializes the controller by setting up the documents list, following the background downloads,
+     * and populating the list asynchronously.
      */
     public void initialize() {
         setupDocumentsList();
+        AutoDownloadBox.setSelected(downloadQueue.isAutoDownloadEnabled());
+        downloadQueue.setListener(new DownloadQueue.Listener() {
+            @Override
+            public void onStateChanged(DocumentsListItem document, DownloadQueue.State state) {
+                Platform.runLater(DocumentsList::refresh);
+            }
+
+            @Override
+            public void onProgress(DocumentsListItem document, long bytes, long total) {
+                Platform.runLater(DocumentsList::refresh);
+            }
+        });
         populateDocumentsListAsync(false);
     }
 }
@@ -42,19 +42,23 @@ public enum ActionType {
 
     /**
      * Parses a string to determine the corresponding ActionType.
+     * The string is lower-cased once and then matched against the keywords of each type in turn.
+     * Callers classifying many rows should cache the result per distinct string, as the
+     * {@code ActionClassifier} used while parsing does.
      *
      * @param actionType The string to parse.
      * @return The corresponding ActionType.
      * @throws IllegalArgumentException if the string does not match any ActionType.
      */
     public static ActionType fromString(String actionType) {
-        if (isInterest(actionType)) {
+        String lowerCaseActionType = actionType.toLowerCase();
+        if (isInterest(lowerCaseActionType)) {
             return INTEREST;
-        } else if (isTransaction(actionType)) {
+        } else if (isTransaction(lowerCaseActionType)) {
             return TRANSACTION;
-        } else if (isOrder(actionType)) {
+        } else if (isOrder(lowerCaseActionType)) {
             return ORDER;
-        } else if (isDividend(actionType)) {
+        } else if (isDividend(lowerCaseActionType)) {
             return DIVIDEND;
         }
         throw new IllegalArgumentException("No enum constant " + ActionType.class.getCanonicalName() + actionType);
@@ -63,23 +67,23 @@ public enum ActionType {
     /**
      * Checks if the given string represents an interest action.
      *
-     * @param actionType The string to check.
+     * @param actionType The lower-cased string to check.
      * @return true if the string matches an interest action; false otherwise.
      */
     private static boolean isInterest(String actionType) {
-        return actionType.toLowerCase().contains(INTEREST.toString().toLowerCase());
+        return actionType.contains("interest");
     }
 
     /**
      * Checks if the given string represents a transaction action.
      *
-     * @param actionType The string to check.
+     * @param actionType The lower-cased string to check.
      * @return true if the string matches a transaction action; false otherwise.
      */
     private static boolean isTransaction(String actionType) {
-        if (actionType.toLowerCase().contains("deposit") 
-            || actionType.toLowerCase().contains("withdraw") 
-            || actionType.toLowerCase().contains("currency conversion")) {
+        if (actionType.contains("deposit") 
+            || actionType.contains("withdraw") 
+            || actionType.contains("currency conversion")) {
             return true;
         }
         return false;
@@ -88,23 +92,23 @@ public enum ActionType {
     /**
      * Checks if the given string represents an order action.
      *
-     * @param actionType The string to check.
+     * @param actionType The lower-cased string to check.
      * @return true if the string matches an order action; false otherwise.
      */
     private static boolean isOrder(String actionType) {
-        if (actionType.toLowerCase().contains("buy") || actionType.toLowerCase().contains("sell")) {
+        if (actionType.contains("buy") || actionType.contains("sell")) {
             return true;
         }
-        return actionType.toLowerCase().contains("market");
+        return actionType.contains("market");
     }
 
     /**
      * Checks if the given string represents a dividend action.
      *
-     * @param actionType The string to check.
+     * @param actionType The lower-cased string to check.
      * @return true if the string matches a dividend action; false otherwise.
      */
     private static boolean isDividend(String actionType) {
-        return actionType.toLowerCase().contains(DIVIDEND.toString().toLowerCase());
+        return actionType.contains("dividend");
     }
 }
@@ -1,6 +1,9 @@
 package app.models;
 
+import java.io.IOException;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * Represents the data inclusion options for different financial data types.
@@ -108,4 +111,38 @@ public final class DataIncluded {
                 dataIncluded.get("includeTransactions").getAsBoolean()
         );
     }
+
+    /**
+     * Reads a DataIncluded object from a JSON object with the same fields as
+     * {@link #fromJsonObject(JsonObject)}, token by token. Missing fields are not included.
+     *
+     * @param reader The reader, positioned before the JSON object.
+     * @return A DataIncluded object populated with values from the JSON object.
+     * @throws IOException If the JSON cannot be read.
+     */
+    public static DataIncluded read(JsonReader reader) throws IOException {
+        boolean dividends = false;
+        boolean interest = false;
+        boolean orders = false;
+        boolean transactions = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.BOOLEAN) {
+                reader.skipValue();
+            } else if (name.equals("includeDividends")) {
+                dividends = reader.nextBoolean();
+            } else if (name.equals("includeInterest")) {
+                interest = reader.nextBoolean();
+            } else if (name.equals("includeOrders")) {
+                orders = reader.nextBoolean();
+            } else if (name.equals("includeTransactions")) {
+                transactions = reader.nextBoolean();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new DataIncluded(dividends, interest, orders, transactions);
+    }
 }
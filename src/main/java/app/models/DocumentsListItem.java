@@ -1,33 +1,41 @@
 package app.models;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * Represents an item in a list of documents, with details including report ID,
  * date range, data inclusion options, status, and a download link.
+ * Items are immutable, so one decoded list can be shared by the store and the views.
  */
-public class DocumentsListItem {
+public final class DocumentsListItem {
+
+    /** Format of the dates shown to the user. */
+    private static final DateTimeFormatter DISPLAY_DATE_FORMAT = DateTimeFormatter.ofPattern("dd. MM. yyyy HH:mm");
 
     /** Unique identifier for the document report. */
-    private int reportId;
+    private final int reportId;
 
     /** Start date and time for the document's data range. */
-    private String timeFrom;
+    private final String timeFrom;
 
     /** End date and time for the document's data range. */
-    private String timeTo;
+    private final String timeTo;
 
     /** Data inclusion options for this document. */
-    private DataIncluded dataIncluded;
+    private final DataIncluded dataIncluded;
 
     /** Current status of the document. */
-    private Status status;
+    private final Status status;
 
-    /** Download link for the document. */
-    private String downloadLink;
+    /** Download link for the document, or null while the report is not finished. */
+    private final String downloadLink;
 
     /**
      * Constructs a DocumentsListItem with specified attributes.
@@ -49,20 +57,68 @@ public class DocumentsListItem {
     }
 
     /**
-     * Constructs a DocumentsListItem from a JSON element.
-     * Extracts details including report ID, date range, data inclusion options,
-     * status, and download link.
+     * Reads a JSON array of documents, as returned by the export history endpoint, token by token,
+     * without building a tree of the whole response first.
+     *
+     * @param reader The reader, positioned before the array.
+     * @return The read-only list of documents, in the order of the array.
+     * @throws IOException If the JSON cannot be read.
+     */
+    public static List<DocumentsListItem> readList(JsonReader reader) throws IOException {
+        List<DocumentsListItem> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            items.add(read(reader));
+        }
+        reader.endArray();
+        return List.copyOf(items);
+    }
+
+    /**
+     * Reads one document from a JSON object. Unknown properties are skipped,
+     * and properties that are missing or null, such as the download link of
+     * an unfinished report, are left null, except for the data inclusion
+     * options, which then include nothing.
      *
-     * @param document The JSON element containing document details.
+     * @param reader The reader, positioned before the object.
+     * @return The document.
+     * @throws IOException If the JSON cannot be read.
      */
-    public DocumentsListItem(JsonElement document) {
-        JsonObject documentObject = document.getAsJsonObject();
-        this.reportId = documentObject.get("reportId").getAsInt();
-        this.timeFrom = formatDateString(documentObject.get("timeFrom").getAsString());
-        this.timeTo = formatDateString(documentObject.get("timeTo").getAsString());
-        this.dataIncluded = DataIncluded.fromJsonObject(documentObject.get("dataIncluded").getAsJsonObject());
-        this.status = Status.fromString(documentObject.get("status").getAsString());
-        this.downloadLink = documentObject.get("downloadLink").getAsString();
+    public static DocumentsListItem read(JsonReader reader) throws IOException {
+        Integer reportId = null;
+        String timeFrom = null;
+        String timeTo = null;
+        DataIncluded dataIncluded = new DataIncluded(false, false, false, false);
+        Status status = null;
+        String downloadLink = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            if (name.equals("reportId")) {
+                reportId = reader.nextInt();
+            } else if (name.equals("timeFrom")) {
+                timeFrom = formatDateString(reader.nextString());
+            } else if (name.equals("timeTo")) {
+                timeTo = formatDateString(reader.nextString());
+            } else if (name.equals("dataIncluded")) {
+                dataIncluded = DataIncluded.read(reader);
+            } else if (name.equals("status")) {
+                status = Status.fromString(reader.nextString());
+            } else if (name.equals("downloadLink")) {
+                downloadLink = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (reportId == null) {
+            throw new JsonParseException("A document has no reportId at " + reader.getPath());
+        }
+        return new DocumentsListItem(reportId, timeFrom, timeTo, dataIncluded, status, downloadLink);
     }
 
     /**
@@ -71,10 +127,8 @@ public class DocumentsListItem {
      * @param date The date string to format.
      * @return A formatted date string in the pattern "dd. MM. yyyy HH:mm".
      */
-    private String formatDateString(String date) {
-        ZonedDateTime zonedDateTime = ZonedDateTime.parse(date);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd. MM. yyyy HH:mm");
-        return zonedDateTime.format(formatter);
+    private static String formatDateString(String date) {
+        return ZonedDateTime.parse(date).format(DISPLAY_DATE_FORMAT);
     }
 
     /**
@@ -0,0 +1,104 @@
+package app.models;
+
+/**
+ * Enum representing the specific kind of an action within its {@link ActionType}.
+ * The sub-action tells a parser how to handle a row, so the parser does not have to search the row again.
+ */
+public enum SubAction {
+
+    /** Represents interest paid on cash. */
+    INTEREST(ActionType.INTEREST),
+
+    /** Represents a dividend payment. */
+    DIVIDEND(ActionType.DIVIDEND),
+
+    /** Represents a deposit of funds. */
+    DEPOSIT(ActionType.TRANSACTION),
+
+    /** Represents a withdrawal of funds. */
+    WITHDRAWAL(ActionType.TRANSACTION),
+
+    /** Represents any other transaction, such as a currency conversion. */
+    CONVERSION(ActionType.TRANSACTION),
+
+    /** Represents a buy order. */
+    BUY(ActionType.ORDER),
+
+    /** Represents a sell order. */
+    SELL(ActionType.ORDER),
+
+    /** Represents an order whose side cannot be determined from the action. */
+    OTHER_ORDER(ActionType.ORDER);
+
+    /** The action type this sub-action belongs to. */
+    private final ActionType actionType;
+
+    /**
+     * Constructs a SubAction belonging to the given action type.
+     *
+     * @param actionType The action type of the sub-action.
+     */
+    SubAction(ActionType actionType) {
+        this.actionType = actionType;
+    }
+
+    /**
+     * Returns the action type this sub-action belongs to.
+     *
+     * @return The action type.
+     */
+    public ActionType getActionType() {
+        return actionType;
+    }
+
+    /**
+     * Parses an Action value to determine its sub-action.
+     * The action type is determined by {@link ActionType#fromString(String)}. Within a transaction,
+     * "Deposit" and "Withdraw" are matched case-sensitively, and within an order, "buy" and "sell" are,
+     * which is how the parsers have always told them apart.
+     *
+     * @param action The Action value to parse.
+     * @return The corresponding SubAction.
+     * @throws IllegalArgumentException if the value does not match any ActionType.
+     */
+    public static SubAction fromString(String action) {
+        return switch (ActionType.fromString(action)) {
+            case INTEREST -> INTEREST;
+            case DIVIDEND -> DIVIDEND;
+            case TRANSACTION -> transactionFromString(action);
+            case ORDER -> orderFromString(action);
+        };
+    }
+
+    /**
+     * Determines the sub-action of a transaction.
+     *
+     * @param action The Action value of the transaction.
+     * @return DEPOSIT, WITHDRAWAL or CONVERSION.
+     */
+    public static SubAction transactionFromString(String action) {
+        if (action.contains("Deposit")) {
+            return DEPOSIT;
+        }
+        if (action.contains("Withdraw")) {
+            return WITHDRAWAL;
+        }
+        return CONVERSION;
+    }
+
+    /**
+     * Determines the sub-action of an order.
+     *
+     * @param action The Action value of the order.
+     * @return BUY, SELL or OTHER_ORDER.
+     */
+    public static SubAction orderFromString(String action) {
+        if (action.contains("buy")) {
+            return BUY;
+        }
+        if (action.contains("sell")) {
+            return SELL;
+        }
+        return OTHER_ORDER;
+    }
+}
@@ -3,10 +3,8 @@ package app.store;
 import app.models.DocumentsListItem;
 import java.util.ArrayList;
 import java.util.List;
-import javafx.concurrent.Task;
+import javafx.application.Platform;
 import javafx.scene.control.ListView;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 
 /**
  * Singleton class that manages a list of {@link DocumentsListItem} instances.
@@ -17,8 +15,8 @@ public class DocumentsListItemStore {
     /** Singleton instance of the store. */
     private static DocumentsListItemStore instance = null;
 
-    /** List of document items. */
-    private List<DocumentsListItem> documentsList = new ArrayList<>();
+    /** List of document items. It is replaced as a whole, so readers on other threads always see a complete list. */
+    private volatile List<DocumentsListItem> documentsList = List.of();
 
     /** Private constructor to enforce singleton pattern. */
     private DocumentsListItemStore() {}
@@ -36,42 +34,67 @@ public class DocumentsListItemStore {
     }
 
     /**
-     * Asynchronously populates the specified ListView with cached document items.
+     * Populates the specified ListView with the cached document items, in one change on the JavaFX thread.
      *
      * @param documentsListView The ListView to populate with document items.
      */
     public void populateDocumentListFromCacheAsync(ListView<DocumentsListItem> documentsListView) {
-        Task<Void> populateFromCacheTask = new Task<Void>() {
-            @Override
-            protected Void call() {
-                documentsListView.getItems().clear();
-                documentsListView.getItems().addAll(getDocumentsList());
-                return null;
-            }
-        };
-        new Thread(populateFromCacheTask).start();
+        List<DocumentsListItem> documents = getDocumentsList();
+        Platform.runLater(() -> documentsListView.getItems().setAll(documents));
     }
 
     /**
      * Retrieves the current list of document items.
      *
-     * @return The list of document items.
+     * @return The read-only list of document items.
      */
     public List<DocumentsListItem> getDocumentsList() {
         return documentsList;
     }
 
     /**
-     * Sets the list of document items from a JSON array.
-     * Each JSON element in the array is converted into a {@link DocumentsListItem}.
+     * Sets the list of document items, replacing the previous list. The items are immutable,
+     * so they are shared with the caller rather than copied; a read-only list, such as the one
+     * decoded from the API, is kept as it is. It holds the same lock as {@link #updateDocument},
+     * so an update in progress cannot write an older list back over the new one.
      *
-     * @param documentsListJson The JSON array containing document items.
+     * @param documentsList The document items.
      */
-    public void setDocumentsList(JsonArray documentsListJson) {
-        for (JsonElement document : documentsListJson) {
-            DocumentsListItem item = new DocumentsListItem(document);
-            this.documentsList.add(item);
+    public synchronized void setDocumentsList(List<DocumentsListItem> documentsList) {
+        this.documentsList = List.copyOf(documentsList);
+    }
+
+    /**
+     * Replaces the document item with the same report ID, or adds the item at the top of the list
+     * if it is not listed yet, as for a newly requested export.
+     *
+     * @param document The new state of the document item.
+     */
+    public synchronized void updateDocument(DocumentsListItem document) {
+        List<DocumentsListItem> items = new ArrayList<>(documentsList);
+        int index = indexOf(items, document.getReportId());
+        if (index >= 0) {
+            items.set(index, document);
+        } else {
+            items.add(0, document);
+        }
+        this.documentsList = List.copyOf(items);
+    }
+
+    /**
+     * Finds the position of a report in a list of document items.
+     *
+     * @param items The document items.
+     * @param reportId The report ID to look for.
+     * @return The index of the report, or -1 if it is not in the list.
+     */
+    public static int indexOf(List<DocumentsListItem> items, int reportId) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getReportId() == reportId) {
+                return i;
+            }
         }
+        return -1;
     }
 
     /**
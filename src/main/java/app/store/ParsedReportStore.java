@@ -0,0 +1,46 @@
+package app.store;
+
+/**
+ * Singleton class that holds the report chosen in the documents view, so the
+ * document details view knows which report to load and show.
+ */
+public class ParsedReportStore {
+    /** Singleton instance of the store. */
+    private static ParsedReportStore instance = null;
+
+    /** The ID of the file of the report to show in the document details view. */
+    private volatile String currentFileId = null;
+
+    /** Private constructor to enforce singleton pattern. */
+    private ParsedReportStore() {}
+
+    /**
+     * Retrieves the singleton instance of the ParsedReportStore.
+     *
+     * @return The singleton instance of the store.
+     */
+    public static synchronized ParsedReportStore getInstance() {
+        if (instance == null) {
+            instance = new ParsedReportStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Sets the report to show in the document details view.
+     *
+     * @param fileId The ID of the file of the report.
+     */
+    public void setCurrentFileId(String fileId) {
+        this.currentFileId = fileId;
+    }
+
+    /**
+     * Retrieves the report to show in the document details view.
+     *
+     * @return The ID of the file of the report, or null if no report was chosen yet.
+     */
+    public String getCurrentFileId() {
+        return currentFileId;
+    }
+}
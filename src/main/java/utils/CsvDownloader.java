@@ -0,0 +1,649 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+/**
+ * Downloads report files safely: the body is streamed into a {@code .part} file next to the destination
+ * and hashed with SHA-256 as it arrives, and the part file is renamed to the destination only once it is
+ * complete. A download that was interrupted is resumed from the end of its part file with an HTTP Range
+ * request. The checksum is written next to the file in a {@code .sha256} sidecar and identifies the content
+ * of the file, for example as the cache key of data derived from it.
+ *
+ * <p>A {@link ContentSink} can be given to see the content of the file while it is written, for example to
+ * parse it during the download. It sees the content in order from the first byte, including the bytes of
+ * a resumed part file. The sink runs on the thread that called {@code download}, never on the threads of the
+ * client, which are shared with the API calls. At most {@value #MAX_QUEUED_BATCHES} received batches wait for
+ * the sink; beyond that no more of the body is requested, so a slow sink slows the download down.</p>
+ *
+ * <p>{@link #withProgress(ContentSink, ProgressListener)} wraps a sink so that it also reports how many bytes
+ * of the file were seen, out of the length announced by the response.</p>
+ */
+public class CsvDownloader {
+    private static final String PART_SUFFIX = ".part";
+    private static final String CHECKSUM_SUFFIX = ".sha256";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_QUEUED_BATCHES = 16;
+
+    private final HttpClient client;
+
+    /**
+     * Sees the content of a file while it is downloaded. The methods are called one at a time, in order.
+     */
+    public interface ContentSink {
+        /**
+         * Called when the content starts over from the first byte, dropping everything seen before.
+         */
+        void reset();
+
+        /**
+         * Called with the next bytes of the content, on the thread that downloads the file.
+         *
+         * @param bytes the bytes; the sink must not change their position or keep the buffer.
+         */
+        void accept(ByteBuffer bytes);
+
+        /**
+         * Called with the length of the whole file once the response announced it, before the rest of the content.
+         * The default ignores it.
+         *
+         * @param length the length of the file in bytes.
+         */
+        default void expectLength(long length) {
+        }
+    }
+
+    /**
+     * Is told how far the download of a file is.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called when more of the file was seen, on the thread that downloads the file.
+         *
+         * @param bytes the number of bytes of the file seen so far.
+         * @param total the length of the file, or -1 if the response did not announce it.
+         */
+        void onProgress(long bytes, long total);
+    }
+
+    /** A sink that ignores the content. */
+    private static final ContentSink NO_SINK = new ContentSink() {
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public void accept(ByteBuffer bytes) {
+        }
+    };
+
+    /**
+     * Wraps a sink so that it also reports the progress of the download. The progress is reported when the
+     * content starts over, when the length of the file is announced, and whenever another whole percent of
+     * the file was seen.
+     *
+     * @param sink     the sink to pass the content on to.
+     * @param listener is told how many bytes were seen.
+     * @return the wrapping sink.
+     */
+    public static ContentSink withProgress(ContentSink sink, ProgressListener listener) {
+        return new ProgressSink(sink, listener);
+    }
+
+    /**
+     * Creates a sink that ignores the content and only reports the progress of the download, as for
+     * {@link #withProgress(ContentSink, ProgressListener)}.
+     *
+     * @param listener is told how many bytes were seen.
+     * @return the sink.
+     */
+    public static ContentSink withProgress(ProgressListener listener) {
+        return withProgress(NO_SINK, listener);
+    }
+
+    /**
+     * Creates a downloader.
+     *
+     * @param client the client to send the requests with.
+     */
+    public CsvDownloader(HttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Downloads a file, resuming an earlier interrupted download of it if there is one.
+     *
+     * @param link        the URL of the file.
+     * @param destination the path to save the file at; it only appears once the file is complete.
+     * @return the SHA-256 checksum of the file, as a hex string.
+     * @throws IOException          if the download failed or was incomplete; a partial body is kept for resuming.
+     * @throws InterruptedException if the thread was interrupted while waiting for the download.
+     */
+    public String download(URI link, Path destination) throws IOException, InterruptedException {
+        return download(link, destination, NO_SINK);
+    }
+
+    /**
+     * Downloads a file as {@link #download(URI, Path)} does, and passes its content to a sink on the way.
+     *
+     * @param link        the URL of the file.
+     * @param destination the path to save the file at; it only appears once the file is complete.
+     * @param sink        sees the content of the file on the calling thread; it has seen all of it once the method returns.
+     * @return the SHA-256 checksum of the file, as a hex string.
+     * @throws IOException          if the download failed or was incomplete; a partial body is kept for resuming.
+     * @throws InterruptedException if the thread was interrupted while waiting for the download.
+     * @throws RuntimeException     if the sink failed, in which case the download is cancelled.
+     */
+    public String download(URI link, Path destination, ContentSink sink) throws IOException, InterruptedException {
+        Path partFile = partFileOf(destination);
+        long offset = Files.exists(partFile) ? Files.size(partFile) : 0;
+        HttpRequest.Builder request = HttpRequest.newBuilder(link).timeout(REQUEST_TIMEOUT).GET();
+        if (offset > 0) {
+            request.header("Range", "bytes=" + offset + "-");
+        }
+        sink.reset();
+        MessageDigest resumedDigest = offset > 0 ? digestOf(partFile, sink) : newDigest();
+        MessageDigest digest = newDigest();
+        SinkFeed feed = sink == NO_SINK ? null : new SinkFeed(sink);
+        CompletableFuture<HttpResponse<Path>> sending = this.client.sendAsync(request.build(), responseInfo -> {
+            int status = responseInfo.statusCode();
+            if (status == 206 && offset > 0) {
+                if (feed != null) {
+                    feed.expectLength(totalOfContentRange(responseInfo.headers().firstValue("Content-Range")));
+                }
+                return new DigestingSubscriber(HttpResponse.BodySubscribers.ofFile(partFile,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND), resumedDigest, feed);
+            }
+            if (status == 200) {
+                if (feed != null) {
+                    feed.reset();
+                    feed.expectLength(responseInfo.headers().firstValueAsLong("Content-Length"));
+                }
+                return new DigestingSubscriber(HttpResponse.BodySubscribers.ofFile(partFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), digest, feed);
+            }
+            return HttpResponse.BodySubscribers.replacing(null);
+        });
+        if (feed != null) {
+            sending.whenComplete((result, error) -> feed.end());
+            try {
+                feed.drain();
+            } catch (InterruptedException | RuntimeException e) {
+                sending.cancel(true);
+                throw e;
+            }
+        }
+        HttpResponse<Path> response = await(sending);
+
+        int status = response.statusCode();
+        if (status == 416 && offset > 0) {
+            // The part file does not fit the file on the server anymore
+            Files.delete(partFile);
+            return download(link, destination, sink);
+        }
+        if (status != 200 && !(status == 206 && offset > 0)) {
+            throw new IOException("The download failed with status " + status + ".");
+        }
+        checkLength(response, partFile);
+
+        String checksum = HexFormat.of().formatHex((status == 200 ? digest : resumedDigest).digest());
+        writeChecksum(destination, checksum);
+        move(partFile, destination);
+        return checksum;
+    }
+
+    /**
+     * Gets the checksum of a file: from its sidecar if the sidecar is at least as new as the file,
+     * otherwise by hashing the file, after which the sidecar is written for next time.
+     *
+     * @param file the file.
+     * @return the SHA-256 checksum of the file, as a hex string.
+     * @throws IOException if the file cannot be read.
+     */
+    public static String checksumOf(Path file) throws IOException {
+        Path checksumFile = checksumFileOf(file);
+        if (Files.exists(checksumFile)
+                && Files.getLastModifiedTime(checksumFile).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+            String checksum = Files.readString(checksumFile, StandardCharsets.US_ASCII).trim();
+            if (!checksum.isEmpty()) {
+                return checksum;
+            }
+        }
+        String checksum = HexFormat.of().formatHex(digestOf(file, NO_SINK).digest());
+        writeChecksum(file, checksum);
+        return checksum;
+    }
+
+    /**
+     * Gets the path of the part file a download to the given destination is streamed into.
+     *
+     * @param destination the destination of the download.
+     * @return the path of the part file.
+     */
+    public static Path partFileOf(Path destination) {
+        return destination.resolveSibling(destination.getFileName() + PART_SUFFIX);
+    }
+
+    /**
+     * Gets the path of the checksum sidecar of a file.
+     *
+     * @param file the file.
+     * @return the path of the sidecar.
+     */
+    public static Path checksumFileOf(Path file) {
+        return file.resolveSibling(file.getFileName() + CHECKSUM_SUFFIX);
+    }
+
+    /**
+     * Waits for a response, as {@link HttpClient#send} would.
+     *
+     * @param sending the response being received.
+     * @return the response.
+     * @throws IOException          if the request failed.
+     * @throws InterruptedException if the thread was interrupted while waiting; the request is cancelled.
+     */
+    private static HttpResponse<Path> await(CompletableFuture<HttpResponse<Path>> sending) throws IOException, InterruptedException {
+        try {
+            return sending.get();
+        } catch (InterruptedException e) {
+            sending.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("The download failed: " + cause, cause);
+        }
+    }
+
+    /**
+     * Checks that the part file has the length announced by the response, if the response announced one.
+     * A part file that is too short is kept, so the download can be resumed; one that is too long is deleted.
+     *
+     * @param response the response.
+     * @param partFile the part file.
+     * @throws IOException if the length does not match.
+     */
+    private static void checkLength(HttpResponse<Path> response, Path partFile) throws IOException {
+        OptionalLong expected = response.statusCode() == 206
+                ? totalOfContentRange(response.headers().firstValue("Content-Range"))
+                : response.headers().firstValueAsLong("Content-Length");
+        long actual = Files.size(partFile);
+        if (expected.isEmpty() || expected.getAsLong() == actual) {
+            return;
+        }
+        if (actual > expected.getAsLong()) {
+            Files.delete(partFile);
+        }
+        throw new IOException("The download is incomplete: " + actual + " of " + expected.getAsLong() + " bytes were received.");
+    }
+
+    /**
+     * Reads the total length from a Content-Range header such as "bytes 100-199/200".
+     *
+     * @param contentRange the header.
+     * @return the total length, or an empty OptionalLong if it is missing or unknown.
+     */
+    private static OptionalLong totalOfContentRange(Optional<String> contentRange) {
+        if (contentRange.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        int slash = contentRange.get().lastIndexOf('/');
+        try {
+            return slash < 0 ? OptionalLong.empty() : OptionalLong.of(Long.parseLong(contentRange.get().substring(slash + 1).trim()));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Writes the checksum sidecar of a file, replacing it atomically.
+     *
+     * @param file     the file.
+     * @param checksum the checksum of the file.
+     * @throws IOException if the sidecar cannot be written.
+     */
+    private static void writeChecksum(Path file, String checksum) throws IOException {
+        Path checksumFile = checksumFileOf(file);
+        Path temporary = partFileOf(checksumFile);
+        Files.writeString(temporary, checksum + System.lineSeparator(), StandardCharsets.US_ASCII);
+        move(temporary, checksumFile);
+    }
+
+    /**
+     * Moves a file over another, atomically if the file system supports it.
+     *
+     * @param source the file to move.
+     * @param target the path to move it to.
+     * @throws IOException if the file cannot be moved.
+     */
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Hashes the content of a file and passes it to a sink.
+     *
+     * @param file the file.
+     * @param sink sees the content of the file.
+     * @return the digest, updated with the content of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private static MessageDigest digestOf(Path file, ContentSink sink) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+                sink.accept(ByteBuffer.wrap(buffer, 0, read));
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return the digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform supports SHA-256", e);
+        }
+    }
+
+    /**
+     * Passes a body on to a file subscriber, and hashes every buffer and hands a copy of it to a {@link SinkFeed} on the way.
+     */
+    private static final class DigestingSubscriber implements HttpResponse.BodySubscriber<Path> {
+        private final HttpResponse.BodySubscriber<Path> file;
+        private final MessageDigest digest;
+        private final SinkFeed feed;
+
+        /**
+         * Creates a subscriber.
+         *
+         * @param file   the subscriber that writes the body to the file.
+         * @param digest the digest to update with the body.
+         * @param feed   hands the body to the sink, or null if there is no sink.
+         */
+        private DigestingSubscriber(HttpResponse.BodySubscriber<Path> file, MessageDigest digest, SinkFeed feed) {
+            this.file = file;
+            this.digest = digest;
+            this.feed = feed;
+        }
+
+        @Override
+        public CompletionStage<Path> getBody() {
+            return this.file.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.file.onSubscribe(this.feed == null ? subscription : this.feed.gate(subscription));
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                this.digest.update(item.duplicate());
+            }
+            if (this.feed != null) {
+                this.feed.accept(items);
+            }
+            this.file.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.file.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.file.onComplete();
+        }
+    }
+
+    /**
+     * Hands the body of a download over from the threads of the client to the thread that waits for the download,
+     * which passes it to the sink. The demand of the file subscriber is held back while
+     * {@value #MAX_QUEUED_BATCHES} batches are waiting, and passed on once the sink has taken one.
+     */
+    private static final class SinkFeed {
+        private static final ByteBuffer RESET = ByteBuffer.allocate(0);
+        private static final ByteBuffer LENGTH = ByteBuffer.allocate(0);
+
+        private final ContentSink sink;
+        private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        private Flow.Subscription subscription;
+        private int queuedBatches;
+        private long heldDemand;
+        private long length;
+        private boolean ended;
+
+        /**
+         * Creates a feed.
+         *
+         * @param sink the sink to pass the body to.
+         */
+        private SinkFeed(ContentSink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Wraps the subscription of the body, so that requests for more of it wait while the feed is full.
+         *
+         * @param subscription the subscription of the body.
+         * @return the subscription to give to the file subscriber.
+         */
+        private Flow.Subscription gate(Flow.Subscription subscription) {
+            synchronized (this) {
+                this.subscription = subscription;
+            }
+            return new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    boolean pass;
+                    synchronized (SinkFeed.this) {
+                        pass = SinkFeed.this.queuedBatches < MAX_QUEUED_BATCHES;
+                        if (!pass) {
+                            SinkFeed.this.heldDemand += n;
+                        }
+                    }
+                    if (pass) {
+                        subscription.request(n);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                }
+            };
+        }
+
+        /**
+         * Tells the sink to start over, after everything handed over before.
+         */
+        private synchronized void reset() {
+            this.queue.add(RESET);
+            notifyAll();
+        }
+
+        /**
+         * Tells the sink the length of the file, after everything handed over before.
+         *
+         * @param length the length announced by the response, or an empty OptionalLong if it announced none.
+         */
+        private synchronized void expectLength(OptionalLong length) {
+            if (length.isPresent()) {
+                this.length = length.getAsLong();
+                this.queue.add(LENGTH);
+                notifyAll();
+            }
+        }
+
+        /**
+         * Hands over a copy of the next buffers of the body.
+         *
+         * @param items the buffers, which the client may reuse once this method returns.
+         */
+        private void accept(List<ByteBuffer> items) {
+            int length = 0;
+            for (ByteBuffer item : items) {
+                length += item.remaining();
+            }
+            ByteBuffer copy = ByteBuffer.allocate(length);
+            for (ByteBuffer item : items) {
+                copy.put(item.duplicate());
+            }
+            copy.flip();
+            synchronized (this) {
+                this.queue.add(copy);
+                this.queuedBatches++;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Marks the end of the body, once the response is complete or has failed.
+         */
+        private synchronized void end() {
+            this.ended = true;
+            notifyAll();
+        }
+
+        /**
+         * Passes everything handed over to the sink until the end of the body, on the calling thread.
+         *
+         * @throws InterruptedException if the thread was interrupted while waiting for more of the body.
+         */
+        private void drain() throws InterruptedException {
+            while (true) {
+                ByteBuffer next;
+                long length;
+                long release = 0;
+                Flow.Subscription released;
+                synchronized (this) {
+                    while (this.queue.isEmpty() && !this.ended) {
+                        wait();
+                    }
+                    next = this.queue.poll();
+                    if (next == null) {
+                        return;
+                    }
+                    length = this.length;
+                    if (next != RESET && next != LENGTH) {
+                        this.queuedBatches--;
+                        release = this.heldDemand;
+                        this.heldDemand = 0;
+                    }
+                    released = this.subscription;
+                }
+                if (release > 0) {
+                    released.request(release);
+                }
+                if (next == RESET) {
+                    this.sink.reset();
+                } else if (next == LENGTH) {
+                    this.sink.expectLength(length);
+                } else {
+                    this.sink.accept(next);
+                }
+            }
+        }
+    }
+    /**
+     * Passes the content on to another sink and counts it, reporting the progress to a listener.
+     */
+    private static final class ProgressSink implements ContentSink {
+        private final ContentSink sink;
+        private final ProgressListener listener;
+        private long bytes;
+        private long total = -1;
+        private long reportedPercent = -1;
+
+        /**
+         * Creates a sink.
+         *
+         * @param sink     the sink to pass the content on to.
+         * @param listener is told how many bytes were seen.
+         */
+        private ProgressSink(ContentSink sink, ProgressListener listener) {
+            this.sink = sink;
+            this.listener = listener;
+        }
+
+        @Override
+        public void reset() {
+            this.sink.reset();
+            this.bytes = 0;
+            this.total = -1;
+            report(true);
+        }
+
+        @Override
+        public void accept(ByteBuffer bytes) {
+            this.sink.accept(bytes);
+            this.bytes += bytes.remaining();
+            report(false);
+        }
+
+        @Override
+        public void expectLength(long length) {
+            this.sink.expectLength(length);
+            this.total = length;
+            report(true);
+        }
+
+        /**
+         * Reports the progress if it is forced or another whole percent of a file of known length was seen.
+         *
+         * @param force whether to report even if the percentage did not change.
+         */
+        private void report(boolean force) {
+            long percent = this.total > 0 ? Math.min(this.bytes, this.total) * 100 / this.total : -1;
+            if (force || percent != this.reportedPercent) {
+                this.reportedPercent = percent;
+                this.listener.onProgress(this.bytes, this.total);
+            }
+        }
+    }
+}
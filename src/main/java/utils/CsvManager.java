@@ -1,10 +1,21 @@
 package utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
 import java.net.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import api.TradingApiCommunicator;
 import app.models.ActionType;
+import app.models.SubAction;
+import utils.csv.CsvRow;
+import utils.csv.MappedCsvReader;
+import utils.csv.StreamingCsvReader;
 import utils.parsers.*;
 
 /**
@@ -12,12 +23,91 @@ import utils.parsers.*;
  */
 public class CsvManager {
     private static final Path DOWNLOAD_LOCATION_PATH = Paths.get("src/main/java/", "data");
-    private static final HashMap<String, Parser<?>> PARSERS = new HashMap<String, Parser<?>>() {{
-        put("interest", InterestParser.getInstance());
-        put("transactions", TransactionsParser.getInstance());
-        put("orders", OrdersParser.getInstance());
-        put("dividends", DividendsParser.getInstance());
+    private static final int PARALLEL_MIN_CHUNK_BYTES = 1 << 20;
+    private static final int PROGRESS_INTERVAL_ROWS = 4096;
+    private static final CsvDownloader DOWNLOADER = new CsvDownloader(TradingApiCommunicator.getHttpClient());
+    private static final EnumMap<ActionType, Parser<?>> PARSERS = new EnumMap<ActionType, Parser<?>>(ActionType.class) {{
+        put(ActionType.INTEREST, InterestParser.getInstance());
+        put(ActionType.TRANSACTION, TransactionsParser.getInstance());
+        put(ActionType.ORDER, OrdersParser.getInstance());
+        put(ActionType.DIVIDEND, DividendsParser.getInstance());
     }};
+    private static final String SNAPSHOT_PROPERTY = "trading212.snapshots";
+    private static final long DEFAULT_REPORT_CACHE_BYTES = 256L << 20;
+    private static volatile ParseMode parseMode = ParseMode.SEQUENTIAL;
+    private static volatile boolean snapshotsEnabled = !"false".equals(System.getProperty(SNAPSHOT_PROPERTY));
+    private static final ParsedReportCache REPORT_CACHE = new ParsedReportCache(
+            Math.min(DEFAULT_REPORT_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 4));
+
+    /**
+     * Modes in which a CSV file can be parsed.
+     */
+    public enum ParseMode {
+        /** The whole file is parsed row by row on the calling thread. */
+        SEQUENTIAL,
+
+        /** The file is split into byte ranges that are parsed in the common ForkJoinPool and merged in file order. */
+        PARALLEL
+    }
+
+    /**
+     * Is told how far a parse has got, and can cancel it.
+     * In the parallel mode, the methods are called from several threads at once.
+     */
+    public interface ParseProgress {
+        /**
+         * Called as the rows of the file are parsed.
+         *
+         * @param parsedBytes The number of bytes of the file parsed so far.
+         * @param totalBytes  The size of the file in bytes.
+         */
+        void onProgress(long parsedBytes, long totalBytes);
+
+        /**
+         * Checks whether the parse should stop. It is checked every time progress is reported.
+         *
+         * @return true if the parse should stop with a {@link CancellationException}.
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Sets the mode used by {@link #parseCsvFile(String)}.
+     *
+     * @param mode The parse mode to use from now on.
+     */
+    public static void setParseMode(ParseMode mode) {
+        parseMode = Objects.requireNonNull(mode);
+    }
+
+    /**
+     * Gets the mode used by {@link #parseCsvFile(String)}.
+     *
+     * @return The current parse mode.
+     */
+    public static ParseMode getParseMode() {
+        return parseMode;
+    }
+
+    /**
+     * Enables or disables the snapshots of parsed files. While they are enabled, the data of every parsed
+     * file is saved in a {@link ReportSnapshot} next to it, and parsing the unchanged file again reads the
+     * snapshot instead. They are enabled unless the {@value #SNAPSHOT_PROPERTY} system property is "false".
+     *
+     * @param enabled Whether snapshots are written and read.
+     */
+    public static void setSnapshotsEnabled(boolean enabled) {
+        snapshotsEnabled = enabled;
+    }
+
+    /**
+     * Checks whether the snapshots of parsed files are written and read.
+     *
+     * @return true if snapshots are enabled.
+     */
+    public static boolean isSnapshotsEnabled() {
+        return snapshotsEnabled;
+    }
 
     /**
      * Gets the file path for the specified file ID.
@@ -30,57 +120,136 @@ public class CsvManager {
     }
 
     /**
-     * Parses the header of the CSV file and returns a mapping of header names to their corresponding indices.
+     * Sets the row decoder of the file being parsed for a set of parsers.
      *
-     * @param scanner The scanner used to read the CSV file.
-     * @return A dictionary mapping header names to their indices.
+     * @param parsers The parsers.
+     * @param decoder The decoder resolved from the header of the file.
      */
-    private static Dictionary<String, Integer> parseCsvHeader(Scanner scanner) {
-        String headerLine = scanner.nextLine();
-        String[] splitHeader = headerLine.split(",");
-        Dictionary<String, Integer> headerWordByIndex = new Hashtable<String, Integer>();
-
-        for (int i = 0; i < splitHeader.length; i++) {
-            headerWordByIndex.put(splitHeader[i], i);
+    private static void setRowDecoderForParsers(EnumMap<ActionType, Parser<?>> parsers, RowDecoder decoder) {
+        for (Parser<?> parser : parsers.values()) {
+            parser.setRowDecoder(decoder);
         }
+    }
 
-        return headerWordByIndex;
+    /**
+     * Downloads a CSV file from the specified link and saves it with the given file ID.
+     * The file is downloaded with the shared HTTP client by a {@link CsvDownloader}, so it only appears
+     * under its ID once it is complete, and an interrupted download is resumed by the next attempt.
+     *
+     * @param downloadLink The URL from which to download the CSV file.
+     * @param fileId      The ID to be used for naming the downloaded file.
+     * @return The SHA-256 checksum of the downloaded file.
+     * @throws Exception if an error occurs during the download.
+     */
+    public static String downloadCsvFile(String downloadLink, String fileId) throws Exception {
+        return downloadCsvFile(downloadLink, fileId, null);
     }
 
     /**
-     * Sets the header map for all parsers based on the provided header map.
+     * Downloads a CSV file as {@link #downloadCsvFile(String, String)} does, and reports how far the download is.
      *
-     * @param headerMap The dictionary mapping header names to their indices.
+     * @param downloadLink The URL from which to download the CSV file.
+     * @param fileId      The ID to be used for naming the downloaded file.
+     * @param progress    Is told how many bytes of the file were received, or null.
+     * @return The SHA-256 checksum of the downloaded file.
+     * @throws Exception if an error occurs during the download.
      */
-    private static void setHeaderMapForParsers(Dictionary<String, Integer> headerMap) {
-        for (Parser<?> parser : PARSERS.values()) {
-            parser.setHeaderMap(headerMap);
+    public static String downloadCsvFile(String downloadLink, String fileId, CsvDownloader.ProgressListener progress)
+            throws Exception {
+        try {
+            if (!Files.exists(DOWNLOAD_LOCATION_PATH)) {
+                Files.createDirectories(DOWNLOAD_LOCATION_PATH);
+            }
+            String checksum = progress == null
+                    ? DOWNLOADER.download(new URI(downloadLink), getFilePath(fileId))
+                    : DOWNLOADER.download(new URI(downloadLink), getFilePath(fileId), CsvDownloader.withProgress(progress));
+            System.out.println("Downloaded CSV file successfully.");
+            return checksum;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
         }
     }
 
     /**
-     * Downloads a CSV file from the specified link and saves it with the given file ID.
+     * Downloads a CSV file and parses it while its bytes come in, as well as writing them to disk, so the
+     * data is ready as soon as the download ends. The data is cached as for {@link #preparseCsvFile(String)},
+     * so a later {@link #loadReport(String)} of the file does not read it again. If the file cannot be
+     * parsed, the download still completes, and the error surfaces when the file is parsed.
      *
      * @param downloadLink The URL from which to download the CSV file.
-     * @param fileId      The ID to be used for naming the downloaded file.
+     * @param fileId       The ID to be used for naming the downloaded file.
+     * @return The SHA-256 checksum of the downloaded file.
      * @throws Exception if an error occurs during the download.
      */
-    public static void downloadCsvFile(String downloadLink, String fileId) throws Exception {
+    public static String downloadAndParseCsvFile(String downloadLink, String fileId) throws Exception {
+        return downloadAndParseCsvFile(downloadLink, fileId, null);
+    }
+
+    /**
+     * Downloads and parses a CSV file as {@link #downloadAndParseCsvFile(String, String)} does, and reports how far
+     * the download is.
+     *
+     * @param downloadLink The URL from which to download the CSV file.
+     * @param fileId       The ID to be used for naming the downloaded file.
+     * @param progress     Is told how many bytes of the file were received, or null.
+     * @return The SHA-256 checksum of the downloaded file.
+     * @throws Exception if an error occurs during the download.
+     */
+    public static String downloadAndParseCsvFile(String downloadLink, String fileId, CsvDownloader.ProgressListener progress)
+            throws Exception {
         try {
             if (!Files.exists(DOWNLOAD_LOCATION_PATH)) {
                 Files.createDirectories(DOWNLOAD_LOCATION_PATH);
             }
-            Path destination = getFilePath(fileId);
-            URL url = new URI(downloadLink).toURL();
-            Files.copy(url.openStream(), destination);
+            StreamingParse parse = new StreamingParse();
+            CsvDownloader.ContentSink sink = progress == null ? parse : CsvDownloader.withProgress(parse, progress);
+            String checksum = DOWNLOADER.download(new URI(downloadLink), getFilePath(fileId), sink);
+            parse.finish();
+            if (parse.isComplete()) {
+                REPORT_CACHE.put(new ParsedReport(fileId, checksum, parse.parsers));
+                saveSnapshot(fileId, checksum, parse.parsers);
+            }
             System.out.println("Downloaded CSV file successfully.");
+            return checksum;
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
+
+    /**
+     * Checks whether the parsed data of a file is cached, for example from pre-parsing it or parsing it during
+     * its download.
+     *
+     * @param fileId The ID of the file.
+     * @return true if the file does not have to be read again when it is parsed, as long as it is unchanged.
+     */
+    public static boolean isPreparsed(String fileId) {
+        return REPORT_CACHE.contains(fileId, null);
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters and the size of the cache of parsed reports.
+     *
+     * @return The current stats of the cache.
+     */
+    public static ParsedReportCache.Stats getReportCacheStats() {
+        return REPORT_CACHE.getStats();
+    }
+
+    /**
+     * Gets the SHA-256 checksum of a downloaded CSV file, which identifies its content.
+     *
+     * @param fileId The ID of the file.
+     * @return The checksum, as a hex string.
+     * @throws IOException if the file cannot be read.
+     */
+    public static String getChecksum(String fileId) throws IOException {
+        return CsvDownloader.checksumOf(getFilePath(fileId));
+    }
     
     /**
      * Checks if a file has been downloaded with the specified file ID.
+     * Downloads in progress are kept in a part file, so only complete files count.
      *
      * @param fileId The ID of the file to check.
      * @return true if the file exists, false otherwise.
@@ -91,33 +260,328 @@ public class CsvManager {
     }
 
     /**
-     * Parses the specified CSV file and extracts its contents.
+     * Parses the specified CSV file in the background into a {@link ParsedReport} and caches it, so that
+     * showing the unchanged file later does not have to read it again. The shared parsers are not touched,
+     * so this may run while another file is shown. A file that is already cached is not parsed again.
+     *
+     * @param fileId The ID of the file to parse.
+     * @throws IOException if an error occurs while reading the file, or if its header lacks a required column.
+     */
+    public static void preparseCsvFile(String fileId) throws IOException {
+        String checksum = getChecksum(fileId);
+        if (!REPORT_CACHE.contains(fileId, checksum)) {
+            REPORT_CACHE.put(parseReport(fileId, checksum, ParseMode.SEQUENTIAL, ProgressCounter.NONE));
+        }
+    }
+
+    /**
+     * Gets the parsed data of the specified CSV file, using the current parse mode.
+     *
+     * @param fileId The ID of the file.
+     * @return The parsed report.
+     * @throws IOException if an error occurs while reading the file, or if its header lacks a required column.
+     * @see #loadReport(String, ParseMode)
+     */
+    public static ParsedReport loadReport(String fileId) throws IOException {
+        return loadReport(fileId, parseMode);
+    }
+
+    /**
+     * Gets the parsed data of the specified CSV file: from the cache of recently used reports if it holds the
+     * unchanged file, otherwise from the snapshot of the file or by parsing it, after which it is cached.
+     * The shared parsers are not touched.
+     *
+     * @param fileId The ID of the file.
+     * @param mode   Whether to parse the file on the calling thread or in parallel, if it has to be parsed.
+     * @return The parsed report.
+     * @throws IOException if an error occurs while reading the file, or if its header lacks a required column.
+     */
+    public static ParsedReport loadReport(String fileId, ParseMode mode) throws IOException {
+        return loadReport(fileId, mode, null);
+    }
+
+    /**
+     * Gets the parsed data of the specified CSV file as {@link #loadReport(String, ParseMode)} does, reporting
+     * the progress of the parse by the bytes of the file consumed. A cancelled parse leaves nothing behind.
+     *
+     * @param fileId   The ID of the file.
+     * @param mode     Whether to parse the file on the calling thread or in parallel, if it has to be parsed.
+     * @param progress Is told the progress of the parse and can cancel it, or null.
+     * @return The parsed report.
+     * @throws IOException if an error occurs while reading the file, or if its header lacks a required column.
+     * @throws CancellationException if the progress cancelled the parse.
+     */
+    public static ParsedReport loadReport(String fileId, ParseMode mode, ParseProgress progress) throws IOException {
+        ProgressCounter counter = progress == null ? ProgressCounter.NONE
+                : new ProgressCounter(progress, Files.size(getFilePath(fileId)));
+        counter.advance(0);
+        String checksum = getChecksum(fileId);
+        ParsedReport report = REPORT_CACHE.get(fileId, checksum);
+        if (report == null) {
+            report = parseReport(fileId, checksum, mode, counter);
+            REPORT_CACHE.put(report);
+        }
+        counter.complete();
+        return report;
+    }
+
+    /**
+     * Reads a CSV file into a new report, from its snapshot if it has an up-to-date one, otherwise by parsing
+     * it, after which its snapshot is written.
+     *
+     * @param fileId   The ID of the file.
+     * @param checksum The checksum of the file.
+     * @param mode     Whether to parse the file on the calling thread or in parallel.
+     * @param counter  Counts the bytes parsed.
+     * @return The parsed report.
+     * @throws IOException if an error occurs while reading the file, or if its header lacks a required column.
+     */
+    private static ParsedReport parseReport(String fileId, String checksum, ParseMode mode, ProgressCounter counter) throws IOException {
+        EnumMap<ActionType, Parser<?>> parsers = createEmptyParsers(null);
+        if (!loadSnapshot(fileId, checksum, parsers)) {
+            parseInto(fileId, mode, parsers, counter);
+            saveSnapshot(fileId, checksum, parsers);
+        }
+        return new ParsedReport(fileId, checksum, parsers);
+    }
+
+    /**
+     * Creates a set of empty parsers for a file, separate from the shared parsers.
+     *
+     * @param decoder The row decoder of the file, or null if it is set later or the parsers are filled from a snapshot.
+     * @return The parsers, keyed by the action type they handle.
+     */
+    private static EnumMap<ActionType, Parser<?>> createEmptyParsers(RowDecoder decoder) {
+        EnumMap<ActionType, Parser<?>> parsers = new EnumMap<>(ActionType.class);
+        PARSERS.forEach((actionType, parser) -> {
+            Parser<?> empty = parser.createEmpty();
+            empty.setRowDecoder(decoder);
+            parsers.put(actionType, empty);
+        });
+        return parsers;
+    }
+
+    /**
+     * Parses the specified CSV file and extracts its contents, using the current parse mode.
      *
      * @param fileId The ID of the file to parse.
      * @throws IOException if an error occurs while reading the file.
+     * @see #setParseMode(ParseMode)
      */
     public static void parseCsvFile(String fileId) throws IOException {
+        parseCsvFile(fileId, parseMode);
+    }
+
+    /**
+     * Parses the specified CSV file and extracts its contents.
+     * The file is memory-mapped and every row is tokenized once; the same row view is used to
+     * classify the row and is then handed, together with its sub-action, to the parser for its action type. Both modes leave the parsers
+     * with exactly the same data. A file whose report is cached is copied from the cache instead, and a file
+     * with an up-to-date snapshot is read from it; after a parse, the snapshot of the file is written.
+     *
+     * @param fileId The ID of the file to parse.
+     * @param mode   Whether to parse the file on the calling thread or in parallel.
+     * @throws IOException if an error occurs while reading the file, or if its header lacks a required column.
+     */
+    public static void parseCsvFile(String fileId, ParseMode mode) throws IOException {
         clearDataInParsers();
+        ParsedReport cached = REPORT_CACHE.contains(fileId, null) ? REPORT_CACHE.get(fileId, getChecksum(fileId)) : null;
+        if (cached != null) {
+            cached.mergeInto(PARSERS);
+            return;
+        }
+        if (loadSnapshot(fileId, null, PARSERS)) {
+            return;
+        }
+        parseInto(fileId, mode, PARSERS, ProgressCounter.NONE);
+        if (snapshotsEnabled) {
+            saveSnapshot(fileId, getChecksum(fileId), PARSERS);
+        }
+    }
+
+    /**
+     * Parses a CSV file into empty parsers.
+     *
+     * @param fileId  The ID of the file to parse.
+     * @param mode    Whether to parse the file on the calling thread or in parallel.
+     * @param parsers The empty parsers to fill, keyed by the action type they handle.
+     * @param counter Counts the bytes parsed.
+     * @throws IOException if an error occurs while reading the file, or if its header lacks a required column.
+     */
+    private static void parseInto(String fileId, ParseMode mode, EnumMap<ActionType, Parser<?>> parsers,
+                                  ProgressCounter counter) throws IOException {
+        try (MappedCsvReader reader = MappedCsvReader.open(getFilePath(fileId))) {
+            CsvRow headerRow = reader.nextRow();
+            if (headerRow == null) {
+                throw new IOException("The CSV file " + fileId + " is empty.");
+            }
+            RowDecoder decoder;
+            try {
+                decoder = RowDecoder.forHeader(headerRow);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("The CSV file " + fileId + " cannot be parsed: " + e.getMessage(), e);
+            }
+            setRowDecoderForParsers(parsers, decoder);
+            int actionIndex = decoder.getActionIndex();
+            counter.advance(reader.getPosition());
+
+            if (mode == ParseMode.SEQUENTIAL) {
+                parseRows(reader, actionIndex, parsers, counter);
+            } else if (!parseRowsInParallel(reader, actionIndex, parsers, counter)) {
+                counter.reset();
+                parseInto(fileId, ParseMode.SEQUENTIAL, parsers, counter);
+            }
+        }
+    }
+
+    /**
+     * Fills empty parsers from the snapshot of a file, if snapshots are enabled and the file has an
+     * up-to-date one. A damaged snapshot is deleted and the parsers are cleared again.
+     *
+     * @param fileId   The ID of the file.
+     * @param checksum The checksum of the file, or null to get it only if there is a snapshot.
+     * @param parsers  The empty parsers to fill, keyed by the action type they handle.
+     * @return true if the parsers now hold the data of the file, false if it has to be parsed.
+     * @throws CancellationException if the thread was interrupted while the snapshot was read.
+     */
+    private static boolean loadSnapshot(String fileId, String checksum, EnumMap<ActionType, Parser<?>> parsers) {
         Path destination = getFilePath(fileId);
-        Scanner scanner = new Scanner(destination);
-        Dictionary<String, Integer> headerMap = parseCsvHeader(scanner);
-        setHeaderMapForParsers(headerMap);
+        if (!snapshotsEnabled || !Files.exists(ReportSnapshot.snapshotFileOf(destination))) {
+            return false;
+        }
+        try {
+            String currentChecksum = checksum != null ? checksum : getChecksum(fileId);
+            return ReportSnapshot.read(destination, ReportSnapshot.Key.of(destination, currentChecksum), parsers);
+        } catch (ClosedByInterruptException e) {
+            // The thread was interrupted, for example by cancelling its task; the snapshot itself is fine
+            for (Parser<?> parser : parsers.values()) {
+                parser.clearData();
+            }
+            throw new CancellationException("The snapshot could not be read because the thread was interrupted.");
+        } catch (IOException e) {
+            e.printStackTrace();
+            for (Parser<?> parser : parsers.values()) {
+                parser.clearData();
+            }
+            try {
+                Files.deleteIfExists(ReportSnapshot.snapshotFileOf(destination));
+            } catch (IOException deleteFailure) {
+                // The snapshot is replaced the next time the file is parsed
+            }
+            return false;
+        }
+    }
 
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            String[] splitLine = line.split(",");
-            String actionTypeString = splitLine[headerMap.get("Action")];
-            ActionType actionType = ActionType.fromString(actionTypeString);
+    /**
+     * Saves the snapshot of a parsed file, if snapshots are enabled. A snapshot that cannot be written is
+     * skipped, since the file can always be parsed again.
+     *
+     * @param fileId   The ID of the file.
+     * @param checksum The checksum of the file the parsers were filled from.
+     * @param parsers  The parsers holding the data of the file.
+     */
+    private static void saveSnapshot(String fileId, String checksum, EnumMap<ActionType, Parser<?>> parsers) {
+        if (!snapshotsEnabled) {
+            return;
+        }
+        Path destination = getFilePath(fileId);
+        try {
+            ReportSnapshot.write(destination, ReportSnapshot.Key.of(destination, checksum), parsers);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-            switch (actionType) {
-                case INTEREST -> PARSERS.get("interest").parse(line);
-                case TRANSACTION -> PARSERS.get("transactions").parse(line);
-                case ORDER -> PARSERS.get("orders").parse(line);
-                case DIVIDEND -> PARSERS.get("dividends").parse(line);
-                default -> throw new IllegalArgumentException("Invalid action type found in csv.");
+    /**
+     * Parses all remaining rows of a reader, handing each row to the parser for its action type.
+     * The Action field is classified by an {@link ActionClassifier} that remembers every distinct value,
+     * so the keywords of a value are only searched the first time the value is seen.
+     *
+     * @param reader      The reader to take the rows from.
+     * @param actionIndex The index of the Action column.
+     * @param parsers     The parsers to use, keyed by the action type they handle.
+     * @param counter     Counts the bytes parsed, every few thousand rows.
+     * @throws IllegalArgumentException if a row has an Action that matches no action type.
+     * @throws CancellationException if the parse was cancelled.
+     */
+    private static void parseRows(MappedCsvReader reader, int actionIndex, EnumMap<ActionType, Parser<?>> parsers,
+                                  ProgressCounter counter) {
+        ActionClassifier classifier = new ActionClassifier();
+        long reported = reader.getPosition();
+        int rowsSinceReport = 0;
+        CsvRow row;
+        while ((row = reader.nextRow()) != null) {
+            SubAction subAction = classifier.classify(row, actionIndex);
+            parsers.get(subAction.getActionType()).parse(row, subAction);
+            if (++rowsSinceReport == PROGRESS_INTERVAL_ROWS) {
+                rowsSinceReport = 0;
+                long position = reader.getPosition();
+                counter.advance(position - reported);
+                reported = position;
+            }
+        }
+        counter.advance(reader.getPosition() - reported);
+    }
+
+    /**
+     * Parses the remaining rows of a reader in parallel and merges the results into the given parsers.
+     * Every byte range is parsed by its own set of empty parsers; the partial results are merged in file
+     * order, so row numbering and totals match a sequential parse.
+     *
+     * @param reader      The reader positioned after the header row.
+     * @param actionIndex The index of the Action column.
+     * @param parsers     The parsers to merge the results into, keyed by the action type they handle.
+     * @param counter     Counts the bytes parsed by all ranges together.
+     * @return false if a range boundary turned out to fall inside a row, in which case nothing was merged
+     *         and the file has to be parsed sequentially; true otherwise.
+     * @throws RuntimeException if a range that starts at a verified row boundary fails to parse; a range whose
+     *         start cannot be verified only makes the method return false.
+     */
+    private static boolean parseRowsInParallel(MappedCsvReader reader, int actionIndex, EnumMap<ActionType, Parser<?>> parsers,
+                                               ProgressCounter counter) {
+        List<MappedCsvReader> chunks = reader.split(ForkJoinPool.getCommonPoolParallelism(), PARALLEL_MIN_CHUNK_BYTES);
+        if (chunks.size() == 1) {
+            parseRows(chunks.get(0), actionIndex, parsers, counter);
+            return true;
+        }
+
+        List<ForkJoinTask<EnumMap<ActionType, Parser<?>>>> tasks = new ArrayList<>();
+        for (MappedCsvReader chunk : chunks) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                EnumMap<ActionType, Parser<?>> chunkParsers = new EnumMap<>(ActionType.class);
+                parsers.forEach((actionType, parser) -> chunkParsers.put(actionType, parser.createEmpty()));
+                parseRows(chunk, actionIndex, chunkParsers, counter);
+                return chunkParsers;
+            }));
+        }
+        List<EnumMap<ActionType, Parser<?>>> results = new ArrayList<>();
+        RuntimeException[] failures = new RuntimeException[chunks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                results.add(tasks.get(i).join());
+            } catch (CancellationException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                results.add(null);
+                failures[i] = e;
+            }
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            boolean startVerified = i == 0
+                    || (failures[i - 1] == null && chunks.get(i - 1).getPosition() == chunks.get(i).getStart());
+            if (!startVerified) {
+                return false;
+            }
+            if (failures[i] != null) {
+                // The range starts at a real row, so the sequential parse would fail on the same row
+                throw failures[i];
             }
         }
-        scanner.close();
+        for (EnumMap<ActionType, Parser<?>> chunkParsers : results) {
+            parsers.forEach((actionType, parser) -> parser.merge(chunkParsers.get(actionType)));
+        }
+        return true;
     }
 
     /**
@@ -128,4 +592,133 @@ public class CsvManager {
             parser.clearData();
         }
     }
+
+    /**
+     * Adds up the bytes parsed, possibly by several threads, reports them to a {@link ParseProgress},
+     * and stops the parse once it is cancelled.
+     */
+    private static final class ProgressCounter {
+        /** A counter that neither reports nor cancels. */
+        private static final ProgressCounter NONE = new ProgressCounter(null, 0);
+
+        private final ParseProgress progress;
+        private final long totalBytes;
+        private final AtomicLong parsedBytes = new AtomicLong();
+
+        /**
+         * Creates a counter.
+         *
+         * @param progress   Is told the progress, or null to count nothing.
+         * @param totalBytes The size of the file.
+         */
+        private ProgressCounter(ParseProgress progress, long totalBytes) {
+            this.progress = progress;
+            this.totalBytes = totalBytes;
+        }
+
+        /**
+         * Adds parsed bytes and reports the new total.
+         *
+         * @param bytes The number of bytes parsed since the last call.
+         * @throws CancellationException if the parse was cancelled.
+         */
+        private void advance(long bytes) {
+            if (this.progress == null) {
+                return;
+            }
+            if (this.progress.isCancelled()) {
+                throw new CancellationException("The parse was cancelled.");
+            }
+            this.progress.onProgress(this.parsedBytes.addAndGet(bytes), this.totalBytes);
+        }
+
+        /**
+         * Reports the whole file as parsed, for example once it was read from its snapshot instead.
+         */
+        private void complete() {
+            if (this.progress != null) {
+                this.progress.onProgress(this.totalBytes, this.totalBytes);
+            }
+        }
+
+        /**
+         * Starts counting from zero again, for when the file is parsed again from its beginning.
+         */
+        private void reset() {
+            this.parsedBytes.set(0);
+        }
+    }
+
+    /**
+     * Parses the content of a download as it arrives, into parsers of its own. The first row is the header;
+     * every later row is classified and handed to the parser for its action type, as in a sequential parse.
+     * A failure stops the parsing but not the download.
+     */
+    private static final class StreamingParse implements CsvDownloader.ContentSink {
+        private final StreamingCsvReader reader = new StreamingCsvReader();
+        private ActionClassifier classifier;
+        private RowDecoder decoder;
+        private EnumMap<ActionType, Parser<?>> parsers;
+        private boolean failed;
+
+        @Override
+        public void reset() {
+            this.reader.reset();
+            this.classifier = new ActionClassifier();
+            this.decoder = null;
+            this.parsers = null;
+            this.failed = false;
+        }
+
+        @Override
+        public void accept(ByteBuffer bytes) {
+            if (this.failed) {
+                return;
+            }
+            try {
+                this.reader.feed(bytes, this::parseRow);
+            } catch (RuntimeException e) {
+                this.failed = true;
+            }
+        }
+
+        /**
+         * Parses the last row, once the whole content has arrived.
+         */
+        private void finish() {
+            if (this.failed) {
+                return;
+            }
+            try {
+                this.reader.finish(this::parseRow);
+            } catch (RuntimeException e) {
+                this.failed = true;
+            }
+        }
+
+        /**
+         * Checks whether the whole content was parsed.
+         *
+         * @return true if the content had a valid header and every row could be parsed.
+         */
+        private boolean isComplete() {
+            return !this.failed && this.parsers != null;
+        }
+
+        /**
+         * Parses one row: the header if none was read yet, otherwise a data row.
+         *
+         * @param row The row.
+         * @throws IllegalArgumentException if the header lacks a required column, or the row has an unknown Action.
+         */
+        private void parseRow(CsvRow row) {
+            if (this.parsers == null) {
+                this.decoder = RowDecoder.forHeader(row);
+                this.parsers = createEmptyParsers(this.decoder);
+                return;
+            }
+            SubAction subAction = this.classifier.classify(row, this.decoder.getActionIndex());
+            this.parsers.get(subAction.getActionType()).parse(row, subAction);
+        }
+    }
 }
@@ -0,0 +1,423 @@
+package utils;
+
+import app.models.DocumentsListItem;
+import app.models.Status;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Downloads finished reports in the background, a few at a time.
+ *
+ * <p>Reports are queued either explicitly with {@link #enqueue(DocumentsListItem)}, for example when the user
+ * clicks Download, or automatically with {@link #offer(DocumentsListItem)} once automatic downloads are
+ * enabled, which queues a report only if it is finished and its file is not downloaded yet. At most the
+ * given number of downloads run at the same time. A failed download is retried with exponential backoff,
+ * and a report whose attempts ran out is queued again by a later offer. After a download, the file is
+ * optionally pre-parsed, so that showing it does not have to read it again.</p>
+ *
+ * <p>While a file downloads, the downloader reports how many of its bytes were received, and the queue passes
+ * that on to the listener and keeps it for {@link #getProgressPercent(int)}.</p>
+ *
+ * <p>The queue is thread-safe. The listener is called on the download threads.</p>
+ */
+public class DownloadQueue {
+    private static final int DEFAULT_CONCURRENCY = 2;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final Duration DEFAULT_BASE_BACKOFF = Duration.ofSeconds(2);
+    private static final String PREPARSE_PROPERTY = "trading212.preparse";
+
+    private static DownloadQueue instance = null;
+
+    private final Downloader downloader;
+    private final Predicate<String> isDownloaded;
+    private final FileAction preparser;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<Integer, Download> downloads = new HashMap<>();
+    private volatile boolean autoDownloadEnabled;
+    private volatile boolean preparseEnabled;
+    private volatile Listener listener = (document, state) -> {};
+
+    /**
+     * States of a report in the queue.
+     */
+    public enum State {
+        /** The report waits for a free download slot or for its next attempt. */
+        QUEUED,
+
+        /** The file of the report is being downloaded. */
+        DOWNLOADING,
+
+        /** The file was downloaded and is being pre-parsed. */
+        PARSING,
+
+        /** The file was downloaded, and pre-parsed if that is enabled. */
+        DONE,
+
+        /** All attempts to download the file failed. */
+        FAILED
+    }
+
+    /**
+     * Does something with the file of a report.
+     */
+    @FunctionalInterface
+    public interface FileAction {
+        /**
+         * Does the action.
+         *
+         * @param document the report.
+         * @throws Exception if the action failed.
+         */
+        void apply(DocumentsListItem document) throws Exception;
+    }
+
+    /**
+     * Downloads the file of a report.
+     */
+    @FunctionalInterface
+    public interface Downloader {
+        /**
+         * Downloads the file.
+         *
+         * @param document the report.
+         * @param progress is told how many bytes of the file were received.
+         * @throws Exception if the download failed.
+         */
+        void download(DocumentsListItem document, CsvDownloader.ProgressListener progress) throws Exception;
+    }
+
+    /**
+     * Is told about the progress of the downloads.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called when a report enters a new state.
+         *
+         * @param document the report.
+         * @param state    the new state.
+         */
+        void onStateChanged(DocumentsListItem document, State state);
+
+        /**
+         * Called when more of the file of a report was received. The default ignores it.
+         *
+         * @param document the report.
+         * @param bytes    the number of bytes received so far.
+         * @param total    the length of the file, or -1 if it is not known.
+         */
+        default void onProgress(DocumentsListItem document, long bytes, long total) {
+        }
+    }
+
+    /**
+     * Creates a queue.
+     *
+     * @param downloader   downloads the file of a report.
+     * @param isDownloaded checks whether the file with the given ID is already downloaded.
+     * @param preparser    pre-parses the downloaded file of a report.
+     * @param concurrency  the number of downloads that may run at the same time.
+     * @param maxAttempts  the number of times a download is attempted at most.
+     * @param baseBackoff  the delay before the first retry; it doubles with every further retry.
+     */
+    public DownloadQueue(Downloader downloader, Predicate<String> isDownloaded, FileAction preparser,
+                         int concurrency, int maxAttempts, Duration baseBackoff) {
+        if (concurrency < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("The queue needs at least one download slot and one attempt");
+        }
+        this.downloader = downloader;
+        this.isDownloaded = isDownloaded;
+        this.preparser = preparser;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "csv-download-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Retrieves the singleton instance of the queue, which downloads and pre-parses with the {@link CsvManager}.
+     * Pre-parsing is enabled unless the {@value #PREPARSE_PROPERTY} system property is "false"; while it is,
+     * files are parsed during their download, and only read again if that failed.
+     *
+     * @return the singleton instance of the queue.
+     */
+    public static synchronized DownloadQueue getInstance() {
+        if (instance == null) {
+            instance = new DownloadQueue(
+                    (document, progress) -> {
+                        if (instance.preparseEnabled) {
+                            CsvManager.downloadAndParseCsvFile(document.getDownloadLink(), fileIdOf(document), progress);
+                        } else {
+                            CsvManager.downloadCsvFile(document.getDownloadLink(), fileIdOf(document), progress);
+                        }
+                    },
+                    CsvManager::isFileDownloaded,
+                    document -> {
+                        if (!CsvManager.isPreparsed(fileIdOf(document))) {
+                            CsvManager.preparseCsvFile(fileIdOf(document));
+                        }
+                    },
+                    DEFAULT_CONCURRENCY, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF);
+            instance.setPreparseEnabled(!"false".equals(System.getProperty(PREPARSE_PROPERTY)));
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the ID under which the file of a report is stored.
+     *
+     * @param document the report.
+     * @return the file ID.
+     */
+    public static String fileIdOf(DocumentsListItem document) {
+        return Integer.toString(document.getReportId());
+    }
+
+    /**
+     * Enables or disables the automatic download of finished reports by {@link #offer(DocumentsListItem)}.
+     * Downloads already queued are not affected.
+     *
+     * @param enabled whether finished reports are downloaded automatically.
+     */
+    public void setAutoDownloadEnabled(boolean enabled) {
+        this.autoDownloadEnabled = enabled;
+    }
+
+    /**
+     * Checks whether finished reports are downloaded automatically.
+     *
+     * @return true if automatic downloads are enabled.
+     */
+    public boolean isAutoDownloadEnabled() {
+        return this.autoDownloadEnabled;
+    }
+
+    /**
+     * Enables or disables pre-parsing files after they are downloaded.
+     *
+     * @param enabled whether downloaded files are pre-parsed.
+     */
+    public void setPreparseEnabled(boolean enabled) {
+        this.preparseEnabled = enabled;
+    }
+
+    /**
+     * Sets the listener that is told about the progress of the downloads, replacing the previous one.
+     *
+     * @param listener the listener.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a report for download if automatic downloads are enabled, the report is finished, and its
+     * file is neither downloaded nor already queued.
+     *
+     * @param document the report.
+     * @return true if the report was queued.
+     */
+    public boolean offer(DocumentsListItem document) {
+        if (!this.autoDownloadEnabled || document.getStatus() != Status.FINISHED || document.getDownloadLink() == null
+                || this.isDownloaded.test(fileIdOf(document))) {
+            return false;
+        }
+        synchronized (this) {
+            Download download = this.downloads.get(document.getReportId());
+            if (download != null && !download.future.isDone()) {
+                return false;
+            }
+        }
+        enqueue(document);
+        return true;
+    }
+
+    /**
+     * Offers every report of a list, as for {@link #offer(DocumentsListItem)}.
+     *
+     * @param documents the reports.
+     * @return the number of reports that were queued.
+     */
+    public int offerAll(List<DocumentsListItem> documents) {
+        int queued = 0;
+        for (DocumentsListItem document : documents) {
+            if (offer(document)) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Queues a report for download, unless it is already queued or downloading.
+     *
+     * @param document the report, which must have a download link.
+     * @return a CompletableFuture that completes once the file is downloaded, and pre-parsed if that is
+     *         enabled, or exceptionally with the failure of the last attempt.
+     */
+    public CompletableFuture<Void> enqueue(DocumentsListItem document) {
+        Download download;
+        synchronized (this) {
+            download = this.downloads.get(document.getReportId());
+            if (download != null && !download.future.isDone()) {
+                return download.future.copy();
+            }
+            download = new Download(document);
+            this.downloads.put(document.getReportId(), download);
+        }
+        setState(download, State.QUEUED);
+        Download started = download;
+        this.executor.execute(() -> attempt(started));
+        return download.future.copy();
+    }
+
+    /**
+     * Gets the state of a report in the queue.
+     *
+     * @param reportId the ID of the report.
+     * @return the state, or null if the report was never queued.
+     */
+    public synchronized State getState(int reportId) {
+        Download download = this.downloads.get(reportId);
+        return download == null ? null : download.state;
+    }
+
+    /**
+     * Gets how far the download of a report is.
+     *
+     * @param reportId the ID of the report.
+     * @return the percentage of the file received by the current or last attempt, or -1 if the report is not
+     *         downloading or the length of its file is not known.
+     */
+    public synchronized int getProgressPercent(int reportId) {
+        Download download = this.downloads.get(reportId);
+        if (download == null || download.state != State.DOWNLOADING || download.total <= 0) {
+            return -1;
+        }
+        return (int) (Math.min(download.bytes, download.total) * 100 / download.total);
+    }
+
+    /**
+     * Gets the number of reports that are queued or downloading.
+     *
+     * @return the number of pending downloads.
+     */
+    public synchronized int getPendingCount() {
+        int pending = 0;
+        for (Download download : this.downloads.values()) {
+            if (!download.future.isDone()) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Makes one attempt to download a report, and pre-parses the file once it is downloaded.
+     * A failed download is scheduled again until the attempts run out.
+     *
+     * @param download the download.
+     */
+    private void attempt(Download download) {
+        download.attempts++;
+        synchronized (this) {
+            download.bytes = 0;
+            download.total = -1;
+        }
+        setState(download, State.DOWNLOADING);
+        try {
+            this.downloader.download(download.document, (bytes, total) -> setProgress(download, bytes, total));
+        } catch (Exception e) {
+            if (download.attempts < this.maxAttempts) {
+                long backoff = this.baseBackoffNanos << Math.min(download.attempts - 1, 20);
+                setState(download, State.QUEUED);
+                this.executor.schedule(() -> attempt(download), backoff, TimeUnit.NANOSECONDS);
+            } else {
+                setState(download, State.FAILED);
+                download.future.completeExceptionally(e);
+            }
+            return;
+        }
+        if (this.preparseEnabled) {
+            setState(download, State.PARSING);
+            try {
+                this.preparser.apply(download.document);
+            } catch (Exception e) {
+                // The file is downloaded; it is parsed when it is shown instead
+                e.printStackTrace();
+            }
+        }
+        setState(download, State.DONE);
+        download.future.complete(null);
+    }
+
+    /**
+     * Moves a download to a new state and tells the listener.
+     *
+     * @param download the download.
+     * @param state    the new state.
+     */
+    private void setState(Download download, State state) {
+        synchronized (this) {
+            download.state = state;
+        }
+        try {
+            this.listener.onStateChanged(download.document, state);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records how far a download is and tells the listener.
+     *
+     * @param download the download.
+     * @param bytes    the number of bytes received so far.
+     * @param total    the length of the file, or -1 if it is not known.
+     */
+    private void setProgress(Download download, long bytes, long total) {
+        synchronized (this) {
+            download.bytes = bytes;
+            download.total = total;
+        }
+        try {
+            this.listener.onProgress(download.document, bytes, total);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A queued report, with the future of its download.
+     */
+    private static final class Download {
+        private final DocumentsListItem document;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private State state;
+        private int attempts;
+        private long bytes;
+        private long total = -1;
+
+        /**
+         * Creates a download.
+         *
+         * @param document the report.
+         */
+        private Download(DocumentsListItem document) {
+            this.document = document;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import java.util.Locale;
+import javafx.concurrent.Task;
+import utils.parsers.ParsedReport;
+
+/**
+ * Background task that loads a parsed report with {@link CsvManager#loadReport(String, CsvManager.ParseMode, CsvManager.ParseProgress)}.
+ * Its progress is the share of the bytes of the file parsed so far, and its message tells how much was
+ * parsed and about how long the rest will take. Cancelling the task stops the parse at the next progress
+ * update, so no more time is spent on a report that is no longer wanted.
+ */
+public class ParseReportTask extends Task<ParsedReport> {
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private final String fileId;
+
+    /**
+     * Creates a task that loads the report of a file.
+     *
+     * @param fileId The ID of the file.
+     */
+    public ParseReportTask(String fileId) {
+        this.fileId = fileId;
+    }
+
+    /**
+     * Loads the report, from the cache, from its snapshot, or by parsing the file.
+     *
+     * @return The parsed report.
+     * @throws Exception if the file cannot be read or parsed, or if the task was cancelled.
+     */
+    @Override
+    protected ParsedReport call() throws Exception {
+        long start = System.nanoTime();
+        updateMessage("Loading report " + this.fileId + "...");
+        return CsvManager.loadReport(this.fileId, CsvManager.getParseMode(), new CsvManager.ParseProgress() {
+            @Override
+            public void onProgress(long parsedBytes, long totalBytes) {
+                updateProgress(parsedBytes, totalBytes);
+                updateMessage(describeProgress(parsedBytes, totalBytes, System.nanoTime() - start));
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return ParseReportTask.this.isCancelled();
+            }
+        });
+    }
+
+    /**
+     * Describes the progress of a parse, with the time it will take to finish estimated from the rate so far.
+     *
+     * @param parsedBytes  The number of bytes parsed so far.
+     * @param totalBytes   The size of the file in bytes.
+     * @param elapsedNanos The time the parse has taken so far.
+     * @return The description, such as "Parsed 12.5 of 50.0 MB (25%), about 3 s left".
+     */
+    public static String describeProgress(long parsedBytes, long totalBytes, long elapsedNanos) {
+        if (totalBytes <= 0 || parsedBytes >= totalBytes) {
+            return String.format(Locale.US, "Parsed %.1f MB", Math.max(parsedBytes, totalBytes) / BYTES_PER_MEGABYTE);
+        }
+        String parsed = String.format(Locale.US, "Parsed %.1f of %.1f MB (%d%%)", parsedBytes / BYTES_PER_MEGABYTE,
+                totalBytes / BYTES_PER_MEGABYTE, parsedBytes * 100 / totalBytes);
+        if (parsedBytes <= 0) {
+            return parsed + ", estimating the time left";
+        }
+        double secondsLeft = elapsedNanos / 1e9 * (totalBytes - parsedBytes) / parsedBytes;
+        return parsed + ", about " + (long) Math.ceil(secondsLeft) + " s left";
+    }
+}
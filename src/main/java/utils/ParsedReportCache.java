@@ -0,0 +1,206 @@
+package utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import utils.parsers.ParsedReport;
+
+/**
+ * Keeps the most recently used parsed reports in memory, so switching back to a report does not parse it again.
+ *
+ * <p>Reports are keyed by their file ID and only served while the checksum of the file still matches.
+ * The cache is bounded by the estimated heap retained by its reports rather than by their number: adding
+ * a report evicts the least recently used ones until the total fits again, and a report that is larger than
+ * the whole bound is not kept at all. Hits, misses and evictions are counted for diagnostics.</p>
+ *
+ * <p>The cache is thread-safe.</p>
+ */
+public class ParsedReportCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, ParsedReport> reports = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Counters and size of a cache at one point in time.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int entries;
+        private final long bytes;
+        private final long maxBytes;
+
+        /**
+         * Creates the stats of a cache.
+         *
+         * @param hits      the number of lookups that found a report.
+         * @param misses    the number of lookups that found none.
+         * @param evictions the number of reports dropped to stay within the bound.
+         * @param entries   the number of reports in the cache.
+         * @param bytes     the estimated heap retained by the reports.
+         * @param maxBytes  the bound of the cache.
+         */
+        private Stats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Gets the number of lookups that found an up-to-date report.
+         *
+         * @return the number of hits.
+         */
+        public long getHits() {
+            return this.hits;
+        }
+
+        /**
+         * Gets the number of lookups that found no up-to-date report.
+         *
+         * @return the number of misses.
+         */
+        public long getMisses() {
+            return this.misses;
+        }
+
+        /**
+         * Gets the number of reports dropped to stay within the bound.
+         *
+         * @return the number of evictions.
+         */
+        public long getEvictions() {
+            return this.evictions;
+        }
+
+        /**
+         * Gets the number of reports in the cache.
+         *
+         * @return the number of entries.
+         */
+        public int getEntries() {
+            return this.entries;
+        }
+
+        /**
+         * Gets the estimated heap retained by the reports in the cache.
+         *
+         * @return the size in bytes.
+         */
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        @Override
+        public String toString() {
+            return this.entries + " reports, " + (this.bytes >> 10) + " of " + (this.maxBytes >> 10) + " KiB, "
+                    + this.hits + " hits, " + this.misses + " misses, " + this.evictions + " evictions";
+        }
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxBytes the estimated heap the reports in the cache may retain at most.
+     */
+    public ParsedReportCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The bound of the cache cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets a report and marks it as the most recently used one. A report of an older version of the file is
+     * dropped. The lookup is counted as a hit or a miss.
+     *
+     * @param fileId   the ID of the file.
+     * @param checksum the checksum of the file as it is now.
+     * @return the report, or null if the cache has none for this version of the file.
+     */
+    public synchronized ParsedReport get(String fileId, String checksum) {
+        ParsedReport report = this.reports.get(fileId);
+        if (report != null && !report.getChecksum().equals(checksum)) {
+            remove(fileId);
+            report = null;
+        }
+        if (report == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return report;
+    }
+
+    /**
+     * Checks whether the cache has a report for a version of the file, without counting a lookup or changing
+     * the order of use.
+     *
+     * @param fileId   the ID of the file.
+     * @param checksum the checksum of the file, or null for any version.
+     * @return true if the cache has the report.
+     */
+    public synchronized boolean contains(String fileId, String checksum) {
+        ParsedReport report = this.reports.get(fileId);
+        return report != null && (checksum == null || report.getChecksum().equals(checksum));
+    }
+
+    /**
+     * Adds a report as the most recently used one, replacing any report of the same file, and evicts the least
+     * recently used reports until the cache is within its bound again.
+     *
+     * @param report the report.
+     * @return true if the report was kept, false if it is larger than the whole bound.
+     */
+    public synchronized boolean put(ParsedReport report) {
+        remove(report.getFileId());
+        if (report.getEstimatedBytes() > this.maxBytes) {
+            return false;
+        }
+        this.reports.put(report.getFileId(), report);
+        this.totalBytes += report.getEstimatedBytes();
+        Iterator<Map.Entry<String, ParsedReport>> eldest = this.reports.entrySet().iterator();
+        while (this.totalBytes > this.maxBytes) {
+            this.totalBytes -= eldest.next().getValue().getEstimatedBytes();
+            eldest.remove();
+            this.evictions++;
+        }
+        return true;
+    }
+
+    /**
+     * Removes all reports. The counters are kept.
+     */
+    public synchronized void clear() {
+        this.reports.clear();
+        this.totalBytes = 0;
+    }
+
+    /**
+     * Gets the counters and size of the cache.
+     *
+     * @return the current stats.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(this.hits, this.misses, this.evictions, this.reports.size(), this.totalBytes, this.maxBytes);
+    }
+
+    /**
+     * Removes the report of a file, if there is one.
+     *
+     * @param fileId the ID of the file.
+     */
+    private void remove(String fileId) {
+        ParsedReport removed = this.reports.remove(fileId);
+        if (removed != null) {
+            this.totalBytes -= removed.getEstimatedBytes();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package utils;
+
+import app.models.ActionType;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import utils.parsers.ParsedReport;
+
+/**
+ * The rows of a parsed report as shown in the document details list: a heading for dividends, transactions,
+ * interest and orders, each followed by the rows of that action type.
+ *
+ * <p>The list holds no text. Its items are just the positions of the rows, and the text of a row is built from the
+ * report by {@link #getText(int)} when a cell shows it. The texts of the most recently shown rows are kept, so
+ * scrolling back and forth does not build them again. The memory used therefore depends on the number of visible
+ * rows rather than on the size of the report.</p>
+ *
+ * <p>The list is meant to be used from the JavaFX thread only and is not thread-safe.</p>
+ */
+public class ReportRowList extends AbstractList<Integer> implements RandomAccess {
+    /** The number of formatted rows that are kept. */
+    public static final int RECENT_ROWS = 256;
+
+    private static final ActionType[] SECTION_TYPES = {
+            ActionType.DIVIDEND, ActionType.TRANSACTION, ActionType.INTEREST, ActionType.ORDER
+    };
+    private static final String[] SECTION_HEADINGS = {"Dividends:", "Transactions:", "Interest:", "Orders:"};
+
+    private final ParsedReport report;
+    private final int[] sectionStarts = new int[SECTION_TYPES.length];
+    private final int size;
+    private final LinkedHashMap<Integer, String> recentTexts = new LinkedHashMap<>(RECENT_ROWS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > RECENT_ROWS;
+        }
+    };
+
+    /**
+     * Creates the list of the rows of a report.
+     *
+     * @param report the report.
+     */
+    public ReportRowList(ParsedReport report) {
+        this.report = report;
+        int position = 0;
+        for (int section = 0; section < SECTION_TYPES.length; section++) {
+            this.sectionStarts[section] = position;
+            position += 1 + report.getRowCount(SECTION_TYPES[section]);
+        }
+        this.size = position;
+    }
+
+    /**
+     * Gets the item at a position, which is the position itself.
+     *
+     * @param position the position in the list.
+     * @return the position.
+     * @throws IndexOutOfBoundsException if the position is outside the list.
+     */
+    @Override
+    public Integer get(int position) {
+        if (position < 0 || position >= this.size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is outside a list of " + this.size + " rows");
+        }
+        return position;
+    }
+
+    /**
+     * Gets the number of headings and rows in the list.
+     *
+     * @return the size of the list.
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the text shown at a position: a section heading, or the text of a row, which is built from the
+     * report unless it was shown recently.
+     *
+     * @param position the position in the list.
+     * @return the text.
+     * @throws IndexOutOfBoundsException if the position is outside the list.
+     */
+    public String getText(int position) {
+        get(position);
+        int section = SECTION_TYPES.length - 1;
+        while (this.sectionStarts[section] > position) {
+            section--;
+        }
+        int index = position - this.sectionStarts[section] - 1;
+        if (index < 0) {
+            return SECTION_HEADINGS[section];
+        }
+        String text = this.recentTexts.get(position);
+        if (text == null) {
+            text = this.report.describeRow(SECTION_TYPES[section], index);
+            this.recentTexts.put(position, text);
+        }
+        return text;
+    }
+
+    /**
+     * Gets the number of formatted rows that are currently kept.
+     *
+     * @return the number of kept rows, at most {@link #RECENT_ROWS}.
+     */
+    public int getRecentRowCount() {
+        return this.recentTexts.size();
+    }
+}
@@ -0,0 +1,302 @@
+package utils.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable view over a single row of a CSV file.
+ * The row does not own any character data; it only remembers where the row and each of its
+ * fields start and end in the underlying byte buffer. Strings are created only when a field
+ * is explicitly requested. Boundaries of quoted fields exclude the surrounding quotes, and
+ * escaped quotes inside them are collapsed when the field is decoded.
+ */
+public class CsvRow {
+    private static final int INITIAL_FIELD_CAPACITY = 32;
+
+    private ByteBuffer buffer;
+    private int rowStart;
+    private int rowEnd;
+    private int[] fieldStarts = new int[INITIAL_FIELD_CAPACITY];
+    private int[] fieldEnds = new int[INITIAL_FIELD_CAPACITY];
+    private boolean[] fieldEscaped = new boolean[INITIAL_FIELD_CAPACITY];
+    private int fieldCount;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Tokenizes a single line of text into a new row.
+     * This is meant for callers that only have the line as a String; readers reuse one row instead.
+     *
+     * @param line the line to tokenize, without the line break.
+     * @return a row view over the encoded line.
+     */
+    public static CsvRow fromLine(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        CsvRow row = new CsvRow();
+        CsvTokenizer.nextRow(ByteBuffer.wrap(bytes), 0, bytes.length, true, row);
+        return row;
+    }
+
+    /**
+     * Resets the row so it points at a new range of the given buffer.
+     *
+     * @param buffer   the buffer that holds the row bytes.
+     * @param rowStart the index of the first byte of the row.
+     */
+    void reset(ByteBuffer buffer, int rowStart) {
+        this.buffer = buffer;
+        this.rowStart = rowStart;
+        this.rowEnd = rowStart;
+        this.fieldCount = 0;
+    }
+
+    /**
+     * Appends the boundaries of the next field of the row.
+     *
+     * @param start   the index of the first byte of the field content.
+     * @param end     the index one past the last byte of the field content.
+     * @param escaped whether the content contains escaped quotes that must be collapsed when decoding.
+     */
+    void addField(int start, int end, boolean escaped) {
+        if (this.fieldCount == this.fieldStarts.length) {
+            this.fieldStarts = Arrays.copyOf(this.fieldStarts, this.fieldCount * 2);
+            this.fieldEnds = Arrays.copyOf(this.fieldEnds, this.fieldCount * 2);
+            this.fieldEscaped = Arrays.copyOf(this.fieldEscaped, this.fieldCount * 2);
+        }
+        this.fieldStarts[this.fieldCount] = start;
+        this.fieldEnds[this.fieldCount] = end;
+        this.fieldEscaped[this.fieldCount] = escaped;
+        this.fieldCount++;
+    }
+
+    /**
+     * Marks where the row ends in the underlying buffer.
+     *
+     * @param rowEnd the index one past the last byte of the row, excluding the line break.
+     */
+    void setRowEnd(int rowEnd) {
+        this.rowEnd = rowEnd;
+    }
+
+    /**
+     * Gets the number of fields in the row.
+     *
+     * @return the number of fields.
+     */
+    public int getFieldCount() {
+        return this.fieldCount;
+    }
+
+    /**
+     * Gets the length of a field in bytes, as it is stored in the file.
+     *
+     * @param index the index of the field.
+     * @return the length of the field in bytes.
+     */
+    public int getFieldLength(int index) {
+        checkIndex(index);
+        return this.fieldEnds[index] - this.fieldStarts[index];
+    }
+
+    /**
+     * Gets the byte at the given offset inside a field.
+     *
+     * @param index  the index of the field.
+     * @param offset the offset inside the field.
+     * @return the byte at the offset.
+     */
+    public byte getFieldByte(int index, int offset) {
+        checkIndex(index);
+        return this.buffer.get(this.fieldStarts[index] + offset);
+    }
+
+    /**
+     * Checks whether a field contains the given ASCII text, without decoding the field.
+     *
+     * @param index  the index of the field.
+     * @param needle the ASCII text to look for.
+     * @return true if the field contains the text, false otherwise.
+     */
+    public boolean fieldContains(int index, String needle) {
+        checkIndex(index);
+        int start = this.fieldStarts[index];
+        int lastStart = this.fieldEnds[index] - needle.length();
+        for (int i = start; i <= lastStart; i++) {
+            if (regionMatches(i, needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a field consists of exactly the given ASCII text, without decoding the field.
+     *
+     * @param index the index of the field.
+     * @param text  the ASCII text to compare with.
+     * @return true if the field equals the text, false otherwise.
+     */
+    public boolean fieldEquals(int index, String text) {
+        checkIndex(index);
+        return this.fieldEnds[index] - this.fieldStarts[index] == text.length() && regionMatches(this.fieldStarts[index], text);
+    }
+
+    /**
+     * Checks whether a field contains escaped quotes, in which case its bytes differ from its decoded value.
+     *
+     * @param index the index of the field.
+     * @return true if the field contains escaped quotes, false otherwise.
+     */
+    public boolean isFieldEscaped(int index) {
+        checkIndex(index);
+        return this.fieldEscaped[index];
+    }
+
+    /**
+     * Computes a hash of the bytes of a field, as {@link java.util.Arrays#hashCode(byte[])} would for a copy of them.
+     *
+     * @param index the index of the field.
+     * @return the hash of the field bytes.
+     */
+    public int hashField(int index) {
+        checkIndex(index);
+        int hash = 1;
+        for (int i = this.fieldStarts[index]; i < this.fieldEnds[index]; i++) {
+            hash = 31 * hash + this.buffer.get(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Checks whether the bytes of a field are equal to the given bytes.
+     *
+     * @param index the index of the field.
+     * @param bytes the bytes to compare with.
+     * @return true if the field consists of exactly the given bytes, false otherwise.
+     */
+    public boolean fieldEquals(int index, byte[] bytes) {
+        checkIndex(index);
+        int start = this.fieldStarts[index];
+        if (this.fieldEnds[index] - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (this.buffer.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the bytes of a field, as they are stored in the file.
+     *
+     * @param index the index of the field.
+     * @return a new array holding the field bytes.
+     */
+    public byte[] getFieldBytes(int index) {
+        checkIndex(index);
+        byte[] bytes = new byte[this.fieldEnds[index] - this.fieldStarts[index]];
+        this.buffer.get(this.fieldStarts[index], bytes);
+        return bytes;
+    }
+
+    /**
+     * Compares the bytes at the given position with an ASCII text.
+     *
+     * @param position the index in the buffer to start comparing at.
+     * @param text     the ASCII text to compare with.
+     * @return true if the bytes match the text, false otherwise.
+     */
+    private boolean regionMatches(int position, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (this.buffer.get(position + i) != (byte) text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a field into a String.
+     *
+     * @param index the index of the field.
+     * @return the decoded field value.
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        if (this.fieldEscaped[index]) {
+            return decodeEscaped(this.fieldStarts[index], this.fieldEnds[index]);
+        }
+        return decode(this.fieldStarts[index], this.fieldEnds[index]);
+    }
+
+    /**
+     * Decodes the whole row, including the separators, into a String.
+     *
+     * @return the row as it appears in the file.
+     */
+    public String toLine() {
+        return decode(this.rowStart, this.rowEnd);
+    }
+
+    /**
+     * Decodes a range of the underlying buffer as UTF-8.
+     *
+     * @param start the index of the first byte.
+     * @param end   the index one past the last byte.
+     * @return the decoded String.
+     */
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (this.buffer.hasArray()) {
+            return new String(this.buffer.array(), this.buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        ensureScratchCapacity(length);
+        this.buffer.get(start, this.scratch, 0, length);
+        return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a range of the underlying buffer as UTF-8, collapsing every escaped quote pair into a single quote.
+     *
+     * @param start the index of the first byte.
+     * @param end   the index one past the last byte.
+     * @return the decoded String.
+     */
+    private String decodeEscaped(int start, int end) {
+        ensureScratchCapacity(end - start);
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte current = this.buffer.get(i);
+            this.scratch[length++] = current;
+            if (current == '"' && i + 1 < end && this.buffer.get(i + 1) == '"') {
+                i++;
+            }
+        }
+        return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Grows the scratch buffer used for decoding if it is smaller than the requested length.
+     *
+     * @param length the number of bytes the scratch buffer must hold.
+     */
+    private void ensureScratchCapacity(int length) {
+        if (this.scratch.length < length) {
+            this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+        }
+    }
+
+    /**
+     * Checks that the field index is within the row.
+     *
+     * @param index the index of the field.
+     * @throws IndexOutOfBoundsException if the row has no such field.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of bounds for row with " + this.fieldCount + " fields");
+        }
+    }
+}
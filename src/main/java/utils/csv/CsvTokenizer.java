@@ -0,0 +1,133 @@
+package utils.csv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * RFC 4180 tokenizer that finds the field boundaries of one CSV row at a time.
+ * Fields may be wrapped in double quotes, in which case they can contain commas, line breaks
+ * and escaped quotes ({@code ""}). The tokenizer only records boundaries in the given {@link CsvRow},
+ * so tokenizing a row does not allocate anything; unescaping is left to the row when a field is decoded.
+ *
+ * <p>The tokenizer is lenient in the same places a spreadsheet would be: a quote inside an unquoted
+ * field is taken literally, characters after a closing quote are ignored up to the next separator,
+ * and an unterminated quoted field runs to the end of the input.</p>
+ */
+public final class CsvTokenizer {
+    /** Returned by {@link #nextRow} when the row is not complete within the given range. */
+    public static final int INCOMPLETE = -1;
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private CsvTokenizer() { }
+
+    /**
+     * Tokenizes the row starting at the given position.
+     *
+     * @param buffer     the buffer holding the CSV bytes.
+     * @param start      the index of the first byte of the row.
+     * @param limit      the index one past the last readable byte.
+     * @param endOfInput whether the limit is the end of the whole input; when false, a row that is not
+     *                   terminated by a line break before the limit is reported as {@link #INCOMPLETE}.
+     * @param row        the row view to fill.
+     * @return the index of the line break that ended the row, the limit at the end of input,
+     *         or {@link #INCOMPLETE} if more bytes are needed.
+     */
+    public static int nextRow(ByteBuffer buffer, int start, int limit, boolean endOfInput, CsvRow row) {
+        row.reset(buffer, start);
+        int index = start;
+        while (true) {
+            if (index < limit && buffer.get(index) == QUOTE) {
+                index = readQuotedField(buffer, index, limit, row);
+            } else {
+                index = readPlainField(buffer, index, limit, row);
+            }
+            if (index >= limit) {
+                if (!endOfInput) {
+                    return INCOMPLETE;
+                }
+                row.setRowEnd(limit);
+                return limit;
+            }
+            if (buffer.get(index) != COMMA) {
+                row.setRowEnd(index);
+                return index;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Reads an unquoted field, which ends at the next separator or line break.
+     *
+     * @param buffer the buffer holding the CSV bytes.
+     * @param start  the index of the first byte of the field.
+     * @param limit  the index one past the last readable byte.
+     * @param row    the row view to add the field to.
+     * @return the index of the byte that ended the field, or the limit.
+     */
+    private static int readPlainField(ByteBuffer buffer, int start, int limit, CsvRow row) {
+        int index = start;
+        while (index < limit) {
+            byte current = buffer.get(index);
+            if (current == COMMA || current == LINE_FEED || current == CARRIAGE_RETURN) {
+                break;
+            }
+            index++;
+        }
+        row.addField(start, index, false);
+        return index;
+    }
+
+    /**
+     * Reads a quoted field starting at its opening quote.
+     * The recorded boundaries exclude the surrounding quotes.
+     *
+     * @param buffer     the buffer holding the CSV bytes.
+     * @param quoteIndex the index of the opening quote.
+     * @param limit      the index one past the last readable byte.
+     * @param row        the row view to add the field to.
+     * @return the index of the byte that ended the field, or the limit.
+     */
+    private static int readQuotedField(ByteBuffer buffer, int quoteIndex, int limit, CsvRow row) {
+        int contentStart = quoteIndex + 1;
+        int index = contentStart;
+        boolean escaped = false;
+        while (index < limit) {
+            if (buffer.get(index) == QUOTE) {
+                if (index + 1 < limit && buffer.get(index + 1) == QUOTE) {
+                    escaped = true;
+                    index += 2;
+                    continue;
+                }
+                row.addField(contentStart, index, escaped);
+                return skipToSeparator(buffer, index + 1, limit);
+            }
+            index++;
+        }
+        row.addField(contentStart, limit, escaped);
+        return limit;
+    }
+
+    /**
+     * Skips any characters between a closing quote and the next separator or line break.
+     *
+     * @param buffer the buffer holding the CSV bytes.
+     * @param start  the index just after the closing quote.
+     * @param limit  the index one past the last readable byte.
+     * @return the index of the separator or line break, or the limit.
+     */
+    private static int skipToSeparator(ByteBuffer buffer, int start, int limit) {
+        int index = start;
+        while (index < limit) {
+            byte current = buffer.get(index);
+            if (current == COMMA || current == LINE_FEED || current == CARRIAGE_RETURN) {
+                return index;
+            }
+            index++;
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,229 @@
+package utils.csv;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a CSV file by memory-mapping it and locating row and field boundaries directly in the bytes
+ * with the {@link CsvTokenizer}.
+ * Every call to {@link #nextRow()} returns the same {@link CsvRow} instance pointed at the next row,
+ * so reading a file does not create any objects per row.
+ */
+public class MappedCsvReader implements AutoCloseable {
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte QUOTE = '"';
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int limit;
+    private final int start;
+    private final int rowStartLimit;
+    private final CsvRow row = new CsvRow();
+    private int position;
+
+    /**
+     * Creates a reader over an already mapped file.
+     *
+     * @param channel the channel the buffer was mapped from.
+     * @param buffer  the mapped contents of the file.
+     */
+    private MappedCsvReader(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.rowStartLimit = this.limit;
+        this.start = skipByteOrderMark();
+        this.position = this.start;
+    }
+
+    /**
+     * Creates a reader over a byte range of a file mapped by another reader.
+     * The reader only starts rows before the end of the range, but the last row may run past it.
+     *
+     * @param buffer the mapped contents of the file.
+     * @param start  the index of the first byte of the range.
+     * @param end    the index one past the last byte of the range.
+     */
+    private MappedCsvReader(MappedByteBuffer buffer, int start, int end) {
+        this.channel = null;
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.rowStartLimit = end;
+        this.start = start;
+        this.position = start;
+    }
+
+    /**
+     * Opens and memory-maps the CSV file at the given path.
+     *
+     * @param path the path of the CSV file.
+     * @return a reader positioned at the first row of the file.
+     * @throws IOException if the file cannot be opened or is too large to be mapped.
+     */
+    public static MappedCsvReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("CSV file " + path + " is too large to be mapped (" + size + " bytes)");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MappedCsvReader(channel, buffer);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next non-empty row of the file.
+     *
+     * @return the reused row view, or null if the end of the file has been reached.
+     */
+    public CsvRow nextRow() {
+        skipLineBreaks();
+        if (this.position >= this.rowStartLimit) {
+            return null;
+        }
+        this.position = CsvTokenizer.nextRow(this.buffer, this.position, this.limit, true, this.row);
+        return this.row;
+    }
+
+    /**
+     * Splits the rest of the file into byte ranges that start at the beginning of a row.
+     * The ranges share this reader's mapping and can be read concurrently; closing them has no effect.
+     * Boundaries are placed after a line break outside of quotes, so a quoted field containing a line break
+     * is not cut in two. Quotes are counted as in well-formed CSV, though, so a stray quote inside an unquoted
+     * field can still misplace a boundary. Callers can verify the boundaries by checking that the position of
+     * each exhausted range equals the start of the next one.
+     *
+     * @param maxChunks     the maximum number of ranges to create.
+     * @param minChunkBytes the minimum size of a range in bytes.
+     * @return the readers over the consecutive ranges, in file order.
+     */
+    public List<MappedCsvReader> split(int maxChunks, int minChunkBytes) {
+        skipLineBreaks();
+        int remaining = this.rowStartLimit - this.position;
+        int chunkCount = Math.max(1, Math.min(maxChunks, remaining / Math.max(1, minChunkBytes)));
+        int chunkSize = remaining / chunkCount;
+        List<MappedCsvReader> chunks = new ArrayList<>(chunkCount);
+        int chunkStart = this.position;
+        for (int i = 1; i < chunkCount && chunkStart < this.rowStartLimit; i++) {
+            int chunkEnd = findRowStart(chunkStart, this.position + i * chunkSize);
+            if (chunkEnd > chunkStart) {
+                chunks.add(new MappedCsvReader(this.buffer, chunkStart, chunkEnd));
+                chunkStart = chunkEnd;
+            }
+        }
+        chunks.add(new MappedCsvReader(this.buffer, chunkStart, this.rowStartLimit));
+        this.position = this.rowStartLimit;
+        return chunks;
+    }
+
+    /**
+     * Finds the first byte at or after the given index that starts a non-empty row.
+     * The quotes are counted from the start of a known row, so line breaks inside quoted fields are skipped.
+     *
+     * @param rowStart the index of the first byte of a row, where no quoted field is open.
+     * @param from     the index to start searching at.
+     * @return the index of the first byte of the row, or the end of the readable range.
+     */
+    private int findRowStart(int rowStart, int from) {
+        boolean quoted = false;
+        int index = rowStart;
+        while (index < this.rowStartLimit && (index < from || quoted || !isLineBreak(this.buffer.get(index - 1)))) {
+            if (this.buffer.get(index) == QUOTE) {
+                quoted = !quoted;
+            }
+            index++;
+        }
+        while (index < this.rowStartLimit && isLineBreak(this.buffer.get(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether a byte is a line break character.
+     *
+     * @param current the byte to check.
+     * @return true for a line feed or carriage return.
+     */
+    private static boolean isLineBreak(byte current) {
+        return current == LINE_FEED || current == CARRIAGE_RETURN;
+    }
+
+    /**
+     * Gets the number of bytes consumed so far.
+     *
+     * @return the current position in the file.
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Gets the index at which this reader started reading rows.
+     * For a reader returned by {@link #split(int, int)} this is the start of its range.
+     *
+     * @return the start of the readable range.
+     */
+    public long getStart() {
+        return this.start;
+    }
+
+    /**
+     * Gets the size of the mapped file.
+     *
+     * @return the size of the file in bytes.
+     */
+    public long getSize() {
+        return this.limit;
+    }
+
+    /**
+     * Advances the position past any line break characters, which also skips empty lines.
+     */
+    private void skipLineBreaks() {
+        while (this.position < this.limit) {
+            byte current = this.buffer.get(this.position);
+            if (current != LINE_FEED && current != CARRIAGE_RETURN) {
+                return;
+            }
+            this.position++;
+        }
+    }
+
+    /**
+     * Skips the UTF-8 byte order mark that some spreadsheet tools put at the start of a file.
+     *
+     * @return the position of the first byte after the byte order mark.
+     */
+    private int skipByteOrderMark() {
+        if (this.limit >= 3
+                && this.buffer.get(0) == (byte) 0xEF
+                && this.buffer.get(1) == (byte) 0xBB
+                && this.buffer.get(2) == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * Closes the underlying file channel, unless this reader only covers a range of another reader's mapping.
+     *
+     * @throws IOException if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package utils.csv;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Reads CSV rows from bytes that arrive in chunks, such as the body of a download.
+ * Every complete row in the bytes fed so far is handed to the consumer right away. The bytes of a row
+ * that is cut off at the end of a chunk are carried over and tokenized again once the next chunk
+ * completes it, so rows and quoted fields may span any number of chunks.
+ * The same {@link CsvRow} instance is passed for every row and is only valid during the call.
+ */
+public class StreamingCsvReader {
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    private final CsvRow row = new CsvRow();
+    private byte[] carry = new byte[INITIAL_CAPACITY];
+    private ByteBuffer carryBuffer = ByteBuffer.wrap(this.carry);
+    private int size;
+    private boolean started;
+    private long rowCount;
+
+    /**
+     * Appends the next chunk of bytes and reads the rows it completes.
+     *
+     * @param bytes    the chunk; its remaining bytes are consumed, but its position is left unchanged.
+     * @param consumer receives every completed row.
+     */
+    public void feed(ByteBuffer bytes, Consumer<CsvRow> consumer) {
+        int length = bytes.remaining();
+        ensureCapacity(this.size + length);
+        bytes.get(bytes.position(), this.carry, this.size, length);
+        this.size += length;
+        readRows(false, consumer);
+    }
+
+    /**
+     * Reads the last row, which may lack a line break, once no more bytes will arrive.
+     *
+     * @param consumer receives the last row, if there is one.
+     */
+    public void finish(Consumer<CsvRow> consumer) {
+        readRows(true, consumer);
+        this.size = 0;
+    }
+
+    /**
+     * Drops all bytes fed so far, so the reader can start over with the input from its beginning.
+     */
+    public void reset() {
+        this.size = 0;
+        this.started = false;
+        this.rowCount = 0;
+    }
+
+    /**
+     * Gets the number of rows read so far.
+     *
+     * @return the number of rows handed to the consumer.
+     */
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+    /**
+     * Gets the number of bytes carried over because they do not form a complete row yet.
+     *
+     * @return the number of carried bytes.
+     */
+    public int getCarriedBytes() {
+        return this.size;
+    }
+
+    /**
+     * Reads the complete rows of the carried bytes and keeps the rest for the next chunk.
+     *
+     * @param endOfInput whether no more bytes will arrive.
+     * @param consumer   receives every completed row.
+     */
+    private void readRows(boolean endOfInput, Consumer<CsvRow> consumer) {
+        int position = 0;
+        if (!this.started) {
+            if (this.size < 3 && !endOfInput) {
+                return; // Not enough bytes yet to tell whether there is a byte order mark
+            }
+            position = skipByteOrderMark();
+            this.started = true;
+        }
+        while (true) {
+            position = skipLineBreaks(position);
+            if (position >= this.size) {
+                break;
+            }
+            int end = CsvTokenizer.nextRow(this.carryBuffer, position, this.size, endOfInput, this.row);
+            if (end == CsvTokenizer.INCOMPLETE) {
+                break;
+            }
+            this.rowCount++;
+            consumer.accept(this.row);
+            position = end;
+        }
+        System.arraycopy(this.carry, position, this.carry, 0, this.size - position);
+        this.size -= position;
+    }
+
+    /**
+     * Grows the carry buffer to hold at least the given number of bytes.
+     *
+     * @param capacity the number of bytes needed.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.carry.length) {
+            this.carry = Arrays.copyOf(this.carry, Math.max(capacity, this.carry.length * 2));
+            this.carryBuffer = ByteBuffer.wrap(this.carry);
+        }
+    }
+
+    /**
+     * Skips line break characters, which also skips empty lines.
+     *
+     * @param from the index to start at.
+     * @return the index of the first byte that is not a line break, or the number of carried bytes.
+     */
+    private int skipLineBreaks(int from) {
+        int index = from;
+        while (index < this.size && (this.carry[index] == LINE_FEED || this.carry[index] == CARRIAGE_RETURN)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Skips the UTF-8 byte order mark that some spreadsheet tools put at the start of a file.
+     *
+     * @return the index of the first byte after the byte order mark.
+     */
+    private int skipByteOrderMark() {
+        if (this.size >= 3 && this.carry[0] == (byte) 0xEF && this.carry[1] == (byte) 0xBB && this.carry[2] == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+}
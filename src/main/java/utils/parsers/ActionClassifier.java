@@ -0,0 +1,47 @@
+package utils.parsers;
+
+import app.models.SubAction;
+import java.util.Arrays;
+import utils.csv.CsvRow;
+
+/**
+ * Classifies the Action field of rows, remembering the result for every distinct value.
+ * An export only uses a handful of Action values, such as "Market buy" or "Dividend (Ordinary)", so after
+ * the first few rows every lookup is a byte comparison against the cached values instead of a String
+ * and the keyword searches of {@link SubAction#fromString(String)}.
+ * A classifier is not thread-safe; each thread parsing rows uses its own.
+ */
+public class ActionClassifier {
+    private static final int MAX_CACHED_VALUES = 64;
+
+    private byte[][] values = new byte[8][];
+    private SubAction[] subActions = new SubAction[8];
+    private int count;
+
+    /**
+     * Classifies the Action field of a row.
+     *
+     * @param row         the tokenized row from the CSV file.
+     * @param actionIndex the index of the Action field.
+     * @return the sub-action of the row, which also determines its action type.
+     * @throws IllegalArgumentException if the value does not match any action type.
+     */
+    public SubAction classify(CsvRow row, int actionIndex) {
+        for (int i = 0; i < this.count; i++) {
+            if (row.fieldEquals(actionIndex, this.values[i])) {
+                return this.subActions[i];
+            }
+        }
+        SubAction subAction = SubAction.fromString(row.getString(actionIndex));
+        if (!row.isFieldEscaped(actionIndex) && this.count < MAX_CACHED_VALUES) {
+            if (this.count == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.count * 2);
+                this.subActions = Arrays.copyOf(this.subActions, this.count * 2);
+            }
+            this.values[this.count] = row.getFieldBytes(actionIndex);
+            this.subActions[this.count] = subAction;
+            this.count++;
+        }
+        return subAction;
+    }
+}
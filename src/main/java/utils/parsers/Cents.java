@@ -0,0 +1,201 @@
+package utils.parsers;
+
+import utils.csv.CsvRow;
+
+/**
+ * Utility class for money amounts held as a primitive number of cents (minor units).
+ * Amounts are parsed straight from the bytes of a CSV field and formatted only when they are displayed,
+ * so running totals never go through binary floating point.
+ */
+public final class Cents {
+    private static final long MAX_UNITS = Long.MAX_VALUE / 100 - 1;
+
+    private Cents() { }
+
+    /**
+     * Parses a decimal amount from a CSV field into cents.
+     * Surrounding spaces and a leading sign are allowed. Digits past the second decimal place are rounded
+     * half away from zero, which is how {@code String.format("%.2f")} rounds.
+     *
+     * @param row   the row holding the field.
+     * @param index the index of the field.
+     * @return the amount in cents.
+     * @throws NumberFormatException if the field is not a decimal number.
+     */
+    public static long parse(CsvRow row, int index) {
+        int length = row.getFieldLength(index);
+        int position = skipSpaces(row, index, 0, length);
+        boolean negative = false;
+        if (position < length && (row.getFieldByte(index, position) == '-' || row.getFieldByte(index, position) == '+')) {
+            negative = row.getFieldByte(index, position) == '-';
+            position++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        while (position < length && isDigit(row.getFieldByte(index, position))) {
+            units = units * 10 + (row.getFieldByte(index, position) - '0');
+            if (units > MAX_UNITS) {
+                throw invalidAmount(row, index);
+            }
+            digits++;
+            position++;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (position < length && row.getFieldByte(index, position) == '.') {
+            position++;
+            while (position < length && isDigit(row.getFieldByte(index, position))) {
+                int digit = row.getFieldByte(index, position) - '0';
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + digit;
+                } else if (fractionDigits == 2) {
+                    roundUp = digit >= 5;
+                }
+                fractionDigits++;
+                digits++;
+                position++;
+            }
+        }
+
+        position = skipSpaces(row, index, position, length);
+        if (digits == 0 || position != length) {
+            throw invalidAmount(row, index);
+        }
+        for (int i = fractionDigits; i < 2; i++) {
+            fraction *= 10;
+        }
+        long cents = units * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Formats an amount in cents with exactly two decimal places, for example {@code -1234} as {@code "-12.34"}.
+     *
+     * @param cents the amount in cents.
+     * @return the formatted amount.
+     */
+    public static String format(long cents) {
+        long absolute = Math.abs(cents);
+        long fraction = absolute % 100;
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(absolute / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+
+    /**
+     * Formats an amount in cents with the given number of decimal places, for example {@code 10000} with
+     * scale 0 as {@code "100"} and {@code -1250} with scale 1 as {@code "-12.5"}.
+     * Digits beyond the scale are dropped, so the scale should come from {@link #scaleOf(CsvRow, int)}.
+     *
+     * @param cents the amount in cents.
+     * @param scale the number of decimal places, from 0 to 2.
+     * @return the formatted amount.
+     */
+    public static String format(long cents, int scale) {
+        if (scale == 2) {
+            return format(cents);
+        }
+        long absolute = Math.abs(cents);
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(absolute / 100);
+        if (scale == 1) {
+            sb.append('.').append(absolute % 100 / 10);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the number of decimal places of an amount written in the form {@link #format(long, int)} produces.
+     * This lets a row keep only the cents and the scale of its amount and still show the amount exactly
+     * as it was written in the file.
+     *
+     * @param row   the row holding the field.
+     * @param index the index of the field.
+     * @return the number of decimal places from 0 to 2, or -1 if formatting would not reproduce the field,
+     *         for example because of spaces, a plus sign, leading zeros, more than two decimals or a negative zero.
+     */
+    public static int scaleOf(CsvRow row, int index) {
+        int length = row.getFieldLength(index);
+        int position = 0;
+        boolean negative = length > 0 && row.getFieldByte(index, 0) == '-';
+        if (negative) {
+            position++;
+        }
+        int integerStart = position;
+        boolean nonZero = false;
+        while (position < length && isDigit(row.getFieldByte(index, position))) {
+            nonZero |= row.getFieldByte(index, position) != '0';
+            position++;
+        }
+        int integerDigits = position - integerStart;
+        if (integerDigits == 0 || (integerDigits > 1 && row.getFieldByte(index, integerStart) == '0')) {
+            return -1;
+        }
+
+        int scale = 0;
+        if (position < length && row.getFieldByte(index, position) == '.') {
+            position++;
+            while (position < length && isDigit(row.getFieldByte(index, position))) {
+                nonZero |= row.getFieldByte(index, position) != '0';
+                scale++;
+                position++;
+            }
+            if (scale == 0 || scale > 2) {
+                return -1;
+            }
+        }
+        if (position != length || (negative && !nonZero)) {
+            return -1;
+        }
+        return scale;
+    }
+
+    /**
+     * Skips spaces inside a field.
+     *
+     * @param row      the row holding the field.
+     * @param index    the index of the field.
+     * @param position the offset to start at.
+     * @param length   the length of the field.
+     * @return the offset of the first byte that is not a space, or the length.
+     */
+    private static int skipSpaces(CsvRow row, int index, int position, int length) {
+        while (position < length && row.getFieldByte(index, position) == ' ') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Checks whether a byte is an ASCII digit.
+     *
+     * @param value the byte to check.
+     * @return true if the byte is a digit, false otherwise.
+     */
+    private static boolean isDigit(byte value) {
+        return value >= '0' && value <= '9';
+    }
+
+    /**
+     * Creates the exception thrown for a field that is not a valid amount.
+     *
+     * @param row   the row holding the field.
+     * @param index the index of the field.
+     * @return the exception to throw.
+     */
+    private static NumberFormatException invalidAmount(CsvRow row, int index) {
+        return new NumberFormatException("Invalid amount: \"" + row.getString(index) + "\"");
+    }
+}
@@ -0,0 +1,63 @@
+package utils.parsers;
+
+import java.util.Arrays;
+import utils.csv.CsvRow;
+
+/**
+ * Registry that gives every currency code a small, stable integer id.
+ * Parsers keep their per-currency totals in arrays indexed by this id, so a row only has to compare
+ * its currency field with the few codes seen so far instead of creating a String and hashing it.
+ * Ids are shared by all parsers and never reused, which lets partial results from different threads
+ * be merged by id.
+ */
+public final class Currencies {
+    private static volatile String[] codes = new String[0];
+
+    private Currencies() { }
+
+    /**
+     * Gets the id of the currency stored in a field, registering the currency if it has not been seen before.
+     *
+     * @param row   the row holding the field.
+     * @param index the index of the currency field.
+     * @return the id of the currency.
+     */
+    public static int idOf(CsvRow row, int index) {
+        String[] known = codes;
+        for (int id = 0; id < known.length; id++) {
+            if (row.fieldEquals(index, known[id])) {
+                return id;
+            }
+        }
+        return idOf(row.getString(index));
+    }
+
+    /**
+     * Gets the id of a currency code, registering the currency if it has not been seen before.
+     *
+     * @param currency the currency code.
+     * @return the id of the currency.
+     */
+    public static synchronized int idOf(String currency) {
+        String[] known = codes;
+        for (int id = 0; id < known.length; id++) {
+            if (known[id].equals(currency)) {
+                return id;
+            }
+        }
+        String[] extended = Arrays.copyOf(known, known.length + 1);
+        extended[known.length] = currency;
+        codes = extended;
+        return known.length;
+    }
+
+    /**
+     * Gets the currency code registered under an id.
+     *
+     * @param id the id of the currency.
+     * @return the currency code.
+     */
+    public static String codeOf(int id) {
+        return codes[id];
+    }
+}
@@ -0,0 +1,68 @@
+package utils.parsers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Per-currency accumulators of a parser, held in an array indexed by the ids given by {@link Currencies}.
+ * Looking up the accumulator of a row is an array access instead of a hash lookup on the currency code.
+ *
+ * @param <T> the type of the accumulator.
+ */
+final class CurrencyTable<T> {
+    private final Function<String, T> factory;
+    private Object[] valuesById = new Object[0];
+
+    /**
+     * Creates an empty table.
+     *
+     * @param factory creates the accumulator of a currency from its code the first time the currency is seen.
+     */
+    CurrencyTable(Function<String, T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Gets the accumulator of a currency, creating it if the currency has not been seen by this table yet.
+     *
+     * @param currencyId the id of the currency.
+     * @return the accumulator of the currency.
+     */
+    @SuppressWarnings("unchecked")
+    T get(int currencyId) {
+        if (currencyId >= this.valuesById.length) {
+            this.valuesById = Arrays.copyOf(this.valuesById, currencyId + 1);
+        }
+        Object value = this.valuesById[currencyId];
+        if (value == null) {
+            value = this.factory.apply(Currencies.codeOf(currencyId));
+            this.valuesById[currencyId] = value;
+        }
+        return (T) value;
+    }
+
+    /**
+     * Gets the accumulators of every currency seen by this table.
+     *
+     * @return the accumulators, ordered by currency id.
+     */
+    @SuppressWarnings("unchecked")
+    List<T> values() {
+        List<T> values = new ArrayList<>();
+        for (Object value : this.valuesById) {
+            if (value != null) {
+                values.add((T) value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Removes all accumulators.
+     */
+    void clear() {
+        this.valuesById = new Object[0];
+    }
+}
@@ -0,0 +1,46 @@
+package utils.parsers;
+
+/**
+ * Running total of one kind of amount, such as dividends or interest, in one currency.
+ * The amount is kept in cents.
+ */
+public class CurrencyTotal {
+    private final String currency;
+    private long cents;
+
+    /**
+     * Creates a zero total for a currency.
+     *
+     * @param currency the currency code.
+     */
+    CurrencyTotal(String currency) {
+        this.currency = currency;
+    }
+
+    /**
+     * Adds an amount to the total.
+     *
+     * @param cents the amount in cents.
+     */
+    void add(long cents) {
+        this.cents += cents;
+    }
+
+    /**
+     * Gets the currency this total is kept in.
+     *
+     * @return the currency code.
+     */
+    public String getCurrency() {
+        return this.currency;
+    }
+
+    /**
+     * Gets the total.
+     *
+     * @return the total in cents.
+     */
+    public long getCents() {
+        return this.cents;
+    }
+}
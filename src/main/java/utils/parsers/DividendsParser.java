@@ -1,7 +1,12 @@
 package utils.parsers;
 
+import app.models.SubAction;
+import java.io.IOException;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import utils.csv.CsvRow;
 
 /**
  * Singleton class responsible for parsing dividend data from CSV lines.
@@ -9,16 +14,16 @@ import java.util.HashMap;
  */
 public class DividendsParser extends Parser<String> {
     private static DividendsParser instance = null;
-    private HashMap<String, String> allData;
-    private HashMap<String, String> summarizedData;
-    private Dictionary<String, Integer> headerMap;
+    private RowStore rows;
+    private CurrencyTable<CurrencyTotal> totalsByCurrency;
+    private RowDecoder decoder;
 
     /**
      * Private constructor to initialize the data structures for storing dividend data.
      */
     private DividendsParser() {
-        this.allData = new HashMap<String, String>();
-        this.summarizedData = new HashMap<String, String>();
+        this.rows = new RowStore(true);
+        this.totalsByCurrency = new CurrencyTable<>(CurrencyTotal::new);
     }
 
     /**
@@ -41,65 +46,102 @@ public class DividendsParser extends Parser<String> {
      */
     @Override
     public void parse(String line) {
-        if (this.headerMap == null) {
+        parse(CsvRow.fromLine(line));
+    }
+
+    /**
+     * Parses a tokenized row of dividend data from the CSV file.
+     *
+     * @param row the tokenized row from the CSV file.
+     * @throws RuntimeException if the header map is not set.
+     */
+    @Override
+    public void parse(CsvRow row) {
+        if (this.decoder == null) {
             throw new RuntimeException("Header map not set for DividendsParser");
         }
-        int nameIndex = this.headerMap.get("Name");
-        int totalIndex = this.headerMap.get("Total");
-        int currencyIndex = this.headerMap.get("Currency (Total)");
-        String[] data = line.split(",");
-        handleDividendData(nameIndex, totalIndex, currencyIndex, data);
-        updateTotalDividends(totalIndex, currencyIndex, data);
+        long amountCents = Cents.parse(row, this.decoder.getTotalIndex());
+        int currencyId = Currencies.idOf(row, this.decoder.getCurrencyIndex());
+        handleDividendData(amountCents, currencyId, row);
+        updateTotalDividends(amountCents, currencyId);
+    }
+
+    /**
+     * Parses a tokenized row of dividend data from the CSV file.
+     * All dividend rows are handled the same way, so the sub-action is not needed.
+     *
+     * @param row       the tokenized row from the CSV file.
+     * @param subAction the sub-action of the row.
+     * @throws RuntimeException if the header map is not set.
+     */
+    @Override
+    public void parse(CsvRow row, SubAction subAction) {
+        parse(row);
     }
 
     /**
      * Handles the organization of dividend data for storage.
      *
-     * @param nameIndex     the index of the name in the CSV data.
-     * @param totalIndex    the index of the total in the CSV data.
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data          the parsed line data as an array of Strings.
+     * @param amountCents the total of the row in cents.
+     * @param currencyId  the id of the currency of the total.
+     * @param row         the tokenized row from the CSV file.
      */
-    private void handleDividendData(int nameIndex, int totalIndex, int currencyIndex, String[] data) {
-        String value = data[nameIndex].strip() + delimiter + data[totalIndex] + " " + data[currencyIndex];
-        int lineNumber = this.allData.size() + 1;
-        this.allData.put(String.valueOf(lineNumber), value);
+    private void handleDividendData(long amountCents, int currencyId, CsvRow row) {
+        this.rows.add(row, this.decoder, RowDecoder.MISSING, this.decoder.getNameIndex(), amountCents, currencyId);
     }
 
     /**
      * Updates the total dividends based on the parsed line data.
      *
-     * @param totalIndex the index of the total in the CSV data.
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data the parsed line data as an array of Strings.
+     * @param amountCents the total of the row in cents.
+     * @param currencyId  the id of the currency of the total.
      */
-    private void updateTotalDividends(int totalIndex, int currencyIndex, String[] data) {
-        String currency = data[currencyIndex];
-        Double currencyValue = Double.parseDouble(data[totalIndex]);
-        Double newValue = this.summarizedData.containsKey(currency) 
-                ? Double.parseDouble(this.summarizedData.get(currency)) + currencyValue 
-                : currencyValue;
-        this.summarizedData.put(currency, formatNumberValue(String.valueOf(newValue), currency));
+    private void updateTotalDividends(long amountCents, int currencyId) {
+        this.totalsByCurrency.get(currencyId).add(amountCents);
     }
 
     /**
      * Retrieves all parsed dividend data.
      *
-     * @return a HashMap containing all parsed dividend data.
+     * @return a read-only Map view of all parsed dividend data.
      */
     @Override
-    public HashMap<String, String> getAllData() {
-        return this.allData;
+    public Map<String, String> getAllData() {
+        return this.rows.asMap();
+    }
+
+    /**
+     * Gets the store holding the parsed dividend rows.
+     *
+     * @return the row store.
+     */
+    @Override
+    RowStore getRowStore() {
+        return this.rows;
+    }
+
+    /**
+     * Retrieves the total dividends of every currency seen by this parser.
+     *
+     * @return the totals, one per currency, ordered by currency id.
+     */
+    public List<CurrencyTotal> getCurrencyTotals() {
+        return this.totalsByCurrency.values();
     }
 
     /**
      * Retrieves summarized dividend data.
+     * The totals are formatted from {@link #getCurrencyTotals()} each time this method is called.
      *
-     * @return a HashMap containing summarized dividend data.
+     * @return a HashMap mapping each currency to its formatted total dividends.
      */
     @Override
     public HashMap<String, String> getSummarizedData() {
-        return this.summarizedData;
+        HashMap<String, String> summarizedData = new HashMap<>();
+        for (CurrencyTotal total : getCurrencyTotals()) {
+            summarizedData.put(total.getCurrency(), Cents.format(total.getCents()));
+        }
+        return summarizedData;
     }
 
     /**
@@ -107,17 +149,100 @@ public class DividendsParser extends Parser<String> {
      */
     @Override
     public void clearData() {
-        this.allData.clear();
-        this.summarizedData.clear();
+        this.rows.clear();
+        this.totalsByCurrency.clear();
+    }
+
+    /**
+     * Creates a new, empty dividend parser that shares this parser's row decoder.
+     *
+     * @return a new DividendsParser with no data.
+     */
+    @Override
+    public DividendsParser createEmpty() {
+        DividendsParser parser = new DividendsParser();
+        parser.setRowDecoder(this.decoder);
+        return parser;
+    }
+
+    /**
+     * Appends the dividend rows and totals of another DividendsParser to this parser.
+     *
+     * @param other the parser whose data should be appended.
+     * @throws IllegalArgumentException if the other parser is not a DividendsParser.
+     */
+    @Override
+    public void merge(Parser<?> other) {
+        if (!(other instanceof DividendsParser source)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into DividendsParser");
+        }
+        this.rows.append(source.rows);
+        for (CurrencyTotal total : source.getCurrencyTotals()) {
+            this.totalsByCurrency.get(Currencies.idOf(total.getCurrency())).add(total.getCents());
+        }
+    }
+
+    /**
+     * Estimates the heap retained by the dividend rows and totals.
+     *
+     * @return the estimated size in bytes.
+     */
+    @Override
+    long estimateRetainedBytes() {
+        return this.rows.estimateRetainedBytes() + (long) getCurrencyTotals().size() * ESTIMATED_TOTALS_BYTES;
+    }
+
+    /**
+     * Writes the dividend rows and totals to a snapshot.
+     *
+     * @param out the snapshot to write to.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    @Override
+    void writeSnapshot(ReportSnapshot.Output out) throws IOException {
+        this.rows.writeSnapshot(out);
+        List<CurrencyTotal> totals = getCurrencyTotals();
+        out.putInt(totals.size());
+        for (CurrencyTotal total : totals) {
+            out.putCurrency(total.getCurrency());
+            out.putLong(total.getCents());
+        }
+    }
+
+    /**
+     * Reads the dividend rows and totals of a snapshot into this parser.
+     *
+     * @param in the snapshot to read from.
+     */
+    @Override
+    void readSnapshot(ReportSnapshot.Input in) {
+        this.rows.readSnapshot(in);
+        int currencyCount = in.getInt();
+        for (int i = 0; i < currencyCount; i++) {
+            CurrencyTotal total = this.totalsByCurrency.get(in.getCurrency());
+            total.add(in.getLong());
+        }
     }
 
     /**
      * Sets the header mapping for the parser.
+     * The mapping is resolved into a {@link RowDecoder} once, so rows are parsed without looking up column names.
      *
-     * @param headerMap a Dictionary mapping header names to their indices.
+     * @param headerMap a Dictionary mapping header names to their indices, or null to unset it.
+     * @throws IllegalArgumentException if the mapping lacks the Total or Currency (Total) column.
      */
     @Override
     public void setHeaderMap(Dictionary<String, Integer> headerMap) {
-        this.headerMap = headerMap;
+        this.decoder = headerMap == null ? null : RowDecoder.fromHeaderMap(headerMap);
+    }
+
+    /**
+     * Sets the row decoder resolved from the header of the file being parsed.
+     *
+     * @param decoder the decoder providing the indices of the columns.
+     */
+    @Override
+    public void setRowDecoder(RowDecoder decoder) {
+        this.decoder = decoder;
     }
 }
@@ -0,0 +1,84 @@
+package utils.parsers;
+
+/**
+ * Running totals of the buy and sell orders in one currency.
+ * Amounts are kept in cents; the profit is derived from the income and expenses when it is read.
+ */
+public class OrderTotals {
+    private final String currency;
+    private long incomeCents;
+    private long expensesCents;
+
+    /**
+     * Creates zero totals for a currency.
+     *
+     * @param currency the currency code.
+     */
+    OrderTotals(String currency) {
+        this.currency = currency;
+    }
+
+    /**
+     * Adds the total of a sell order.
+     *
+     * @param cents the amount in cents.
+     */
+    void addIncome(long cents) {
+        this.incomeCents += cents;
+    }
+
+    /**
+     * Adds the total of a buy order.
+     *
+     * @param cents the amount in cents.
+     */
+    void addExpenses(long cents) {
+        this.expensesCents += cents;
+    }
+
+    /**
+     * Adds the totals of another accumulator for the same currency.
+     *
+     * @param other the totals to add.
+     */
+    void add(OrderTotals other) {
+        this.incomeCents += other.incomeCents;
+        this.expensesCents += other.expensesCents;
+    }
+
+    /**
+     * Gets the currency these totals are kept in.
+     *
+     * @return the currency code.
+     */
+    public String getCurrency() {
+        return this.currency;
+    }
+
+    /**
+     * Gets the total of all sell orders.
+     *
+     * @return the income in cents.
+     */
+    public long getIncomeCents() {
+        return this.incomeCents;
+    }
+
+    /**
+     * Gets the total of all buy orders.
+     *
+     * @return the expenses in cents.
+     */
+    public long getExpensesCents() {
+        return this.expensesCents;
+    }
+
+    /**
+     * Gets the profit, which is the income minus the expenses.
+     *
+     * @return the profit in cents.
+     */
+    public long getProfitCents() {
+        return this.incomeCents - this.expensesCents;
+    }
+}
@@ -1,7 +1,12 @@
 package utils.parsers;
 
+import app.models.SubAction;
+import java.io.IOException;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import utils.csv.CsvRow;
 
 /**
  * Singleton class responsible for parsing order data from CSV lines.
@@ -9,16 +14,16 @@ import java.util.HashMap;
  */
 public class OrdersParser extends Parser<HashMap<String, String>> {
     private static OrdersParser instance = null;
-    private HashMap<String, String> allData;
-    private HashMap<String, HashMap<String, String>> summarizedData;
-    private Dictionary<String, Integer> headerMap;
+    private RowStore rows;
+    private CurrencyTable<OrderTotals> totalsByCurrency;
+    private RowDecoder decoder;
 
     /**
      * Private constructor to initialize data structures for storing order data.
      */
     private OrdersParser() {
-        this.allData = new HashMap<>();
-        this.summarizedData = new HashMap<>();
+        this.rows = new RowStore(false);
+        this.totalsByCurrency = new CurrencyTable<>(OrderTotals::new);
     }
 
     /**
@@ -35,180 +40,245 @@ public class OrdersParser extends Parser<HashMap<String, String>> {
 
     /**
      * Parses a line of order data from the CSV file.
+     * The order side is recognized by searching the whole line for "buy" or "sell".
      *
      * @param line a String representing a line from the CSV file.
      * @throws RuntimeException if the header map is not set or if an invalid action type is found.
      */
     @Override
     public void parse(String line) {
-        if (this.headerMap == null) {
+        if (this.decoder == null) {
             throw new RuntimeException("Header map not set for OrdersParser");
         }
-        int actionIndex = this.headerMap.get("Action");
-        int nameIndex = this.headerMap.get("Name"); 
-        int totalIndex = this.headerMap.get("Total");
-        int currencyIndex = this.headerMap.get("Currency (Total)");
-        String[] data = line.split(",");
-        addDefaultValuesForCurrencies(currencyIndex, data);
-
-        if (line.contains("buy")) {
-            handleBuyOrder(actionIndex, nameIndex, totalIndex, currencyIndex, data);
+        parseOrder(CsvRow.fromLine(line), line.contains("buy"), line.contains("sell"));
+    }
+
+    /**
+     * Parses a tokenized row of order data from the CSV file.
+     * The order side is recognized from the Action field only.
+     *
+     * @param row the tokenized row from the CSV file.
+     * @throws RuntimeException if the header map is not set, has no Action column, or if an invalid action type is found.
+     */
+    @Override
+    public void parse(CsvRow row) {
+        if (this.decoder == null) {
+            throw new RuntimeException("Header map not set for OrdersParser");
+        }
+        if (this.decoder.getActionIndex() == RowDecoder.MISSING) {
+            throw new RuntimeException("Header map for OrdersParser has no Action column");
+        }
+        parse(row, SubAction.orderFromString(row.getString(this.decoder.getActionIndex())));
+    }
+
+    /**
+     * Parses a tokenized row of order data whose side has already been classified.
+     *
+     * @param row       the tokenized row from the CSV file.
+     * @param subAction the sub-action of the row.
+     * @throws RuntimeException if the header map is not set or if the sub-action is not a buy or a sell.
+     */
+    @Override
+    public void parse(CsvRow row, SubAction subAction) {
+        if (this.decoder == null) {
+            throw new RuntimeException("Header map not set for OrdersParser");
+        }
+        parseOrder(row, subAction == SubAction.BUY, subAction == SubAction.SELL);
+    }
+
+    /**
+     * Dispatches an order row to the buy or sell handling.
+     *
+     * @param row    the tokenized row from the CSV file.
+     * @param isBuy  whether the row is a buy order.
+     * @param isSell whether the row is a sell order.
+     * @throws RuntimeException if the row is neither a buy nor a sell order.
+     */
+    private void parseOrder(CsvRow row, boolean isBuy, boolean isSell) {
+        if (isBuy) {
+            handleBuyOrder(row);
             return;
         } 
-        if (line.contains("sell")) {
-            handleSellOrder(actionIndex, nameIndex, totalIndex, currencyIndex, data);
+        if (isSell) {
+            handleSellOrder(row);
             return;
         }
         throw new RuntimeException("Invalid action type in OrdersParser");
     }
 
     /**
-     * Adds default values for the specified currency if they do not already exist.
-     * Ensures that the "totalIncome" and "totalExpenses" keys are present
-     * in the summarized data for the given currency, initializing them to "0.00" if they are absent.
+     * Handles the logic for processing sell orders.
      *
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data          the parsed line data as an array of Strings.
+     * @param row the tokenized row from the CSV file.
      */
-    private void addDefaultValuesForCurrencies(int currencyIndex, String[] data) {
-        String currency = data[currencyIndex];
-        if (!this.summarizedData.containsKey(currency)) {
-            HashMap<String, String> currencyData = new HashMap<>();
-            currencyData.put("totalIncome", "0.00");
-            currencyData.put("totalExpenses", "0.00");
-            currencyData.put("totalProfit", "0.00");
-            this.summarizedData.put(currency, currencyData);
-        }
+    private void handleSellOrder(CsvRow row) {
+        long amountCents = Cents.parse(row, this.decoder.getTotalIndex());
+        int currencyId = Currencies.idOf(row, this.decoder.getCurrencyIndex());
+        this.rows.add(row, this.decoder, this.decoder.getActionIndex(), this.decoder.getNameIndex(), amountCents, currencyId);
+        this.totalsByCurrency.get(currencyId).addIncome(amountCents);
     }
 
     /**
-     * Handles the logic for processing sell orders.
+     * Handles the logic for processing buy orders.
      *
-     * @param actionIndex   the index of the action in the CSV data.
-     * @param nameIndex     the index of the name in the CSV data.
-     * @param totalIndex    the index of the total in the CSV data.
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data          the parsed line data as an array of Strings.
+     * @param row the tokenized row from the CSV file.
      */
-    private void handleSellOrder(int actionIndex, int nameIndex, int totalIndex, int currencyIndex, String[] data) {
-        String value = data[actionIndex] + delimiter + data[nameIndex] + delimiter + data[totalIndex] + " " + data[currencyIndex];
-        int lineNumber = this.allData.size() + 1;
-        this.allData.put(String.valueOf(lineNumber), value);
-        updateTotalIncome(totalIndex, currencyIndex, data);
-        updateTotalProfit(currencyIndex, data);
+    private void handleBuyOrder(CsvRow row) {
+        long amountCents = Cents.parse(row, this.decoder.getTotalIndex());
+        int currencyId = Currencies.idOf(row, this.decoder.getCurrencyIndex());
+        this.rows.add(row, this.decoder, this.decoder.getActionIndex(), this.decoder.getNameIndex(), amountCents, currencyId);
+        this.totalsByCurrency.get(currencyId).addExpenses(amountCents);
     }
 
     /**
-     * Updates the total income based on a sell order.
+     * Retrieves all parsed order data.
      *
-     * @param totalIndex the index of the total in the CSV data.
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data      the parsed line data as an array of Strings.
+     * @return a read-only Map view of all parsed order data.
      */
-    private void updateTotalIncome(int totalIndex, int currencyIndex, String[] data) {
-        String currency = data[currencyIndex];
-        String amount = data[totalIndex];
-
-        if (this.summarizedData.containsKey(currency)) {
-            double currentTotal = Double.parseDouble(this.summarizedData.get(currency).get("totalIncome"));
-            currentTotal += Double.parseDouble(amount);
-            this.summarizedData.get(currency).put("totalIncome", formatNumberValue(String.valueOf(currentTotal), currency));
-        } else {
-            HashMap<String, String> currencyData = new HashMap<>();
-            currencyData.put("totalIncome", formatNumberValue(amount, currency));
-            this.summarizedData.put(currency, currencyData);
-        }
+    @Override
+    public Map<String, String> getAllData() {
+        return this.rows.asMap();
     }
 
     /**
-     * Handles the logic for processing buy orders.
+     * Gets the store holding the parsed order rows.
      *
-     * @param actionIndex   the index of the action in the CSV data.
-     * @param nameIndex     the index of the name in the CSV data.
-     * @param totalIndex    the index of the total in the CSV data.
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data          the parsed line data as an array of Strings.
+     * @return the row store.
      */
-    private void handleBuyOrder(int actionIndex, int nameIndex, int totalIndex, int currencyIndex, String[] data) {
-        String value = data[actionIndex] + delimiter + data[nameIndex] + delimiter + data[totalIndex] + " " + data[currencyIndex];
-        int lineNumber = this.allData.size() + 1;
-        this.allData.put(String.valueOf(lineNumber), value);
-        updateTotalExpenses(totalIndex, currencyIndex, data);
-        updateTotalProfit(currencyIndex, data);
+    @Override
+    RowStore getRowStore() {
+        return this.rows;
     }
 
     /**
-     * Updates the total expenses based on a buy order.
+     * Retrieves the order totals of every currency seen by this parser.
      *
-     * @param totalIndex the index of the total in the CSV data.
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data      the parsed line data as an array of Strings.
+     * @return the totals, one per currency, ordered by currency id.
      */
-    private void updateTotalExpenses(int totalIndex, int currencyIndex, String[] data) {
-        String currency = data[currencyIndex];
-        String amount = data[totalIndex];
+    public List<OrderTotals> getCurrencyTotals() {
+        return this.totalsByCurrency.values();
+    }
 
-        if (this.summarizedData.containsKey(currency)) {
-            double currentTotal = Double.parseDouble(this.summarizedData.get(currency).get("totalExpenses"));
-            currentTotal += Double.parseDouble(amount);
-            this.summarizedData.get(currency).put("totalExpenses", formatNumberValue(String.valueOf(currentTotal), currency));
-        } else {
+    /**
+     * Retrieves summarized order data.
+     * The totals are formatted from {@link #getCurrencyTotals()} each time this method is called.
+     *
+     * @return a HashMap mapping each currency to its formatted "totalIncome", "totalExpenses" and "totalProfit".
+     */
+    @Override
+    public HashMap<String, HashMap<String, String>> getSummarizedData() {
+        HashMap<String, HashMap<String, String>> summarizedData = new HashMap<>();
+        for (OrderTotals totals : getCurrencyTotals()) {
             HashMap<String, String> currencyData = new HashMap<>();
-            currencyData.put("totalExpenses", formatNumberValue(amount, currency));
-            this.summarizedData.put(currency, currencyData);
+            currencyData.put("totalIncome", Cents.format(totals.getIncomeCents()));
+            currencyData.put("totalExpenses", Cents.format(totals.getExpensesCents()));
+            currencyData.put("totalProfit", Cents.format(totals.getProfitCents()));
+            summarizedData.put(totals.getCurrency(), currencyData);
         }
+        return summarizedData;
+    }
+
+    /**
+     * Clears all stored order data and resets totals.
+     */
+    @Override
+    public void clearData() {
+        this.rows.clear();
+        this.totalsByCurrency.clear();
     }
 
     /**
-     * Updates the total profit based on current income and expenses.
+     * Creates a new, empty order parser that shares this parser's row decoder.
      *
-     * @param currencyIndex the index of the currency in the CSV data.
-     * @param data          the parsed line data as an array of Strings.
+     * @return a new OrdersParser with no data.
      */
-    private void updateTotalProfit(int currencyIndex, String[] data) {
-        String currency = data[currencyIndex];
-        
-        Double totalIncome = Double.parseDouble(this.summarizedData.get(currency).get("totalIncome"));
-        Double totalExpenses = Double.parseDouble(this.summarizedData.get(currency).get("totalExpenses"));
-        this.summarizedData.get(currency).put("totalProfit", formatNumberValue(String.valueOf(totalIncome - totalExpenses), currency));
+    @Override
+    public OrdersParser createEmpty() {
+        OrdersParser parser = new OrdersParser();
+        parser.setRowDecoder(this.decoder);
+        return parser;
     }
 
     /**
-     * Retrieves all parsed order data.
+     * Appends the order rows and totals of another OrdersParser to this parser.
      *
-     * @return a HashMap containing all parsed order data.
+     * @param other the parser whose data should be appended.
+     * @throws IllegalArgumentException if the other parser is not a OrdersParser.
      */
     @Override
-    public HashMap<String, String> getAllData() {
-        return this.allData;
+    public void merge(Parser<?> other) {
+        if (!(other instanceof OrdersParser source)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into OrdersParser");
+        }
+        this.rows.append(source.rows);
+        for (OrderTotals totals : source.getCurrencyTotals()) {
+            this.totalsByCurrency.get(Currencies.idOf(totals.getCurrency())).add(totals);
+        }
     }
 
     /**
-     * Retrieves summarized order data.
+     * Estimates the heap retained by the order rows and totals.
      *
-     * @return a HashMap containing summarized order data.
+     * @return the estimated size in bytes.
      */
     @Override
-    public HashMap<String, HashMap<String, String>> getSummarizedData() {
-        return this.summarizedData;
+    long estimateRetainedBytes() {
+        return this.rows.estimateRetainedBytes() + (long) getCurrencyTotals().size() * ESTIMATED_TOTALS_BYTES;
     }
 
     /**
-     * Clears all stored order data and resets totals.
+     * Writes the order rows and totals to a snapshot.
+     *
+     * @param out the snapshot to write to.
+     * @throws IOException if the snapshot cannot be written.
      */
     @Override
-    public void clearData() {
-        this.allData.clear();
-        this.summarizedData.clear();
+    void writeSnapshot(ReportSnapshot.Output out) throws IOException {
+        this.rows.writeSnapshot(out);
+        List<OrderTotals> totals = getCurrencyTotals();
+        out.putInt(totals.size());
+        for (OrderTotals total : totals) {
+            out.putCurrency(total.getCurrency());
+            out.putLong(total.getIncomeCents());
+            out.putLong(total.getExpensesCents());
+        }
+    }
+
+    /**
+     * Reads the order rows and totals of a snapshot into this parser.
+     *
+     * @param in the snapshot to read from.
+     */
+    @Override
+    void readSnapshot(ReportSnapshot.Input in) {
+        this.rows.readSnapshot(in);
+        int currencyCount = in.getInt();
+        for (int i = 0; i < currencyCount; i++) {
+            OrderTotals total = this.totalsByCurrency.get(in.getCurrency());
+            total.addIncome(in.getLong());
+            total.addExpenses(in.getLong());
+        }
     }
 
     /**
      * Sets the header mapping for the parser.
+     * The mapping is resolved into a {@link RowDecoder} once, so rows are parsed without looking up column names.
      *
-     * @param headerMap a Dictionary mapping header names to their indices.
+     * @param headerMap a Dictionary mapping header names to their indices, or null to unset it.
+     * @throws IllegalArgumentException if the mapping lacks the Total or Currency (Total) column.
      */
     @Override
     public void setHeaderMap(Dictionary<String, Integer> headerMap) {
-        this.headerMap = headerMap;
+        this.decoder = headerMap == null ? null : RowDecoder.fromHeaderMap(headerMap);
+    }
+
+    /**
+     * Sets the row decoder resolved from the header of the file being parsed.
+     *
+     * @param decoder the decoder providing the indices of the columns.
+     */
+    @Override
+    public void setRowDecoder(RowDecoder decoder) {
+        this.decoder = decoder;
     }
 }
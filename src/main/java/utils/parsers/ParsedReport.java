@@ -0,0 +1,156 @@
+package utils.parsers;
+
+import app.models.ActionType;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parsed data of one CSV file, which no longer changes once it is created.
+ * It owns a set of parsers of its own, separate from the shared singleton parsers, and only gives read
+ * access to them: the rows as read-only maps and the totals as lists that cannot be modified. It can
+ * therefore be cached and shown on any thread while other files are parsed.
+ */
+public final class ParsedReport {
+    private final String fileId;
+    private final String checksum;
+    private final EnumMap<ActionType, Parser<?>> parsers;
+    private final List<CurrencyTotal> dividendTotals;
+    private final List<CurrencyTotal> interestTotals;
+    private final List<OrderTotals> orderTotals;
+    private final List<TransactionTotals> transactionTotals;
+    private final long estimatedBytes;
+
+    /**
+     * Creates a report from parsers that hold the data of a file. The report takes the parsers over;
+     * they must not be used for anything else afterwards.
+     *
+     * @param fileId   the ID of the file.
+     * @param checksum the checksum of the file the data was parsed from.
+     * @param parsers  the parsers holding the data, one for every action type.
+     * @throws IllegalArgumentException if a parser is missing or of the wrong kind.
+     */
+    public ParsedReport(String fileId, String checksum, Map<ActionType, Parser<?>> parsers) {
+        this.fileId = fileId;
+        this.checksum = checksum;
+        this.parsers = new EnumMap<>(parsers);
+        if (!(this.parsers.get(ActionType.DIVIDEND) instanceof DividendsParser dividends)
+                || !(this.parsers.get(ActionType.INTEREST) instanceof InterestParser interest)
+                || !(this.parsers.get(ActionType.ORDER) instanceof OrdersParser orders)
+                || !(this.parsers.get(ActionType.TRANSACTION) instanceof TransactionsParser transactions)) {
+            throw new IllegalArgumentException("A report needs one parser of the right kind for every action type");
+        }
+        this.dividendTotals = List.copyOf(dividends.getCurrencyTotals());
+        this.interestTotals = List.copyOf(interest.getCurrencyTotals());
+        this.orderTotals = List.copyOf(orders.getCurrencyTotals());
+        this.transactionTotals = List.copyOf(transactions.getCurrencyTotals());
+        long bytes = 0;
+        for (Parser<?> parser : this.parsers.values()) {
+            bytes += parser.estimateRetainedBytes();
+        }
+        this.estimatedBytes = bytes;
+    }
+
+    /**
+     * Gets the ID of the file the report was parsed from.
+     *
+     * @return the file ID.
+     */
+    public String getFileId() {
+        return this.fileId;
+    }
+
+    /**
+     * Gets the checksum of the file the report was parsed from.
+     *
+     * @return the SHA-256 checksum, as a hex string.
+     */
+    public String getChecksum() {
+        return this.checksum;
+    }
+
+    /**
+     * Gets the rows of one action type.
+     *
+     * @param actionType the action type.
+     * @return a read-only map of the rows, keyed by line numbers starting at "1", as given by {@link Parser#getAllData()}.
+     */
+    public Map<String, String> getAllData(ActionType actionType) {
+        return this.parsers.get(actionType).getAllData();
+    }
+
+    /**
+     * Gets the number of rows of one action type.
+     *
+     * @param actionType the action type.
+     * @return the number of rows.
+     */
+    public int getRowCount(ActionType actionType) {
+        return this.parsers.get(actionType).getRowStore().size();
+    }
+
+    /**
+     * Builds the text shown for one row, without building the text of any other row.
+     *
+     * @param actionType the action type.
+     * @param index      the index of the row, starting at 0.
+     * @return the text of the row, the same as the value of row {@code index + 1} in {@link #getAllData(ActionType)}.
+     */
+    public String describeRow(ActionType actionType, int index) {
+        return this.parsers.get(actionType).getRowStore().describe(index);
+    }
+
+    /**
+     * Gets the dividend totals.
+     *
+     * @return the totals, one per currency.
+     */
+    public List<CurrencyTotal> getDividendTotals() {
+        return this.dividendTotals;
+    }
+
+    /**
+     * Gets the interest totals.
+     *
+     * @return the totals, one per currency.
+     */
+    public List<CurrencyTotal> getInterestTotals() {
+        return this.interestTotals;
+    }
+
+    /**
+     * Gets the order totals.
+     *
+     * @return the totals, one per currency.
+     */
+    public List<OrderTotals> getOrderTotals() {
+        return this.orderTotals;
+    }
+
+    /**
+     * Gets the deposit and withdrawal totals.
+     *
+     * @return the totals, one per currency.
+     */
+    public List<TransactionTotals> getTransactionTotals() {
+        return this.transactionTotals;
+    }
+
+    /**
+     * Gets the estimated heap retained by the report.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long getEstimatedBytes() {
+        return this.estimatedBytes;
+    }
+
+    /**
+     * Appends the data of the report to other parsers, for example to fill the shared parsers.
+     *
+     * @param targets the parsers to append to, keyed by the action type they handle.
+     */
+    public void mergeInto(Map<ActionType, Parser<?>> targets) {
+        targets.forEach((actionType, parser) -> parser.merge(this.parsers.get(actionType)));
+    }
+}
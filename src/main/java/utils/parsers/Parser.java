@@ -1,7 +1,11 @@
 package utils.parsers;
 
+import app.models.SubAction;
+import java.io.IOException;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Map;
+import utils.csv.CsvRow;
 
 /**
  * Abstract base class for parsing various types of data from CSV lines.
@@ -11,6 +15,7 @@ import java.util.HashMap;
  */
 public abstract class Parser<T> {
     protected static final String delimiter = " ---> ";
+    static final int ESTIMATED_TOTALS_BYTES = 64;
 
     /**
      * Parses a line of data from the CSV file.
@@ -20,6 +25,27 @@ public abstract class Parser<T> {
      */
     public abstract void parse(String line);
 
+    /**
+     * Parses a row that has already been split into fields.
+     * This is the entry point used while reading a whole file: the row is tokenized once by the reader
+     * and the same reusable view is passed to whichever parser the row belongs to.
+     * Implementations must not keep a reference to the row after the call returns.
+     *
+     * @param row the tokenized row from the CSV file.
+     */
+    public abstract void parse(CsvRow row);
+
+    /**
+     * Parses a row whose action has already been classified.
+     * This is what {@code CsvManager} calls for every row: the {@link ActionClassifier} has already determined
+     * the sub-action from the Action field, so the parser does not have to look at the action again.
+     * Implementations must not keep a reference to the row after the call returns.
+     *
+     * @param row       the tokenized row from the CSV file.
+     * @param subAction the sub-action of the row, belonging to the action type handled by this parser.
+     */
+    public abstract void parse(CsvRow row, SubAction subAction);
+
     /**
      * Clears all parsed data.
      * Resets the internal data structures, preparing the parser for a fresh parsing session.
@@ -34,13 +60,23 @@ public abstract class Parser<T> {
      */
     public abstract void setHeaderMap(Dictionary<String, Integer> headerMap);
 
+    /**
+     * Sets the row decoder resolved from the header of the file being parsed.
+     * The decoder replaces any header mapping set before and is shared by all parsers of the file.
+     *
+     * @param decoder the decoder providing the indices of the columns.
+     */
+    public abstract void setRowDecoder(RowDecoder decoder);
+
     /**
      * Retrieves all parsed data in a map format.
      * Each entry represents an individual line parsed from the CSV and its associated data.
+     * The rows are kept in a {@link RowStore}; the map is a read-only view over it that iterates in row order
+     * and builds each value only when it is read.
      *
-     * @return a HashMap containing all parsed data from the CSV, organized by line identifiers.
+     * @return a Map containing all parsed data from the CSV, keyed by line numbers starting at "1".
      */
-    public abstract HashMap<String, String> getAllData();
+    public abstract Map<String, String> getAllData();
 
     /**
      * Retrieves summarized data, typically aggregating key metrics across all parsed entries.
@@ -50,6 +86,56 @@ public abstract class Parser<T> {
      */
     public abstract HashMap<String, T> getSummarizedData();
 
+    /**
+     * Creates a new, empty parser of the same kind that shares this parser's row decoder.
+     * This is used to parse separate parts of one file on different threads; the partial results
+     * are then combined with {@link #merge(Parser)}.
+     *
+     * @return a new parser with no data, independent of the singleton instance.
+     */
+    public abstract Parser<T> createEmpty();
+
+    /**
+     * Appends all data of another parser of the same kind to this parser.
+     * Rows of the other parser are numbered after the rows already held by this parser,
+     * and totals are added together per currency. Merging the parsers of consecutive parts of a file
+     * in file order therefore gives the same result as parsing the whole file with one parser.
+     *
+     * @param other the parser whose data should be appended.
+     * @throws IllegalArgumentException if the other parser is of a different kind.
+     */
+    public abstract void merge(Parser<?> other);
+
+    /**
+     * Gets the store holding the rows of this parser, for reading single rows by their index.
+     *
+     * @return the row store.
+     */
+    abstract RowStore getRowStore();
+
+    /**
+     * Estimates the heap retained by the rows and totals of this parser.
+     *
+     * @return the estimated size in bytes.
+     */
+    abstract long estimateRetainedBytes();
+
+    /**
+     * Writes the rows and totals of this parser to a snapshot.
+     *
+     * @param out the snapshot to write to.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    abstract void writeSnapshot(ReportSnapshot.Output out) throws IOException;
+
+    /**
+     * Reads rows and totals written by {@link #writeSnapshot(ReportSnapshot.Output)} into this parser,
+     * which must be empty.
+     *
+     * @param in the snapshot to read from.
+     */
+    abstract void readSnapshot(ReportSnapshot.Input in);
+
     /**
      * Formats a number represented as a string into a standardized decimal format.
      * This method ensures consistent decimal formatting, typically to two decimal places,
@@ -0,0 +1,561 @@
+package utils.parsers;
+
+import app.models.ActionType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Compact binary snapshot of the parsed data of a CSV file, stored next to the file so that reopening a
+ * report does not have to parse it again.
+ *
+ * <p>A snapshot holds the rows and totals of every parser. The columns of the {@link RowStore}s are written
+ * as they are, chunk by chunk, and read back with bulk copies from a memory-mapped file. Symbol and currency
+ * ids are only valid within one session, so the snapshot carries its own tables of the strings it uses, and
+ * their ids are translated to the ids of the current session when it is read.</p>
+ *
+ * <p>A snapshot is only used for the exact file it was written for: it records the size, modification time
+ * and checksum of the file, and is ignored as soon as any of them differs.</p>
+ */
+public final class ReportSnapshot {
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String PART_SUFFIX = ".part";
+    private static final int MAGIC = 0x54323132; // "T212"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int NONE = -1;
+
+    private ReportSnapshot() { }
+
+    /**
+     * Identifies the content of a CSV file a snapshot was written for.
+     */
+    public static final class Key {
+        private final long size;
+        private final long modifiedMillis;
+        private final String checksum;
+
+        /**
+         * Creates a key.
+         *
+         * @param size           the size of the file in bytes.
+         * @param modifiedMillis the modification time of the file in epoch milliseconds.
+         * @param checksum       the checksum of the file.
+         */
+        public Key(long size, long modifiedMillis, String checksum) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Creates the key of a file as it is now.
+         *
+         * @param file     the CSV file.
+         * @param checksum the checksum of the file.
+         * @return the key.
+         * @throws IOException if the attributes of the file cannot be read.
+         */
+        public static Key of(Path file, String checksum) throws IOException {
+            return new Key(Files.size(file), Files.getLastModifiedTime(file).toMillis(), checksum);
+        }
+
+        /**
+         * Checks whether another key identifies the same content.
+         *
+         * @param other the other key.
+         * @return true if the size, modification time and checksum are all equal.
+         */
+        private boolean matches(Key other) {
+            return this.size == other.size && this.modifiedMillis == other.modifiedMillis && this.checksum.equals(other.checksum);
+        }
+    }
+
+    /**
+     * Gets the path of the snapshot of a CSV file.
+     *
+     * @param file the CSV file.
+     * @return the path of the snapshot.
+     */
+    public static Path snapshotFileOf(Path file) {
+        return file.resolveSibling(file.getFileName() + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Writes the snapshot of the parsed data of a CSV file, replacing an older one atomically.
+     *
+     * @param file    the CSV file the data was parsed from.
+     * @param key     the key of the file when it was parsed.
+     * @param parsers the parsers holding the data, keyed by the action type they handle.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public static void write(Path file, Key key, Map<ActionType, Parser<?>> parsers) throws IOException {
+        Path snapshot = snapshotFileOf(file);
+        Path partFile = snapshot.resolveSibling(snapshot.getFileName() + PART_SUFFIX);
+        try (Output out = new Output(FileChannel.open(partFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(key.size);
+            out.putLong(key.modifiedMillis);
+            out.putString(key.checksum);
+            long tablesOffsetPosition = out.position();
+            out.putLong(0);
+            out.putInt(parsers.size());
+            for (Map.Entry<ActionType, Parser<?>> entry : parsers.entrySet()) {
+                out.putInt(entry.getKey().ordinal());
+                entry.getValue().writeSnapshot(out);
+            }
+            long tablesOffset = out.position();
+            out.putTable(out.symbols);
+            out.putTable(out.currencies);
+            out.patchLong(tablesOffsetPosition, tablesOffset);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        try {
+            Files.move(partFile, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the snapshot of a CSV file into empty parsers, if there is one for the given key.
+     *
+     * @param file    the CSV file.
+     * @param key     the key of the file as it is now.
+     * @param parsers empty parsers to fill, keyed by the action type they handle.
+     * @return true if the parsers now hold the data of the file; false if there is no snapshot for the key,
+     *         in which case the parsers were not touched.
+     * @throws IOException if the snapshot cannot be read or is damaged; the parsers may then be partly filled.
+     */
+    public static boolean read(Path file, Key key, Map<ActionType, Parser<?>> parsers) throws IOException {
+        Path snapshot = snapshotFileOf(file);
+        if (!Files.exists(snapshot)) {
+            return false;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return false;
+            }
+            Input in = new Input(buffer);
+            Key written = new Key(buffer.getLong(), buffer.getLong(), in.getString());
+            if (!written.matches(key)) {
+                return false;
+            }
+            in.readTables(Math.toIntExact(buffer.getLong()));
+            int parserCount = buffer.getInt();
+            ActionType[] actionTypes = ActionType.values();
+            for (int i = 0; i < parserCount; i++) {
+                Parser<?> parser = parsers.get(actionTypes[buffer.getInt()]);
+                if (parser == null) {
+                    throw new IOException("The snapshot " + snapshot + " holds data of an unknown parser.");
+                }
+                parser.readSnapshot(in);
+            }
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException e) {
+            throw new IOException("The snapshot " + snapshot + " is damaged.", e);
+        }
+    }
+
+    /**
+     * Writes the data of a snapshot to a file through a buffer, and collects the symbols and currencies used.
+     */
+    static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final LocalTable symbols = new LocalTable(SymbolTable::get);
+        private final LocalTable currencies = new LocalTable(Currencies::codeOf);
+        private long flushed;
+
+        /**
+         * Creates an output.
+         *
+         * @param channel the channel of the file to write.
+         */
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes an int.
+         *
+         * @param value the value.
+         * @throws IOException if the file cannot be written.
+         */
+        void putInt(int value) throws IOException {
+            ensureRoom(Integer.BYTES);
+            this.buffer.putInt(value);
+        }
+
+        /**
+         * Writes a long.
+         *
+         * @param value the value.
+         * @throws IOException if the file cannot be written.
+         */
+        void putLong(long value) throws IOException {
+            ensureRoom(Long.BYTES);
+            this.buffer.putLong(value);
+        }
+
+        /**
+         * Writes a string as its length followed by its UTF-8 bytes.
+         *
+         * @param value the string.
+         * @throws IOException if the file cannot be written.
+         */
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int written = 0;
+            while (written < bytes.length) {
+                ensureRoom(1);
+                int length = Math.min(this.buffer.remaining(), bytes.length - written);
+                this.buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        /**
+         * Writes the id of a currency of the session as the id it has in the snapshot.
+         *
+         * @param currency the currency code.
+         * @throws IOException if the file cannot be written.
+         */
+        void putCurrency(String currency) throws IOException {
+            putInt(this.currencies.localIdOf(Currencies.idOf(currency)));
+        }
+
+        /**
+         * Writes the first values of a column.
+         *
+         * @param values the column.
+         * @param count  the number of values to write.
+         * @throws IOException if the file cannot be written.
+         */
+        void putLongs(long[] values, int count) throws IOException {
+            int written = 0;
+            while (written < count) {
+                ensureRoom(Long.BYTES);
+                int length = Math.min(this.buffer.remaining() / Long.BYTES, count - written);
+                this.buffer.asLongBuffer().put(values, written, length);
+                this.buffer.position(this.buffer.position() + length * Long.BYTES);
+                written += length;
+            }
+        }
+
+        /**
+         * Writes the first values of a column.
+         *
+         * @param values the column.
+         * @param count  the number of values to write.
+         * @throws IOException if the file cannot be written.
+         */
+        void putBytes(byte[] values, int count) throws IOException {
+            int written = 0;
+            while (written < count) {
+                ensureRoom(1);
+                int length = Math.min(this.buffer.remaining(), count - written);
+                this.buffer.put(values, written, length);
+                written += length;
+            }
+        }
+
+        /**
+         * Writes the first values of a column of symbol ids, as the ids the symbols have in the snapshot.
+         *
+         * @param ids   the column, in which -1 stands for no symbol.
+         * @param count the number of values to write.
+         * @throws IOException if the file cannot be written.
+         */
+        void putSymbols(int[] ids, int count) throws IOException {
+            putLocalIds(this.symbols, ids, count);
+        }
+
+        /**
+         * Writes the first values of a column of currency ids, as the ids the currencies have in the snapshot.
+         *
+         * @param ids   the column.
+         * @param count the number of values to write.
+         * @throws IOException if the file cannot be written.
+         */
+        void putCurrencies(int[] ids, int count) throws IOException {
+            putLocalIds(this.currencies, ids, count);
+        }
+
+        /**
+         * Writes ids of the session as the ids they have in the snapshot.
+         *
+         * @param table the table of the ids.
+         * @param ids   the ids, in which -1 stands for no value.
+         * @param count the number of ids to write.
+         * @throws IOException if the file cannot be written.
+         */
+        private void putLocalIds(LocalTable table, int[] ids, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                ensureRoom(Integer.BYTES);
+                this.buffer.putInt(ids[i] == NONE ? NONE : table.localIdOf(ids[i]));
+            }
+        }
+
+        /**
+         * Writes the strings of a table in the order of their ids in the snapshot.
+         *
+         * @param table the table.
+         * @throws IOException if the file cannot be written.
+         */
+        private void putTable(LocalTable table) throws IOException {
+            putInt(table.values.size());
+            for (String value : table.values) {
+                putString(value);
+            }
+        }
+
+        /**
+         * Gets the position of the next byte in the file.
+         *
+         * @return the position.
+         */
+        private long position() {
+            return this.flushed + this.buffer.position();
+        }
+
+        /**
+         * Overwrites a long that was already written, once everything else has been written.
+         *
+         * @param position the position of the long.
+         * @param value    the new value.
+         * @throws IOException if the file cannot be written.
+         */
+        private void patchLong(long position, long value) throws IOException {
+            flush();
+            ByteBuffer patch = ByteBuffer.allocate(Long.BYTES).putLong(0, value);
+            while (patch.hasRemaining()) {
+                this.channel.write(patch, position + patch.position());
+            }
+        }
+
+        /**
+         * Makes room in the buffer for the given number of bytes, writing it to the file if it is too full.
+         *
+         * @param bytes the number of bytes needed.
+         * @throws IOException if the file cannot be written.
+         */
+        private void ensureRoom(int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffer to the file.
+         *
+         * @throws IOException if the file cannot be written.
+         */
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.flushed += this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the data of a snapshot from a memory-mapped file, translating its ids into the ids of the session.
+     */
+    static final class Input {
+        private final ByteBuffer buffer;
+        private int[] symbolIds;
+        private int[] currencyIds;
+
+        /**
+         * Creates an input.
+         *
+         * @param buffer the mapped snapshot.
+         */
+        private Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reads an int.
+         *
+         * @return the value.
+         */
+        int getInt() {
+            return this.buffer.getInt();
+        }
+
+        /**
+         * Reads a long.
+         *
+         * @return the value.
+         */
+        long getLong() {
+            return this.buffer.getLong();
+        }
+
+        /**
+         * Reads a string written by {@link Output#putString(String)}.
+         *
+         * @return the string.
+         */
+        String getString() {
+            byte[] bytes = new byte[this.buffer.getInt()];
+            this.buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads a currency written by {@link Output#putCurrency(String)}.
+         *
+         * @return the id of the currency in the session.
+         */
+        int getCurrency() {
+            return this.currencyIds[this.buffer.getInt()];
+        }
+
+        /**
+         * Reads values of a column.
+         *
+         * @param values the column to fill.
+         * @param count  the number of values to read.
+         */
+        void getLongs(long[] values, int count) {
+            this.buffer.asLongBuffer().get(values, 0, count);
+            this.buffer.position(this.buffer.position() + count * Long.BYTES);
+        }
+
+        /**
+         * Reads values of a column.
+         *
+         * @param values the column to fill.
+         * @param count  the number of values to read.
+         */
+        void getBytes(byte[] values, int count) {
+            this.buffer.get(values, 0, count);
+        }
+
+        /**
+         * Reads values of a column written by {@link Output#putSymbols(int[], int)}.
+         *
+         * @param ids   the column to fill with the ids of the symbols in the session.
+         * @param count the number of values to read.
+         */
+        void getSymbols(int[] ids, int count) {
+            getSessionIds(this.symbolIds, ids, count);
+        }
+
+        /**
+         * Reads values of a column written by {@link Output#putCurrencies(int[], int)}.
+         *
+         * @param ids   the column to fill with the ids of the currencies in the session.
+         * @param count the number of values to read.
+         */
+        void getCurrencies(int[] ids, int count) {
+            getSessionIds(this.currencyIds, ids, count);
+        }
+
+        /**
+         * Reads ids of the snapshot and translates them into ids of the session.
+         *
+         * @param sessionIds the session id of every id of the snapshot.
+         * @param ids        the column to fill.
+         * @param count      the number of ids to read.
+         */
+        private void getSessionIds(int[] sessionIds, int[] ids, int count) {
+            this.buffer.asIntBuffer().get(ids, 0, count);
+            this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                ids[i] = ids[i] == NONE ? NONE : sessionIds[ids[i]];
+            }
+        }
+
+        /**
+         * Reads the symbol and currency tables at the end of the snapshot, and adds their strings to the session.
+         *
+         * @param offset the position of the tables.
+         */
+        private void readTables(int offset) {
+            int position = this.buffer.position();
+            this.buffer.position(offset);
+            this.symbolIds = new int[this.buffer.getInt()];
+            for (int i = 0; i < this.symbolIds.length; i++) {
+                this.symbolIds[i] = SymbolTable.intern(getString());
+            }
+            this.currencyIds = new int[this.buffer.getInt()];
+            for (int i = 0; i < this.currencyIds.length; i++) {
+                this.currencyIds[i] = Currencies.idOf(getString());
+            }
+            this.buffer.position(position);
+        }
+    }
+
+    /**
+     * Gives the session ids written to a snapshot ids of their own, numbered in the order they are first used.
+     */
+    private static final class LocalTable {
+        private final IntFunction<String> valueOf;
+        private final List<String> values = new ArrayList<>();
+        private int[] localIds = new int[0];
+
+        /**
+         * Creates a table.
+         *
+         * @param valueOf gives the string of a session id.
+         */
+        private LocalTable(IntFunction<String> valueOf) {
+            this.valueOf = valueOf;
+        }
+
+        /**
+         * Gets the id a session id has in the snapshot, giving it the next one if it has none yet.
+         *
+         * @param sessionId the session id.
+         * @return the id in the snapshot.
+         */
+        private int localIdOf(int sessionId) {
+            if (sessionId >= this.localIds.length) {
+                int length = this.localIds.length;
+                this.localIds = Arrays.copyOf(this.localIds, Math.max(sessionId + 1, length * 2));
+                Arrays.fill(this.localIds, length, this.localIds.length, NONE);
+            }
+            if (this.localIds[sessionId] == NONE) {
+                this.localIds[sessionId] = this.values.size();
+                this.values.add(this.valueOf.apply(sessionId));
+            }
+            return this.localIds[sessionId];
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package utils.parsers;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import utils.csv.CsvRow;
+
+/**
+ * Immutable set of column indices resolved from the header of an export.
+ * The parsers read the indices from plain fields for every row instead of looking up column names.
+ * Decoders built from a file header are cached by the header line, which acts as the fingerprint of the
+ * column set; Trading212 has changed its columns between export versions, so a session may see a few of them.
+ */
+public final class RowDecoder {
+    /** Index reported for a column that the header does not contain. */
+    public static final int MISSING = -1;
+
+    private static final int MAX_CACHED_HEADERS = 16;
+    private static final Map<String, RowDecoder> CACHE = new ConcurrentHashMap<>();
+
+    private final String fingerprint;
+    private final int actionIndex;
+    private final int timeIndex;
+    private final int isinIndex;
+    private final int tickerIndex;
+    private final int nameIndex;
+    private final int notesIndex;
+    private final int totalIndex;
+    private final int currencyIndex;
+
+    /**
+     * Resolves the column indices from a map of column names.
+     *
+     * @param fingerprint the fingerprint of the header.
+     * @param columns     the index of every column, keyed by its name.
+     */
+    private RowDecoder(String fingerprint, Map<String, Integer> columns) {
+        this.fingerprint = fingerprint;
+        this.actionIndex = columns.getOrDefault("Action", MISSING);
+        this.timeIndex = columns.getOrDefault("Time", MISSING);
+        this.isinIndex = columns.getOrDefault("ISIN", MISSING);
+        this.tickerIndex = columns.getOrDefault("Ticker", MISSING);
+        this.nameIndex = columns.getOrDefault("Name", MISSING);
+        this.notesIndex = columns.getOrDefault("Notes", MISSING);
+        this.totalIndex = columns.getOrDefault("Total", MISSING);
+        this.currencyIndex = columns.getOrDefault("Currency (Total)", MISSING);
+    }
+
+    /**
+     * Gets the decoder for the header row of an export, reusing the decoder of an identical header seen before.
+     * When a column name appears more than once, its last occurrence is used.
+     *
+     * @param headerRow the first row of the CSV file.
+     * @return the decoder for rows of the file.
+     * @throws IllegalArgumentException if the header lacks the Action, Total or Currency (Total) column.
+     */
+    public static RowDecoder forHeader(CsvRow headerRow) {
+        String fingerprint = headerRow.toLine();
+        RowDecoder decoder = CACHE.get(fingerprint);
+        if (decoder == null) {
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < headerRow.getFieldCount(); i++) {
+                columns.put(headerRow.getString(i), i);
+            }
+            decoder = new RowDecoder(fingerprint, columns);
+            if (CACHE.size() >= MAX_CACHED_HEADERS) {
+                CACHE.clear();
+            }
+            CACHE.put(fingerprint, decoder);
+        }
+        decoder.requireColumns(true);
+        return decoder;
+    }
+
+    /**
+     * Creates a decoder from a legacy header mapping, as passed to {@link Parser#setHeaderMap(Dictionary)}.
+     * Such a mapping may describe only the columns one parser needs, so the Action column is optional here.
+     *
+     * @param headerMap a Dictionary mapping header names to their indices.
+     * @return the decoder for the mapping.
+     * @throws IllegalArgumentException if the mapping lacks the Total or Currency (Total) column.
+     */
+    public static RowDecoder fromHeaderMap(Dictionary<String, Integer> headerMap) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (var names = headerMap.keys(); names.hasMoreElements(); ) {
+            String name = names.nextElement();
+            columns.put(name, headerMap.get(name));
+        }
+        RowDecoder decoder = new RowDecoder(String.join(",", columns.keySet()), columns);
+        decoder.requireColumns(false);
+        return decoder;
+    }
+
+    /**
+     * Checks that the columns every row needs are present.
+     *
+     * @param requireAction whether the Action column, needed to dispatch rows to parsers, is required as well.
+     * @throws IllegalArgumentException naming every missing column.
+     */
+    private void requireColumns(boolean requireAction) {
+        List<String> missing = new ArrayList<>();
+        if (requireAction && this.actionIndex == MISSING) {
+            missing.add("Action");
+        }
+        if (this.totalIndex == MISSING) {
+            missing.add("Total");
+        }
+        if (this.currencyIndex == MISSING) {
+            missing.add("Currency (Total)");
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("The CSV header is missing the required column(s): " + String.join(", ", missing));
+        }
+    }
+
+    /**
+     * Gets the fingerprint of the header this decoder was built from.
+     *
+     * @return the fingerprint.
+     */
+    public String getFingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Gets the index of the Action column.
+     *
+     * @return the index, or {@link #MISSING}.
+     */
+    public int getActionIndex() {
+        return this.actionIndex;
+    }
+
+    /**
+     * Gets the index of the Time column.
+     *
+     * @return the index, or {@link #MISSING}.
+     */
+    public int getTimeIndex() {
+        return this.timeIndex;
+    }
+
+    /**
+     * Gets the index of the ISIN column.
+     *
+     * @return the index, or {@link #MISSING}.
+     */
+    public int getIsinIndex() {
+        return this.isinIndex;
+    }
+
+    /**
+     * Gets the index of the Ticker column.
+     *
+     * @return the index, or {@link #MISSING}.
+     */
+    public int getTickerIndex() {
+        return this.tickerIndex;
+    }
+
+    /**
+     * Gets the index of the Name column.
+     *
+     * @return the index, or {@link #MISSING}.
+     */
+    public int getNameIndex() {
+        return this.nameIndex;
+    }
+
+    /**
+     * Gets the index of the Notes column.
+     *
+     * @return the index, or {@link #MISSING}.
+     */
+    public int getNotesIndex() {
+        return this.notesIndex;
+    }
+
+    /**
+     * Gets the index of the Total column.
+     *
+     * @return the index.
+     */
+    public int getTotalIndex() {
+        return this.totalIndex;
+    }
+
+    /**
+     * Gets the index of the Currency (Total) column.
+     *
+     * @return the index.
+     */
+    public int getCurrencyIndex() {
+        return this.currencyIndex;
+    }
+}
@@ -0,0 +1,481 @@
+package utils.parsers;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import utils.csv.CsvRow;
+
+/**
+ * Column-oriented store for the rows kept by a parser.
+ * Every column is a primitive array: timestamps in epoch milliseconds, amounts in cents, currency ids,
+ * and {@link SymbolTable} ids of the action, ticker, ISIN and name strings, which are stored once for the
+ * whole session no matter how many rows share them. The columns grow in fixed-size chunks, so adding rows
+ * never copies the rows already stored. The text shown for a row is built from the columns only when it is requested.
+ */
+public final class RowStore {
+    /** Timestamp stored for rows without a readable time. */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final int NONE = -1;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int ESTIMATED_IRREGULAR_AMOUNT_BYTES = 96;
+
+    private final SymbolCache symbols;
+    private final SymbolCache names;
+    private final int emptyNameId = SymbolTable.intern("");
+    private final HashMap<Integer, String> irregularAmounts = new HashMap<>();
+    private long[][] timestamps;
+    private long[][] amounts;
+    private byte[][] amountScales;
+    private int[][] currencyIds;
+    private int[][] actionIds;
+    private int[][] tickerIds;
+    private int[][] isinIds;
+    private int[][] nameIds;
+    private int size;
+
+    /**
+     * Creates an empty store.
+     *
+     * @param stripNames whether leading and trailing white space should be removed from names.
+     */
+    public RowStore(boolean stripNames) {
+        this.symbols = new SymbolCache(false);
+        this.names = new SymbolCache(stripNames);
+        clear();
+    }
+
+    /**
+     * Adds a row to the store.
+     * The amount must already have been parsed, since the parser needs it for its totals as well.
+     * The time, ticker and ISIN are taken from the columns of the decoder that the file has.
+     *
+     * @param row         the tokenized row from the CSV file.
+     * @param decoder     the column indices of the file.
+     * @param actionIndex the index of the action field, or {@link RowDecoder#MISSING} if the action should not be shown.
+     * @param nameIndex   the index of the field shown as the name of the row, or {@link RowDecoder#MISSING} for an empty name.
+     * @param amountCents the total of the row in cents.
+     * @param currencyId  the id of the currency of the total, as given by {@link Currencies}.
+     */
+    public void add(CsvRow row, RowDecoder decoder, int actionIndex, int nameIndex, long amountCents, int currencyId) {
+        int chunk = this.size >>> CHUNK_SHIFT;
+        int offset = this.size & CHUNK_MASK;
+        if (offset == 0) {
+            addChunk(chunk);
+        }
+        int scale = Cents.scaleOf(row, decoder.getTotalIndex());
+        if (scale < 0) {
+            this.irregularAmounts.put(this.size, row.getString(decoder.getTotalIndex()));
+        }
+        int timeIndex = decoder.getTimeIndex();
+        this.timestamps[chunk][offset] = timeIndex < 0 ? NO_TIMESTAMP : parseTimestamp(row, timeIndex);
+        this.amounts[chunk][offset] = amountCents;
+        this.amountScales[chunk][offset] = (byte) scale;
+        this.currencyIds[chunk][offset] = currencyId;
+        this.actionIds[chunk][offset] = actionIndex < 0 ? NONE : this.symbols.idOf(row, actionIndex);
+        this.tickerIds[chunk][offset] = decoder.getTickerIndex() < 0 ? NONE : this.symbols.idOf(row, decoder.getTickerIndex());
+        this.isinIds[chunk][offset] = decoder.getIsinIndex() < 0 ? NONE : this.symbols.idOf(row, decoder.getIsinIndex());
+        this.nameIds[chunk][offset] = nameIndex < 0 ? this.emptyNameId : this.names.idOf(row, nameIndex);
+        this.size++;
+    }
+
+    /**
+     * Appends all rows of another store after the rows of this store.
+     * Symbol and currency ids are session-wide, so the columns are copied as they are, in runs that
+     * stay within one chunk of both stores.
+     *
+     * @param other the store whose rows should be appended.
+     */
+    public void append(RowStore other) {
+        int firstIndex = this.size;
+        int copied = 0;
+        while (copied < other.size) {
+            int chunk = this.size >>> CHUNK_SHIFT;
+            int offset = this.size & CHUNK_MASK;
+            if (offset == 0) {
+                addChunk(chunk);
+            }
+            int otherChunk = copied >>> CHUNK_SHIFT;
+            int otherOffset = copied & CHUNK_MASK;
+            int count = Math.min(other.size - copied, CHUNK_SIZE - Math.max(offset, otherOffset));
+            System.arraycopy(other.timestamps[otherChunk], otherOffset, this.timestamps[chunk], offset, count);
+            System.arraycopy(other.amounts[otherChunk], otherOffset, this.amounts[chunk], offset, count);
+            System.arraycopy(other.amountScales[otherChunk], otherOffset, this.amountScales[chunk], offset, count);
+            System.arraycopy(other.currencyIds[otherChunk], otherOffset, this.currencyIds[chunk], offset, count);
+            System.arraycopy(other.actionIds[otherChunk], otherOffset, this.actionIds[chunk], offset, count);
+            System.arraycopy(other.tickerIds[otherChunk], otherOffset, this.tickerIds[chunk], offset, count);
+            System.arraycopy(other.isinIds[otherChunk], otherOffset, this.isinIds[chunk], offset, count);
+            System.arraycopy(other.nameIds[otherChunk], otherOffset, this.nameIds[chunk], offset, count);
+            this.size += count;
+            copied += count;
+        }
+        for (Map.Entry<Integer, String> entry : other.irregularAmounts.entrySet()) {
+            this.irregularAmounts.put(firstIndex + entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Writes all rows to a snapshot, column by column for every chunk.
+     *
+     * @param out the snapshot to write to.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void writeSnapshot(ReportSnapshot.Output out) throws IOException {
+        out.putInt(this.size);
+        for (int chunk = 0; chunk << CHUNK_SHIFT < this.size; chunk++) {
+            int count = Math.min(CHUNK_SIZE, this.size - (chunk << CHUNK_SHIFT));
+            out.putLongs(this.timestamps[chunk], count);
+            out.putLongs(this.amounts[chunk], count);
+            out.putBytes(this.amountScales[chunk], count);
+            out.putCurrencies(this.currencyIds[chunk], count);
+            out.putSymbols(this.actionIds[chunk], count);
+            out.putSymbols(this.tickerIds[chunk], count);
+            out.putSymbols(this.isinIds[chunk], count);
+            out.putSymbols(this.nameIds[chunk], count);
+        }
+        out.putInt(this.irregularAmounts.size());
+        for (Map.Entry<Integer, String> entry : this.irregularAmounts.entrySet()) {
+            out.putInt(entry.getKey());
+            out.putString(entry.getValue());
+        }
+    }
+
+    /**
+     * Replaces all rows with the rows of a snapshot written by {@link #writeSnapshot(ReportSnapshot.Output)}.
+     *
+     * @param in the snapshot to read from.
+     */
+    void readSnapshot(ReportSnapshot.Input in) {
+        clear();
+        int rowCount = in.getInt();
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("Negative row count " + rowCount);
+        }
+        for (int chunk = 0; chunk << CHUNK_SHIFT < rowCount; chunk++) {
+            int count = Math.min(CHUNK_SIZE, rowCount - (chunk << CHUNK_SHIFT));
+            addChunk(chunk);
+            in.getLongs(this.timestamps[chunk], count);
+            in.getLongs(this.amounts[chunk], count);
+            in.getBytes(this.amountScales[chunk], count);
+            in.getCurrencies(this.currencyIds[chunk], count);
+            in.getSymbols(this.actionIds[chunk], count);
+            in.getSymbols(this.tickerIds[chunk], count);
+            in.getSymbols(this.isinIds[chunk], count);
+            in.getSymbols(this.nameIds[chunk], count);
+        }
+        this.size = rowCount;
+        int irregularCount = in.getInt();
+        for (int i = 0; i < irregularCount; i++) {
+            int index = in.getInt();
+            this.irregularAmounts.put(index, in.getString());
+        }
+    }
+
+    /**
+     * Estimates the heap retained by the store: the allocated chunks of every column, the irregular amounts,
+     * and the symbol caches. Symbol strings are shared by the whole session and are not counted.
+     *
+     * @return the estimated size in bytes.
+     */
+    long estimateRetainedBytes() {
+        long chunks = (this.size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        long chunkBytes = (long) CHUNK_SIZE * (2 * Long.BYTES + 1 + 5 * Integer.BYTES);
+        return chunks * chunkBytes + (long) this.irregularAmounts.size() * ESTIMATED_IRREGULAR_AMOUNT_BYTES
+                + this.symbols.estimateRetainedBytes() + this.names.estimateRetainedBytes();
+    }
+
+    /**
+     * Removes all rows and releases the columns.
+     */
+    public void clear() {
+        this.irregularAmounts.clear();
+        this.timestamps = new long[0][];
+        this.amounts = new long[0][];
+        this.amountScales = new byte[0][];
+        this.currencyIds = new int[0][];
+        this.actionIds = new int[0][];
+        this.tickerIds = new int[0][];
+        this.isinIds = new int[0][];
+        this.nameIds = new int[0][];
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of rows in the store.
+     *
+     * @return the number of rows.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Builds the text shown for a row, for example {@code "Market buy ---> Apple ---> 100 USD"}.
+     * The action is only included for rows that were added with an action.
+     *
+     * @param index the index of the row, starting at 0.
+     * @return the text of the row.
+     */
+    public String describe(int index) {
+        checkIndex(index);
+        int chunk = index >>> CHUNK_SHIFT;
+        int offset = index & CHUNK_MASK;
+        StringBuilder sb = new StringBuilder(64);
+        if (this.actionIds[chunk][offset] != NONE) {
+            sb.append(SymbolTable.get(this.actionIds[chunk][offset])).append(Parser.delimiter);
+        }
+        sb.append(SymbolTable.get(this.nameIds[chunk][offset])).append(Parser.delimiter);
+        int scale = this.amountScales[chunk][offset];
+        if (scale < 0) {
+            sb.append(this.irregularAmounts.get(index));
+        } else {
+            sb.append(Cents.format(this.amounts[chunk][offset], scale));
+        }
+        return sb.append(' ').append(Currencies.codeOf(this.currencyIds[chunk][offset])).toString();
+    }
+
+    /**
+     * Gets the time of a row.
+     *
+     * @param index the index of the row, starting at 0.
+     * @return the time in epoch milliseconds, or {@link #NO_TIMESTAMP} if the row has no readable time.
+     */
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return this.timestamps[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Gets the total of a row.
+     *
+     * @param index the index of the row, starting at 0.
+     * @return the total in cents.
+     */
+    public long getAmountCents(int index) {
+        checkIndex(index);
+        return this.amounts[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Gets the currency of the total of a row.
+     *
+     * @param index the index of the row, starting at 0.
+     * @return the currency code.
+     */
+    public String getCurrency(int index) {
+        checkIndex(index);
+        return Currencies.codeOf(this.currencyIds[index >>> CHUNK_SHIFT][index & CHUNK_MASK]);
+    }
+
+    /**
+     * Gets the ticker of a row.
+     *
+     * @param index the index of the row, starting at 0.
+     * @return the ticker, or null if the row was added without one.
+     */
+    public String getTicker(int index) {
+        checkIndex(index);
+        int tickerId = this.tickerIds[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        return tickerId == NONE ? null : SymbolTable.get(tickerId);
+    }
+
+    /**
+     * Gets the ISIN of a row.
+     *
+     * @param index the index of the row, starting at 0.
+     * @return the ISIN, or null if the row was added without one.
+     */
+    public String getIsin(int index) {
+        checkIndex(index);
+        int isinId = this.isinIds[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        return isinId == NONE ? null : SymbolTable.get(isinId);
+    }
+
+    /**
+     * Returns a read-only map view of the rows, keyed by the row number as a String starting at "1".
+     * The view iterates in row order, and its values are built by {@link #describe(int)} when they are read.
+     *
+     * @return the map view of the rows.
+     */
+    public Map<String, String> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public int size() {
+                return RowStore.this.size;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return rowIndexOf(key) != NONE;
+            }
+
+            @Override
+            public String get(Object key) {
+                int index = rowIndexOf(key);
+                return index == NONE ? null : describe(index);
+            }
+
+            @Override
+            public Set<Entry<String, String>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public int size() {
+                        return RowStore.this.size;
+                    }
+
+                    @Override
+                    public Iterator<Entry<String, String>> iterator() {
+                        return new Iterator<>() {
+                            private int index = 0;
+
+                            @Override
+                            public boolean hasNext() {
+                                return this.index < RowStore.this.size;
+                            }
+
+                            @Override
+                            public Entry<String, String> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                int current = this.index++;
+                                return new SimpleImmutableEntry<>(String.valueOf(current + 1), describe(current));
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Converts a row number key of the map view into a row index.
+     *
+     * @param key the key, which should be a row number as produced by {@link String#valueOf(int)}.
+     * @return the index of the row, or -1 if the key does not name a row.
+     */
+    private int rowIndexOf(Object key) {
+        if (!(key instanceof String text)) {
+            return NONE;
+        }
+        try {
+            int rowNumber = Integer.parseInt(text);
+            if (rowNumber < 1 || rowNumber > this.size || !String.valueOf(rowNumber).equals(text)) {
+                return NONE;
+            }
+            return rowNumber - 1;
+        } catch (NumberFormatException e) {
+            return NONE;
+        }
+    }
+
+    /**
+     * Allocates the next chunk of every column.
+     *
+     * @param chunk the index of the chunk to allocate.
+     */
+    private void addChunk(int chunk) {
+        if (chunk == this.amounts.length) {
+            int capacity = Math.max(4, chunk * 2);
+            this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+            this.amounts = Arrays.copyOf(this.amounts, capacity);
+            this.amountScales = Arrays.copyOf(this.amountScales, capacity);
+            this.currencyIds = Arrays.copyOf(this.currencyIds, capacity);
+            this.actionIds = Arrays.copyOf(this.actionIds, capacity);
+            this.tickerIds = Arrays.copyOf(this.tickerIds, capacity);
+            this.isinIds = Arrays.copyOf(this.isinIds, capacity);
+            this.nameIds = Arrays.copyOf(this.nameIds, capacity);
+        }
+        this.timestamps[chunk] = new long[CHUNK_SIZE];
+        this.amounts[chunk] = new long[CHUNK_SIZE];
+        this.amountScales[chunk] = new byte[CHUNK_SIZE];
+        this.currencyIds[chunk] = new int[CHUNK_SIZE];
+        this.actionIds[chunk] = new int[CHUNK_SIZE];
+        this.tickerIds[chunk] = new int[CHUNK_SIZE];
+        this.isinIds[chunk] = new int[CHUNK_SIZE];
+        this.nameIds[chunk] = new int[CHUNK_SIZE];
+    }
+
+    /**
+     * Checks that the row index is within the store.
+     *
+     * @param index the index of the row.
+     * @throws IndexOutOfBoundsException if the store has no such row.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Row " + index + " out of bounds for store with " + this.size + " rows");
+        }
+    }
+
+    /**
+     * Parses a time in the "yyyy-MM-dd HH:mm:ss" form used by the exports, optionally followed by
+     * fractional seconds, as a UTC time.
+     *
+     * @param row   the row holding the field.
+     * @param index the index of the time field.
+     * @return the time in epoch milliseconds, or {@link #NO_TIMESTAMP} if the field is not a valid time.
+     */
+    private static long parseTimestamp(CsvRow row, int index) {
+        int length = row.getFieldLength(index);
+        if (length < 19 || row.getFieldByte(index, 4) != '-' || row.getFieldByte(index, 7) != '-'
+                || row.getFieldByte(index, 10) != ' ' || row.getFieldByte(index, 13) != ':' || row.getFieldByte(index, 16) != ':') {
+            return NO_TIMESTAMP;
+        }
+        int year = digits(row, index, 0, 4);
+        int month = digits(row, index, 5, 2);
+        int day = digits(row, index, 8, 2);
+        int hour = digits(row, index, 11, 2);
+        int minute = digits(row, index, 14, 2);
+        int second = digits(row, index, 17, 2);
+        int millis = 0;
+        if (length > 19) {
+            int fractionDigits = Math.min(3, length - 20);
+            millis = row.getFieldByte(index, 19) == '.' && fractionDigits > 0 ? digits(row, index, 20, fractionDigits) : NONE;
+            for (int i = fractionDigits; i < 3 && millis >= 0; i++) {
+                millis *= 10;
+            }
+        }
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59 || millis < 0) {
+            return NO_TIMESTAMP;
+        }
+        try {
+            long epochDay = LocalDate.of(year, month, day).toEpochDay();
+            return ((epochDay * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+        } catch (DateTimeException e) {
+            return NO_TIMESTAMP;
+        }
+    }
+
+    /**
+     * Reads a fixed number of decimal digits from a field.
+     *
+     * @param row    the row holding the field.
+     * @param index  the index of the field.
+     * @param offset the offset of the first digit.
+     * @param count  the number of digits.
+     * @return the value of the digits, or -1 if any of them is not a digit.
+     */
+    private static int digits(CsvRow row, int index, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            byte current = row.getFieldByte(index, i);
+            if (current < '0' || current > '9') {
+                return NONE;
+            }
+            value = value * 10 + (current - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+package utils.parsers;
+
+import utils.csv.CsvRow;
+
+/**
+ * Single-threaded cache from the raw bytes of a field to its {@link SymbolTable} id.
+ * A value that has been seen before is found by hashing and comparing the field bytes in place, so neither
+ * a String nor the table lock is needed. Only a value new to this cache is decoded and interned.
+ * Each {@link RowStore} owns its caches, so parsers running on different threads never share one.
+ */
+final class SymbolCache {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int ESTIMATED_KEY_BYTES = 48;
+
+    private final boolean strip;
+    private byte[][] keys = new byte[INITIAL_CAPACITY][];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int count;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param strip whether leading and trailing white space should be removed from values before they are interned.
+     */
+    SymbolCache(boolean strip) {
+        this.strip = strip;
+    }
+
+    /**
+     * Gets the symbol id of the value of a field.
+     *
+     * @param row   the row holding the field.
+     * @param index the index of the field.
+     * @return the id of the value in the {@link SymbolTable}.
+     */
+    int idOf(CsvRow row, int index) {
+        if (row.isFieldEscaped(index)) {
+            return SymbolTable.intern(decode(row, index));
+        }
+        int hash = row.hashField(index);
+        int mask = this.keys.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (this.keys[slot] != null) {
+            if (this.hashes[slot] == hash && row.fieldEquals(index, this.keys[slot])) {
+                return this.ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = SymbolTable.intern(decode(row, index));
+        this.keys[slot] = row.getFieldBytes(index);
+        this.hashes[slot] = hash;
+        this.ids[slot] = id;
+        if (++this.count * 2 > this.keys.length) {
+            grow();
+        }
+        return id;
+    }
+
+    /**
+     * Estimates the heap retained by the cache: its tables and a typical key per entry.
+     *
+     * @return the estimated size in bytes.
+     */
+    long estimateRetainedBytes() {
+        return (long) this.keys.length * (Long.BYTES + 2 * Integer.BYTES) + (long) this.count * ESTIMATED_KEY_BYTES;
+    }
+
+    /**
+     * Decodes the value of a field as it should be interned.
+     *
+     * @param row   the row holding the field.
+     * @param index the index of the field.
+     * @return the decoded value.
+     */
+    private String decode(CsvRow row, int index) {
+        String value = row.getString(index);
+        return this.strip ? value.strip() : value;
+    }
+
+    /**
+     * Doubles the capacity of the cache and re-inserts every entry.
+     */
+    private void grow() {
+        byte[][] oldKeys = this.keys;
+        int[] oldHashes = this.hashes;
+        int[] oldIds = this.ids;
+        this.keys = new byte[oldKeys.length * 2][];
+        this.hashes = new int[oldKeys.length * 2];
+        this.ids = new int[oldKeys.length * 2];
+        int mask = this.keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & mask;
+            while (this.keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            this.keys[slot] = oldKeys[i];
+            this.hashes[slot] = oldHashes[i];
+            this.ids[slot] = oldIds[i];
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package utils.parsers;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Session-wide table of the low-cardinality strings found in exports, such as actions, tickers, ISINs and names.
+ * Every distinct string is stored once and given an int id, so rows keep ids instead of their own String copies.
+ * Ids are shared by all parsers and never reused, which lets rows parsed on different threads be combined
+ * without translating ids. Readers on a hot path should go through a {@link SymbolCache}, which avoids
+ * creating a String for values that have been seen before.
+ */
+public final class SymbolTable {
+    private static final HashMap<String, Integer> ids = new HashMap<>();
+    private static volatile String[] symbols = new String[256];
+    private static int count;
+
+    private SymbolTable() { }
+
+    /**
+     * Gets the id of a string, adding the string to the table if it has not been seen before.
+     *
+     * @param value the string to look up.
+     * @return the id of the string.
+     */
+    public static synchronized int intern(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        String[] current = symbols;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, count * 2);
+        }
+        current[count] = value;
+        // Writing the volatile field again publishes the new entry to threads reading it without the lock
+        symbols = current;
+        ids.put(value, count);
+        return count++;
+    }
+
+    /**
+     * Gets the string stored under an id.
+     *
+     * @param id an id returned by {@link #intern(String)}.
+     * @return the string.
+     */
+    public static String get(int id) {
+        return symbols[id];
+    }
+
+    /**
+     * Gets the number of distinct strings in the table.
+     *
+     * @return the number of strings.
+     */
+    public static synchronized int size() {
+        return count;
+    }
+}
@@ -0,0 +1,100 @@
+package utils.parsers;
+
+/**
+ * Running totals of the deposits and withdrawals in one currency.
+ * Amounts are kept in cents. Each total also remembers whether any transaction of its kind was seen,
+ * so a currency with only deposits does not report a withdrawal total of zero.
+ */
+public class TransactionTotals {
+    private final String currency;
+    private long depositCents;
+    private long withdrawalCents;
+    private boolean hasDeposits;
+    private boolean hasWithdrawals;
+
+    /**
+     * Creates empty totals for a currency.
+     *
+     * @param currency the currency code.
+     */
+    TransactionTotals(String currency) {
+        this.currency = currency;
+    }
+
+    /**
+     * Adds the total of a deposit.
+     *
+     * @param cents the amount in cents.
+     */
+    void addDeposit(long cents) {
+        this.depositCents += cents;
+        this.hasDeposits = true;
+    }
+
+    /**
+     * Adds the total of a withdrawal.
+     *
+     * @param cents the amount in cents.
+     */
+    void addWithdrawal(long cents) {
+        this.withdrawalCents += cents;
+        this.hasWithdrawals = true;
+    }
+
+    /**
+     * Adds the totals of another accumulator for the same currency.
+     *
+     * @param other the totals to add.
+     */
+    void add(TransactionTotals other) {
+        this.depositCents += other.depositCents;
+        this.withdrawalCents += other.withdrawalCents;
+        this.hasDeposits |= other.hasDeposits;
+        this.hasWithdrawals |= other.hasWithdrawals;
+    }
+
+    /**
+     * Gets the currency these totals are kept in.
+     *
+     * @return the currency code.
+     */
+    public String getCurrency() {
+        return this.currency;
+    }
+
+    /**
+     * Gets the total of all deposits.
+     *
+     * @return the deposits in cents.
+     */
+    public long getDepositCents() {
+        return this.depositCents;
+    }
+
+    /**
+     * Gets the total of all withdrawals.
+     *
+     * @return the withdrawals in cents.
+     */
+    public long getWithdrawalCents() {
+        return this.withdrawalCents;
+    }
+
+    /**
+     * Checks whether at least one deposit was seen in this currency.
+     *
+     * @return true if there were deposits, false otherwise.
+     */
+    public boolean hasDeposits() {
+        return this.hasDeposits;
+    }
+
+    /**
+     * Checks whether at least one withdrawal was seen in this currency.
+     *
+     * @return true if there were withdrawals, false otherwise.
+     */
+    public boolean hasWithdrawals() {
+        return this.hasWithdrawals;
+    }
+}
@@ -1,7 +1,12 @@
 package utils.parsers;
 
+import app.models.SubAction;
+import java.io.IOException;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import utils.csv.CsvRow;
 
 /**
  * Singleton class responsible for parsing transaction data from CSV lines.
@@ -10,13 +15,13 @@ import java.util.HashMap;
  */
 public class TransactionsParser extends Parser<HashMap<String, String>> {
     private static TransactionsParser instance = null;
-    private HashMap<String, String> allData;
-    private HashMap<String, HashMap<String, String>> summarizedData;
-    private Dictionary<String, Integer> headerMap;
+    private RowStore rows;
+    private CurrencyTable<TransactionTotals> totalsByCurrency;
+    private RowDecoder decoder;
 
     private TransactionsParser() {
-        this.allData = new HashMap<>();
-        this.summarizedData = new HashMap<>();
+        this.rows = new RowStore(false);
+        this.totalsByCurrency = new CurrencyTable<>(TransactionTotals::new);
     }
 
     /**
@@ -35,123 +40,144 @@ public class TransactionsParser extends Parser<HashMap<String, String>> {
      * Parses a line of transaction data.
      * This method handles deposit and withdrawal transactions, parsing information such as
      * total amount, currency, and additional notes. Updates to totals and summaries
-     * are made accordingly based on transaction type.
+     * are made accordingly based on transaction type, which is recognized by searching the whole line.
      *
      * @param line a String representing a line from the CSV file.
      * @throws RuntimeException if the header map is not set.
      */
     @Override
     public void parse(String line) {
-        if (this.headerMap == null) {
+        if (this.decoder == null) {
             throw new RuntimeException("Header map not set for TransactionsParser");
         }
-        int nameIndex = this.headerMap.get("Notes");
-        int totalIndex = this.headerMap.get("Total");
-        int currencyIndex = this.headerMap.get("Currency (Total)");
-        String[] data = line.split(",");
-
-        if (line.contains("Deposit")) {
-            handleDeposit(nameIndex, totalIndex, currencyIndex, data);
-        } else if (line.contains("Withdraw")) {
-            handleWithdrawal(nameIndex, totalIndex, currencyIndex, data);
-        }
+        parseTransaction(CsvRow.fromLine(line), line.contains("Deposit"), line.contains("Withdraw"));
     }
 
     /**
-     * Processes deposit transactions, extracting the necessary fields and updating totals.
+     * Parses a tokenized row of transaction data.
+     * The transaction type is recognized from the Action field only.
      *
-     * @param nameIndex     the index of the "Notes" column in the CSV.
-     * @param totalIndex    the index of the "Total" column in the CSV.
-     * @param currencyIndex the index of the "Currency (Total)" column in the CSV.
-     * @param data          an array of Strings representing the split line data.
+     * @param row the tokenized row from the CSV file.
+     * @throws RuntimeException if the header map is not set or has no Action column.
      */
-    private void handleDeposit(int nameIndex, int totalIndex, int currencyIndex, String[] data) {
-        String value = data[nameIndex] + delimiter + data[totalIndex] + " " + data[currencyIndex];
-        int lineNumber = this.allData.size() + 1;
-        this.allData.put(String.valueOf(lineNumber), value);
-        updateTotalDeposits(totalIndex, currencyIndex, data);
+    @Override
+    public void parse(CsvRow row) {
+        if (this.decoder == null) {
+            throw new RuntimeException("Header map not set for TransactionsParser");
+        }
+        if (this.decoder.getActionIndex() == RowDecoder.MISSING) {
+            throw new RuntimeException("Header map for TransactionsParser has no Action column");
+        }
+        parse(row, SubAction.transactionFromString(row.getString(this.decoder.getActionIndex())));
     }
 
     /**
-     * Updates the total deposits for a specific currency based on transaction data.
-     * This method ensures that each currency has an updated deposit total.
+     * Parses a tokenized row of transaction data whose type has already been classified.
+     * Rows that are neither deposits nor withdrawals are ignored.
      *
-     * @param totalIndex    the index of the "Total" column in the CSV.
-     * @param currencyIndex the index of the "Currency (Total)" column in the CSV.
-     * @param data          an array of Strings representing the split line data.
+     * @param row       the tokenized row from the CSV file.
+     * @param subAction the sub-action of the row.
+     * @throws RuntimeException if the header map is not set.
      */
-    private void updateTotalDeposits(int totalIndex, int currencyIndex, String[] data) {
-        String currency = data[currencyIndex];
-        String amount = data[totalIndex];
-
-        if (this.summarizedData.containsKey(currency)) {
-            Double currentTotal = Double.parseDouble(this.summarizedData.get(currency).get("totalDeposits"));
-            Double newTotal = currentTotal + Double.parseDouble(amount);
-            this.summarizedData.get(currency).put("totalDeposits", formatNumberValue(String.valueOf(newTotal), currency));
-        } else {
-            HashMap<String, String> currencyData = new HashMap<>();
-            currencyData.put("totalDeposits", formatNumberValue(amount, currency));
-            this.summarizedData.put(currency, currencyData);
+    @Override
+    public void parse(CsvRow row, SubAction subAction) {
+        if (this.decoder == null) {
+            throw new RuntimeException("Header map not set for TransactionsParser");
         }
+        parseTransaction(row, subAction == SubAction.DEPOSIT, subAction == SubAction.WITHDRAWAL);
     }
 
     /**
-     * Processes withdrawal transactions, extracting the necessary fields and updating totals.
+     * Dispatches a transaction row to the deposit or withdrawal handling.
+     * Rows that are neither, such as currency conversions, are ignored.
      *
-     * @param nameIndex     the index of the "Notes" column in the CSV.
-     * @param totalIndex    the index of the "Total" column in the CSV.
-     * @param currencyIndex the index of the "Currency (Total)" column in the CSV.
-     * @param data          an array of Strings representing the split line data.
+     * @param row          the tokenized row from the CSV file.
+     * @param isDeposit    whether the row is a deposit.
+     * @param isWithdrawal whether the row is a withdrawal.
      */
-    private void handleWithdrawal(int nameIndex, int totalIndex, int currencyIndex, String[] data) {
-        String value = data[nameIndex] + delimiter + data[totalIndex] + " " + data[currencyIndex];
-        int lineNumber = this.allData.size() + 1;
-        this.allData.put(String.valueOf(lineNumber), value);
-        updateTotalWithdrawals(totalIndex, currencyIndex, data);
+    private void parseTransaction(CsvRow row, boolean isDeposit, boolean isWithdrawal) {
+        if (isDeposit) {
+            handleDeposit(row);
+        } else if (isWithdrawal) {
+            handleWithdrawal(row);
+        }
     }
 
     /**
-     * Updates the total withdrawals for a specific currency based on transaction data.
-     * This method ensures that each currency has an updated withdrawal total.
+     * Processes deposit transactions, extracting the necessary fields and updating totals.
      *
-     * @param totalIndex    the index of the "Total" column in the CSV.
-     * @param currencyIndex the index of the "Currency (Total)" column in the CSV.
-     * @param data          an array of Strings representing the split line data.
+     * @param row the tokenized row from the CSV file.
      */
-    private void updateTotalWithdrawals(int totalIndex, int currencyIndex, String[] data) {
-        String currency = data[currencyIndex];
-        String amount = data[totalIndex];
+    private void handleDeposit(CsvRow row) {
+        long amountCents = Cents.parse(row, this.decoder.getTotalIndex());
+        int currencyId = Currencies.idOf(row, this.decoder.getCurrencyIndex());
+        this.rows.add(row, this.decoder, RowDecoder.MISSING, this.decoder.getNotesIndex(), amountCents, currencyId);
+        this.totalsByCurrency.get(currencyId).addDeposit(amountCents);
+    }
 
-        if (this.summarizedData.containsKey(currency)) {
-            Double currentTotal = Double.parseDouble(this.summarizedData.get(currency).get("totalWithdrawals"));
-            Double newTotal = currentTotal + Double.parseDouble(amount);
-            this.summarizedData.get(currency).put("totalWithdrawals", formatNumberValue(String.valueOf(newTotal), currency));
-        } else {
-            HashMap<String, String> currencyData = new HashMap<>();
-            currencyData.put("totalWithdrawals", formatNumberValue(amount, currency));
-            this.summarizedData.put(currency, currencyData);
-        }
+    /**
+     * Processes withdrawal transactions, extracting the necessary fields and updating totals.
+     *
+     * @param row the tokenized row from the CSV file.
+     */
+    private void handleWithdrawal(CsvRow row) {
+        long amountCents = Cents.parse(row, this.decoder.getTotalIndex());
+        int currencyId = Currencies.idOf(row, this.decoder.getCurrencyIndex());
+        this.rows.add(row, this.decoder, RowDecoder.MISSING, this.decoder.getNotesIndex(), amountCents, currencyId);
+        this.totalsByCurrency.get(currencyId).addWithdrawal(amountCents);
     }
 
     /**
      * Returns all parsed transaction data in a mapped format, preserving the order of entry.
      *
-     * @return a HashMap containing all transaction data parsed from the CSV.
+     * @return a read-only Map view of all transaction data parsed from the CSV.
      */
     @Override
-    public HashMap<String, String> getAllData() {
-        return this.allData;
+    public Map<String, String> getAllData() {
+        return this.rows.asMap();
+    }
+
+    /**
+     * Gets the store holding the parsed transaction rows.
+     *
+     * @return the row store.
+     */
+    @Override
+    RowStore getRowStore() {
+        return this.rows;
+    }
+
+    /**
+     * Returns the deposit and withdrawal totals of every currency seen by this parser.
+     *
+     * @return the totals, one per currency, ordered by currency id.
+     */
+    public List<TransactionTotals> getCurrencyTotals() {
+        return this.totalsByCurrency.values();
     }
 
     /**
      * Returns a summarized view of transaction data, organized by currency.
-     * Includes total deposits and withdrawals for each currency encountered in the data.
+     * Includes total deposits and withdrawals for each currency encountered in the data;
+     * a total is only present if at least one transaction of that kind was seen in the currency.
+     * The totals are formatted from {@link #getCurrencyTotals()} each time this method is called.
      *
-     * @return a HashMap containing summarized transaction data.
+     * @return a HashMap mapping each currency to its formatted "totalDeposits" and "totalWithdrawals".
      */
     @Override
     public HashMap<String, HashMap<String, String>> getSummarizedData() {
-        return this.summarizedData;
+        HashMap<String, HashMap<String, String>> summarizedData = new HashMap<>();
+        for (TransactionTotals totals : getCurrencyTotals()) {
+            HashMap<String, String> currencyData = new HashMap<>();
+            if (totals.hasDeposits()) {
+                currencyData.put("totalDeposits", Cents.format(totals.getDepositCents()));
+            }
+            if (totals.hasWithdrawals()) {
+                currencyData.put("totalWithdrawals", Cents.format(totals.getWithdrawalCents()));
+            }
+            summarizedData.put(totals.getCurrency(), currencyData);
+        }
+        return summarizedData;
     }
 
     /**
@@ -159,18 +185,111 @@ public class TransactionsParser extends Parser<HashMap<String, String>> {
      */
     @Override
     public void clearData() {
-        this.allData.clear();
-        this.summarizedData.clear();
+        this.rows.clear();
+        this.totalsByCurrency.clear();
+    }
+
+    /**
+     * Creates a new, empty transaction parser that shares this parser's row decoder.
+     *
+     * @return a new TransactionsParser with no data.
+     */
+    @Override
+    public TransactionsParser createEmpty() {
+        TransactionsParser parser = new TransactionsParser();
+        parser.setRowDecoder(this.decoder);
+        return parser;
+    }
+
+    /**
+     * Appends the transaction rows and totals of another TransactionsParser to this parser.
+     *
+     * @param other the parser whose data should be appended.
+     * @throws IllegalArgumentException if the other parser is not a TransactionsParser.
+     */
+    @Override
+    public void merge(Parser<?> other) {
+        if (!(other instanceof TransactionsParser source)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into TransactionsParser");
+        }
+        this.rows.append(source.rows);
+        for (TransactionTotals totals : source.getCurrencyTotals()) {
+            this.totalsByCurrency.get(Currencies.idOf(totals.getCurrency())).add(totals);
+        }
+    }
+
+    /**
+     * Estimates the heap retained by the transaction rows and totals.
+     *
+     * @return the estimated size in bytes.
+     */
+    @Override
+    long estimateRetainedBytes() {
+        return this.rows.estimateRetainedBytes() + (long) getCurrencyTotals().size() * ESTIMATED_TOTALS_BYTES;
+    }
+
+    /**
+     * Writes the transaction rows and totals to a snapshot.
+     *
+     * @param out the snapshot to write to.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    @Override
+    void writeSnapshot(ReportSnapshot.Output out) throws IOException {
+        this.rows.writeSnapshot(out);
+        List<TransactionTotals> totals = getCurrencyTotals();
+        out.putInt(totals.size());
+        for (TransactionTotals total : totals) {
+            out.putCurrency(total.getCurrency());
+            out.putInt((total.hasDeposits() ? 1 : 0) | (total.hasWithdrawals() ? 2 : 0));
+            out.putLong(total.getDepositCents());
+            out.putLong(total.getWithdrawalCents());
+        }
+    }
+
+    /**
+     * Reads the transaction rows and totals of a snapshot into this parser.
+     *
+     * @param in the snapshot to read from.
+     */
+    @Override
+    void readSnapshot(ReportSnapshot.Input in) {
+        this.rows.readSnapshot(in);
+        int currencyCount = in.getInt();
+        for (int i = 0; i < currencyCount; i++) {
+            TransactionTotals total = this.totalsByCurrency.get(in.getCurrency());
+            int flags = in.getInt();
+            long depositCents = in.getLong();
+            long withdrawalCents = in.getLong();
+            if ((flags & 1) != 0) {
+                total.addDeposit(depositCents);
+            }
+            if ((flags & 2) != 0) {
+                total.addWithdrawal(withdrawalCents);
+            }
+        }
     }
 
     /**
      * Sets the header mapping dictionary, which provides indices for key columns.
      * This mapping must be set before parsing to ensure correct data extraction.
+     * The mapping is resolved into a {@link RowDecoder} once, so rows are parsed without looking up column names.
      *
-     * @param headerMap a Dictionary mapping header names to their indices in the CSV.
+     * @param headerMap a Dictionary mapping header names to their indices in the CSV, or null to unset it.
+     * @throws IllegalArgumentException if the mapping lacks the Total or Currency (Total) column.
      */
     @Override
     public void setHeaderMap(Dictionary<String, Integer> headerMap) {
-        this.headerMap = headerMap;
+        this.decoder = headerMap == null ? null : RowDecoder.fromHeaderMap(headerMap);
+    }
+
+    /**
+     * Sets the row decoder resolved from the header of the file being parsed.
+     *
+     * @param decoder the decoder providing the indices of the columns.
+     */
+    @Override
+    public void setRowDecoder(RowDecoder decoder) {
+        this.decoder = decoder;
     }
 }
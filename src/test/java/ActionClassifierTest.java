@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+
+import app.models.ActionType;
+import app.models.SubAction;
+import utils.csv.CsvRow;
+import utils.parsers.ActionClassifier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActionClassifierTest {
+
+    private SubAction classify(ActionClassifier classifier, String action) {
+        return classifier.classify(CsvRow.fromLine(action + ",Company A,100,USD"), 0);
+    }
+
+    @Test
+    public void testClassifiesExportActions() {
+        ActionClassifier classifier = new ActionClassifier();
+
+        assertEquals(SubAction.BUY, classify(classifier, "Market buy"));
+        assertEquals(SubAction.SELL, classify(classifier, "Limit sell"));
+        assertEquals(SubAction.DEPOSIT, classify(classifier, "Deposit"));
+        assertEquals(SubAction.WITHDRAWAL, classify(classifier, "Withdrawal"));
+        assertEquals(SubAction.CONVERSION, classify(classifier, "Currency conversion"));
+        assertEquals(SubAction.INTEREST, classify(classifier, "Interest on cash"));
+        assertEquals(SubAction.DIVIDEND, classify(classifier, "Dividend (Ordinary)"));
+        assertEquals(ActionType.ORDER, SubAction.BUY.getActionType());
+        assertEquals(ActionType.TRANSACTION, SubAction.CONVERSION.getActionType());
+    }
+
+    @Test
+    public void testCachedValuesGiveTheSameResult() {
+        ActionClassifier classifier = new ActionClassifier();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SubAction.SELL, classify(classifier, "Market sell"), "Repeated values should be classified consistently");
+            assertEquals(SubAction.BUY, classify(classifier, "Market buy"));
+            assertEquals(SubAction.DIVIDEND, classify(classifier, "\"Dividend (\"\"Ordinary\"\")\""), "Escaped values should not be cached by their raw bytes");
+        }
+    }
+
+    @Test
+    public void testMatchesTheParsersCaseRules() {
+        ActionClassifier classifier = new ActionClassifier();
+
+        assertEquals(SubAction.OTHER_ORDER, classify(classifier, "Market Buy"), "The order side is matched case-sensitively");
+        assertEquals(SubAction.CONVERSION, classify(classifier, "deposit"), "Deposits are matched case-sensitively");
+    }
+
+    @Test
+    public void testRejectsUnknownActions() {
+        ActionClassifier classifier = new ActionClassifier();
+
+        assertThrows(IllegalArgumentException.class, () -> classify(classifier, "Stock split"));
+        assertThrows(IllegalArgumentException.class, () -> classify(classifier, "Stock split"), "Unknown values should not be cached");
+    }
+}
@@ -0,0 +1,154 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import api.ApiRequestScheduler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApiRequestSchedulerTest {
+    private static final String ENDPOINT = "GET /exports";
+
+    private HttpServer server;
+    private HttpClient client;
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final Map<String, String> responseHeaders = new ConcurrentHashMap<>();
+    private final List<Long> arrivals = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/exports", exchange -> {
+            arrivals.add(System.nanoTime());
+            Integer status = statuses.poll();
+            byte[] response = "[]".getBytes();
+            responseHeaders.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+            exchange.sendResponseHeaders(status == null ? 200 : status, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private ApiRequestScheduler newScheduler(int maxAttempts) {
+        return new ApiRequestScheduler(client::sendAsync, Duration.ofMillis(20), maxAttempts);
+    }
+
+    private HttpRequest get(String query) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/exports?" + query)).GET().build();
+    }
+
+    @Test
+    public void testSpacesRequestsToTheRateLimit() throws Exception {
+        ApiRequestScheduler scheduler = newScheduler(1);
+        scheduler.setLimit(ENDPOINT, 2, Duration.ofMillis(400));
+
+        List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(scheduler.submit(ENDPOINT, get("page=" + i)));
+        }
+        assertEquals(2, scheduler.getQueueDepth(ENDPOINT), "Requests beyond the burst should wait in the queue");
+        assertTrue(scheduler.getWaitTime(ENDPOINT).toMillis() > 0, "A new request should have to wait");
+        for (CompletableFuture<HttpResponse<String>> future : futures) {
+            assertEquals(200, future.get(10, TimeUnit.SECONDS).statusCode());
+        }
+
+        long spacing = TimeUnit.NANOSECONDS.toMillis(arrivals.get(3) - arrivals.get(0));
+        assertTrue(spacing >= 350, "Four requests at two per 400 ms should take at least 400 ms, took " + spacing + " ms");
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void testRetriesThrottledRequests() throws Exception {
+        ApiRequestScheduler scheduler = newScheduler(5);
+        statuses.add(429);
+        statuses.add(503);
+
+        HttpResponse<String> response = scheduler.submit(ENDPOINT, get("a")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(200, response.statusCode(), "The request should succeed once the API recovers");
+        assertEquals(3, arrivals.size(), "The request should have been sent three times");
+    }
+
+    @Test
+    public void testReturnsTheLastResponseWhenAttemptsRunOut() throws Exception {
+        ApiRequestScheduler scheduler = newScheduler(3);
+        for (int i = 0; i < 5; i++) {
+            statuses.add(429);
+        }
+
+        HttpResponse<String> response = scheduler.submit(ENDPOINT, get("a")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(429, response.statusCode());
+        assertEquals(3, arrivals.size(), "The request should be attempted three times at most");
+    }
+
+    @Test
+    public void testCoalescesIdenticalQueuedGets() throws Exception {
+        ApiRequestScheduler scheduler = newScheduler(1);
+        scheduler.setLimit(ENDPOINT, 1, Duration.ofMillis(300));
+
+        List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(scheduler.submit(ENDPOINT, get("a")));
+        }
+        assertEquals(1, scheduler.getQueueDepth(ENDPOINT), "Identical requests should share one queue entry");
+        for (CompletableFuture<HttpResponse<String>> future : futures) {
+            assertEquals(200, future.get(10, TimeUnit.SECONDS).statusCode());
+        }
+
+        assertEquals(2, arrivals.size(), "Only the first request and one queued request should be sent");
+    }
+
+    @Test
+    public void testHoldsBackUntilTheReportedReset() throws Exception {
+        ApiRequestScheduler scheduler = newScheduler(1);
+        responseHeaders.put("x-ratelimit-remaining", "0");
+        responseHeaders.put("x-ratelimit-reset", String.valueOf(System.currentTimeMillis() / 1000 + 2));
+
+        scheduler.submit(ENDPOINT, get("a")).get(10, TimeUnit.SECONDS);
+
+        assertTrue(scheduler.getWaitTime(ENDPOINT).toMillis() > 500, "The next request should wait for the reset reported by the API");
+    }
+
+    @Test
+    public void testOnlyCoalescesRequestsWithTheSameBodyHandler() throws Exception {
+        ApiRequestScheduler scheduler = newScheduler(1);
+        scheduler.setLimit(ENDPOINT, 1, Duration.ofMillis(300));
+        HttpResponse.BodyHandler<byte[]> bytes = HttpResponse.BodyHandlers.ofByteArray();
+
+        scheduler.submit(ENDPOINT, get("a"));
+        CompletableFuture<HttpResponse<String>> text = scheduler.submit(ENDPOINT, get("a"));
+        CompletableFuture<HttpResponse<byte[]>> first = scheduler.submit(ENDPOINT, get("a"), bytes);
+        CompletableFuture<HttpResponse<byte[]>> second = scheduler.submit(ENDPOINT, get("a"), bytes);
+
+        assertEquals(2, scheduler.getQueueDepth(ENDPOINT), "Requests reading the body differently should not share a queue entry");
+        assertEquals("[]", text.get(10, TimeUnit.SECONDS).body());
+        assertArrayEquals("[]".getBytes(), first.get(10, TimeUnit.SECONDS).body());
+        assertArrayEquals("[]".getBytes(), second.get(10, TimeUnit.SECONDS).body());
+    }
+}
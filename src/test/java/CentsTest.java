@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import utils.csv.CsvRow;
+import utils.parsers.Cents;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CentsTest {
+
+    private long parse(String field) {
+        return Cents.parse(CsvRow.fromLine(field), 0);
+    }
+
+    @Test
+    public void testParseWholeAndDecimalAmounts() {
+        assertEquals(10000, parse("100"));
+        assertEquals(10050, parse("100.5"));
+        assertEquals(10054, parse("100.54"));
+        assertEquals(61, parse(".61"));
+        assertEquals(500, parse("5."));
+    }
+
+    @Test
+    public void testParseSignsAndSpaces() {
+        assertEquals(-20000, parse("-200.00"));
+        assertEquals(1234, parse("+12.34"));
+        assertEquals(1234, parse(" 12.34 "));
+    }
+
+    @Test
+    public void testParseRoundsLikeStringFormat() {
+        assertEquals(1235, parse("12.345"), "Half should round up");
+        assertEquals(1234, parse("12.3449"), "Only the third decimal should decide rounding");
+        assertEquals(-1235, parse("-12.345"), "Half should round away from zero for negative amounts");
+    }
+
+    @Test
+    public void testParseRejectsInvalidAmounts() {
+        assertThrows(NumberFormatException.class, () -> parse(""));
+        assertThrows(NumberFormatException.class, () -> parse("-"));
+        assertThrows(NumberFormatException.class, () -> parse("12a"));
+        assertThrows(NumberFormatException.class, () -> parse("1.2.3"));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("0.00", Cents.format(0));
+        assertEquals("0.05", Cents.format(5));
+        assertEquals("100.50", Cents.format(10050));
+        assertEquals("-0.61", Cents.format(-61));
+        assertEquals("-1234567.89", Cents.format(-123456789));
+    }
+}
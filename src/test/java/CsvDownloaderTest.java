@@ -0,0 +1,236 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import api.TradingApiCommunicator;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import utils.CsvDownloader;
+import utils.KeySaver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvDownloaderTest {
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private Path directory;
+    private byte[] content;
+    private volatile boolean supportsRanges = true;
+    private volatile int status = 200;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        StringBuilder csv = new StringBuilder("Action,Time,Total,Currency (Total)\n");
+        for (int i = 0; i < 5_000; i++) {
+            csv.append("Deposit,2024-01-01 00:00:00,").append(i).append(".00,EUR\n");
+        }
+        content = csv.toString().getBytes(StandardCharsets.UTF_8);
+        directory = Files.createTempDirectory("downloads");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/report.csv", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(String.valueOf(range));
+            byte[] body = content;
+            int responseStatus = status;
+            if (status == 200 && range != null && supportsRanges) {
+                int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                if (start >= content.length) {
+                    responseStatus = 416;
+                    body = new byte[0];
+                } else {
+                    responseStatus = 206;
+                    body = Arrays.copyOfRange(content, start, content.length);
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+                }
+            }
+            exchange.sendResponseHeaders(responseStatus, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/api/v0/history/exports", exchange -> {
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor); // A download held back by its sink must not block other responses
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private String download(Path destination) throws Exception {
+        URI link = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/report.csv");
+        return new CsvDownloader(HttpClient.newHttpClient()).download(link, destination);
+    }
+
+    private String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    @Test
+    public void testDownloadsToTheDestinationWithAChecksum() throws Exception {
+        Path destination = directory.resolve("1.csv");
+
+        String checksum = download(destination);
+
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(sha256(content), checksum, "The checksum should be computed while the body streams in");
+        assertEquals(checksum, CsvDownloader.checksumOf(destination), "The checksum should be read back from the sidecar");
+        assertFalse(Files.exists(CsvDownloader.partFileOf(destination)), "The part file should be renamed");
+    }
+
+    @Test
+    public void testResumesAnInterruptedDownload() throws Exception {
+        Path destination = directory.resolve("2.csv");
+        Files.write(CsvDownloader.partFileOf(destination), Arrays.copyOf(content, 1000));
+
+        String checksum = download(destination);
+
+        assertEquals(List.of("bytes=1000-"), ranges, "Only the missing bytes should be requested");
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(sha256(content), checksum, "The checksum should cover the resumed part as well");
+    }
+
+    @Test
+    public void testReportsTheProgressOfAResumedDownload() throws Exception {
+        Path destination = directory.resolve("progress.csv");
+        Files.write(CsvDownloader.partFileOf(destination), Arrays.copyOf(content, 1000));
+        List<String> progress = new CopyOnWriteArrayList<>();
+        URI link = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/report.csv");
+
+        new CsvDownloader(HttpClient.newHttpClient()).download(link, destination,
+                CsvDownloader.withProgress((bytes, total) -> progress.add(bytes + "/" + total)));
+
+        assertEquals("0/-1", progress.get(0), "The progress should start over with the content");
+        assertEquals("1000/" + content.length, progress.get(1), "The resumed part should count once the length is known");
+        assertEquals(content.length + "/" + content.length, progress.get(progress.size() - 1));
+        assertTrue(progress.size() <= 103, "The progress should be reported once per percent at most, but was reported "
+                + progress.size() + " times");
+    }
+
+    @Test
+    public void testStartsOverWhenTheServerIgnoresTheRange() throws Exception {
+        Path destination = directory.resolve("3.csv");
+        Files.write(CsvDownloader.partFileOf(destination), "garbage".getBytes(StandardCharsets.UTF_8));
+        supportsRanges = false;
+
+        String checksum = download(destination);
+
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(sha256(content), checksum);
+    }
+
+    @Test
+    public void testFailedDownloadLeavesNoFile() {
+        Path destination = directory.resolve("4.csv");
+        status = 403;
+
+        IOException error = assertThrows(IOException.class, () -> download(destination));
+
+        assertEquals("The download failed with status 403.", error.getMessage());
+        assertFalse(Files.exists(destination), "A failed download should never appear as a downloaded file");
+    }
+
+    @Test
+    public void testChecksumIsRecomputedForAChangedFile() throws Exception {
+        Path destination = directory.resolve("5.csv");
+        download(destination);
+
+        Files.write(destination, "Action,Total\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(destination, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+
+        assertEquals(sha256("Action,Total\n".getBytes(StandardCharsets.UTF_8)), CsvDownloader.checksumOf(destination));
+    }
+
+    private static CsvDownloader.ContentSink slowSink(CountDownLatch started, CountDownLatch release) {
+        return new CsvDownloader.ContentSink() {
+            private boolean waited;
+
+            @Override
+            public void reset() {
+            }
+
+            @Override
+            public void accept(ByteBuffer bytes) {
+                if (!waited) {
+                    waited = true;
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testSlowSinksDoNotHoldUpApiCalls() throws Exception {
+        URI link = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/report.csv");
+        CsvDownloader downloader = new CsvDownloader(TradingApiCommunicator.getHttpClient());
+        CountDownLatch sinksStarted = new CountDownLatch(2);
+        CountDownLatch apiCallDone = new CountDownLatch(1);
+        String originalApiUrl = TradingApiCommunicator.getApiUrl();
+        KeySaver.getInstance().setApiKey("test-key");
+        TradingApiCommunicator.getScheduler().setLimit(TradingApiCommunicator.GET_HISTORY_EXPORTS, 100, Duration.ofSeconds(1));
+        TradingApiCommunicator.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0");
+        ExecutorService downloads = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> checksums = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Path destination = directory.resolve("slow-" + i + ".csv");
+                CsvDownloader.ContentSink sink = slowSink(sinksStarted, apiCallDone);
+                checksums.add(downloads.submit(() -> downloader.download(link, destination, sink)));
+            }
+            assertTrue(sinksStarted.await(10, TimeUnit.SECONDS), "Both downloads should reach their sink");
+
+            assertEquals(List.of(), TradingApiCommunicator.getExportHistoryAsync().get(3, TimeUnit.SECONDS),
+                    "An API call should not wait for the sinks of running downloads");
+            apiCallDone.countDown();
+            for (Future<String> checksum : checksums) {
+                assertEquals(sha256(content), checksum.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            apiCallDone.countDown();
+            downloads.shutdownNow();
+            TradingApiCommunicator.setApiUrl(originalApiUrl);
+            TradingApiCommunicator.getScheduler().setLimit(TradingApiCommunicator.GET_HISTORY_EXPORTS, 1, Duration.ofMinutes(1));
+        }
+    }
+}
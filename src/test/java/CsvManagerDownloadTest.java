@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.parsers.DividendsParser;
+import utils.parsers.InterestParser;
+import utils.parsers.OrdersParser;
+import utils.parsers.TransactionsParser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvManagerDownloadTest {
+    private static final String FILE_ID = "csv-manager-download-test";
+    private static final String REFERENCE_FILE_ID = "csv-manager-download-test-reference";
+
+    private HttpServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Path reference = SyntheticExport.writeReport(REFERENCE_FILE_ID, 20_000);
+        byte[] content = Files.readAllBytes(reference);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/report.csv", exchange -> {
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int offset = 0; offset < content.length; offset += 4096) {
+                    out.write(content, offset, Math.min(4096, content.length - offset));
+                    out.flush();
+                }
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.stop(0);
+        SyntheticExport.deleteReport(FILE_ID);
+        SyntheticExport.deleteReport(REFERENCE_FILE_ID);
+    }
+
+    @Test
+    public void testParsesWhileDownloading() throws Exception {
+        CsvManager.parseCsvFile(REFERENCE_FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        Map<String, String> transactions = Map.copyOf(TransactionsParser.getInstance().getAllData());
+        Map<String, String> orders = Map.copyOf(OrdersParser.getInstance().getAllData());
+        Map<String, String> dividends = Map.copyOf(DividendsParser.getInstance().getAllData());
+        Map<String, String> interest = Map.copyOf(InterestParser.getInstance().getAllData());
+
+        String link = "http://127.0.0.1:" + server.getAddress().getPort() + "/report.csv";
+        String checksum = CsvManager.downloadAndParseCsvFile(link, FILE_ID);
+
+        assertTrue(CsvManager.isPreparsed(FILE_ID), "The download should leave the parsed data behind");
+        assertEquals(CsvManager.getChecksum(REFERENCE_FILE_ID), checksum);
+        CsvManager.parseCsvFile(FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        assertEquals(transactions, TransactionsParser.getInstance().getAllData());
+        assertEquals(orders, OrdersParser.getInstance().getAllData());
+        assertEquals(dividends, DividendsParser.getInstance().getAllData());
+        assertEquals(interest, InterestParser.getInstance().getAllData());
+    }
+}
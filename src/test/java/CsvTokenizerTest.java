@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import utils.csv.CsvRow;
+import utils.csv.CsvTokenizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvTokenizerTest {
+
+    @Test
+    public void testQuotedFieldWithComma() {
+        CsvRow row = CsvRow.fromLine("Market buy,\"Apple, Inc.\",100,USD");
+
+        assertEquals(4, row.getFieldCount(), "Comma inside quotes should not split the field");
+        assertEquals("Apple, Inc.", row.getString(1), "Quotes should be removed from the field");
+        assertEquals("100", row.getString(2), "Fields after the quoted one should keep their index");
+    }
+
+    @Test
+    public void testEscapedQuotes() {
+        CsvRow row = CsvRow.fromLine("\"The \"\"Best\"\" Fund\",\"\"\"\",\"\"");
+
+        assertEquals("The \"Best\" Fund", row.getString(0), "Escaped quotes should be collapsed");
+        assertEquals("\"", row.getString(1), "A field holding only an escaped quote should decode to one quote");
+        assertEquals("", row.getString(2), "An empty quoted field should decode to an empty string");
+    }
+
+    @Test
+    public void testQuoteInsideUnquotedFieldIsLiteral() {
+        CsvRow row = CsvRow.fromLine("5\" screen,10");
+
+        assertEquals("5\" screen", row.getString(0));
+        assertEquals("10", row.getString(1));
+    }
+
+    @Test
+    public void testQuotedLineBreakStaysInField() {
+        ByteBuffer buffer = ByteBuffer.wrap("a,\"line one\nline two\",b\nnext".getBytes(StandardCharsets.UTF_8));
+        CsvRow row = new CsvRow();
+
+        int end = CsvTokenizer.nextRow(buffer, 0, buffer.limit(), true, row);
+
+        assertEquals(3, row.getFieldCount());
+        assertEquals("line one\nline two", row.getString(1), "Line break inside quotes should be part of the field");
+        assertEquals('\n', buffer.get(end), "Row should end at the unquoted line break");
+    }
+
+    @Test
+    public void testIncompleteRowNeedsMoreInput() {
+        ByteBuffer buffer = ByteBuffer.wrap("a,\"open quote,b".getBytes(StandardCharsets.UTF_8));
+        CsvRow row = new CsvRow();
+
+        assertEquals(CsvTokenizer.INCOMPLETE, CsvTokenizer.nextRow(buffer, 0, buffer.limit(), false, row),
+                "Row without a line break should be incomplete while more input may follow");
+        assertEquals(buffer.limit(), CsvTokenizer.nextRow(buffer, 0, buffer.limit(), true, row),
+                "Row should end at the limit at the end of input");
+        assertEquals("open quote,b", row.getString(1), "Unterminated quoted field should run to the end of input");
+    }
+}
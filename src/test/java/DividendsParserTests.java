@@ -14,6 +14,7 @@ public class DividendsParserTests {
     public void setUp() {
         parser = DividendsParser.getInstance();
         parser.clearData();
+        parser.setHeaderMap(null); // The singleton keeps its header map between tests
     }
 
     @Test
@@ -81,4 +82,18 @@ public class DividendsParserTests {
         assertEquals("150.00", parser.getSummarizedData().get("EUR"), "Total dividends should be updated correctly for EUR");
         assertEquals("50.61", parser.getSummarizedData().get("GBP"), "Total dividends should be updated correctly for GBP");
     }
+
+    @Test
+    public void testParseLineWithQuotedName() {
+        Dictionary<String, Integer> headerMap = new Hashtable<>();
+        headerMap.put("Name", 0);
+        headerMap.put("Total", 1);
+        headerMap.put("Currency (Total)", 2);
+        parser.setHeaderMap(headerMap);
+
+        parser.parse("\"Apple, Inc.\",12.34,USD");
+
+        assertEquals("Apple, Inc." + delimiter + "12.34 USD", parser.getAllData().get("1"), "Quoted name should be kept whole");
+        assertEquals("12.34", parser.getSummarizedData().get("USD"), "Total should be read from the correct column");
+    }
 }
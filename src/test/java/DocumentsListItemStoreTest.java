@@ -0,0 +1,44 @@
+import org.junit.jupiter.api.Test;
+
+import app.models.DataIncluded;
+import app.models.DocumentsListItem;
+import app.models.Status;
+import app.store.DocumentsListItemStore;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentsListItemStoreTest {
+
+    private List<DocumentsListItem> documents(int... reportIds) {
+        List<DocumentsListItem> documents = new ArrayList<>();
+        for (int reportId : reportIds) {
+            documents.add(new DocumentsListItem(reportId, "01. 01. 2024 00:00", "01. 02. 2024 00:00",
+                    new DataIncluded(true, true, true, true), Status.FINISHED, "https://example.com/" + reportId));
+        }
+        return documents;
+    }
+
+    @Test
+    public void testSettingTheListReplacesIt() {
+        DocumentsListItemStore store = DocumentsListItemStore.getInstance();
+
+        store.setDocumentsList(documents(1, 2));
+        store.setDocumentsList(documents(2, 3, 4));
+
+        assertEquals(3, store.getDocumentsList().size(), "A refreshed list should replace the previous one");
+        assertEquals(2, store.getDocumentsList().get(0).getReportId());
+        assertThrows(UnsupportedOperationException.class, () -> store.getDocumentsList().clear(), "The list should be read-only");
+    }
+
+    @Test
+    public void testReadOnlyListsAreSharedRatherThanCopied() {
+        DocumentsListItemStore store = DocumentsListItemStore.getInstance();
+        List<DocumentsListItem> decoded = List.copyOf(documents(5, 6));
+
+        store.setDocumentsList(decoded);
+
+        assertSame(decoded, store.getDocumentsList(), "A decoded list should be shared with the views");
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+
+import app.models.DocumentsListItem;
+import app.models.Status;
+import com.google.gson.stream.JsonReader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentsListItemTest {
+
+    private List<DocumentsListItem> read(String json) throws Exception {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return DocumentsListItem.readList(reader);
+        }
+    }
+
+    @Test
+    public void testReadsTheExportHistory() throws Exception {
+        List<DocumentsListItem> documents = read("[{\"reportId\": 7, \"timeFrom\": \"2024-01-01T08:30:00Z\","
+                + " \"timeTo\": \"2024-02-01T17:45:00Z\", \"status\": \"Finished\", \"downloadLink\": \"https://example.com/7\","
+                + " \"dataIncluded\": {\"includeDividends\": true, \"includeInterest\": false, \"includeOrders\": true, \"includeTransactions\": false},"
+                + " \"extra\": {\"nested\": [1, 2]}}]");
+
+        assertEquals(1, documents.size());
+        DocumentsListItem document = documents.get(0);
+        assertEquals(7, document.getReportId());
+        assertEquals("01. 01. 2024 08:30", document.getTimeFrom());
+        assertEquals("01. 02. 2024 17:45", document.getTimeTo());
+        assertEquals(Status.FINISHED, document.getStatus());
+        assertEquals("https://example.com/7", document.getDownloadLink());
+        assertTrue(document.getDataIncluded().hasDividends());
+        assertFalse(document.getDataIncluded().hasInterest());
+        assertTrue(document.getDataIncluded().hasOrders());
+        assertThrows(UnsupportedOperationException.class, documents::clear, "The decoded list should be read-only");
+    }
+
+    @Test
+    public void testUnfinishedReportsHaveNoDownloadLink() throws Exception {
+        List<DocumentsListItem> documents = read("[{\"reportId\": 8, \"status\": \"Queued\", \"downloadLink\": null}]");
+
+        assertEquals(Status.QUEUED, documents.get(0).getStatus());
+        assertNull(documents.get(0).getDownloadLink());
+        assertFalse(documents.get(0).getDataIncluded().hasTransactions());
+    }
+
+    @Test
+    public void testRejectsDocumentsWithoutAReportId() {
+        assertThrows(RuntimeException.class, () -> read("[{\"status\": \"Queued\"}]"));
+    }
+}
@@ -0,0 +1,161 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import app.models.DataIncluded;
+import app.models.DocumentsListItem;
+import app.models.Status;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.DownloadQueue;
+import utils.parsers.DividendsParser;
+import utils.parsers.TransactionsParser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DownloadQueueTest {
+    private static final String PREPARSE_FILE_ID = "download-queue-test";
+
+    private final Set<String> downloaded = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final List<Integer> preparsed = new CopyOnWriteArrayList<>();
+    private final List<Integer> progressSeen = new CopyOnWriteArrayList<>();
+    private volatile DownloadQueue currentQueue;
+
+    @AfterEach
+    public void deleteExport() throws Exception {
+        SyntheticExport.deleteReport(PREPARSE_FILE_ID);
+    }
+
+    private DownloadQueue newQueue(int concurrency, int maxAttempts) {
+        DownloadQueue queue = new DownloadQueue((document, progress) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                progress.onProgress(0, 200);
+                Thread.sleep(20);
+                progress.onProgress(150, 200);
+                progressSeen.add(currentQueue.getProgressPercent(document.getReportId()));
+                AtomicInteger failures = failuresLeft.get(document.getReportId());
+                if (failures != null && failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Connection reset");
+                }
+                downloaded.add(DownloadQueue.fileIdOf(document));
+            } finally {
+                running.decrementAndGet();
+            }
+        }, downloaded::contains, document -> preparsed.add(document.getReportId()), concurrency, maxAttempts, Duration.ofMillis(5));
+        queue.setPreparseEnabled(true);
+        currentQueue = queue;
+        return queue;
+    }
+
+    private DocumentsListItem report(int reportId, Status status) {
+        return new DocumentsListItem(reportId, null, null, new DataIncluded(true, true, true, true), status,
+                status == Status.FINISHED ? "https://example.com/" + reportId : null);
+    }
+
+    @Test
+    public void testOnlyOffersFinishedReportsThatAreNotDownloaded() throws Exception {
+        DownloadQueue queue = newQueue(2, 1);
+        downloaded.add("3");
+        List<DocumentsListItem> documents = List.of(report(1, Status.FINISHED), report(2, Status.RUNNING), report(3, Status.FINISHED));
+
+        assertEquals(0, queue.offerAll(documents), "Nothing should be downloaded before automatic downloads are enabled");
+        queue.setAutoDownloadEnabled(true);
+        assertEquals(1, queue.offerAll(documents));
+        assertEquals(0, queue.offerAll(documents), "A queued report should not be queued again");
+
+        queue.enqueue(documents.get(0)).get(10, TimeUnit.SECONDS);
+        assertTrue(downloaded.contains("1"));
+        assertEquals(DownloadQueue.State.DONE, queue.getState(1));
+        assertEquals(List.of(1), preparsed, "A downloaded file should be pre-parsed");
+    }
+
+    @Test
+    public void testBoundsTheNumberOfConcurrentDownloads() throws Exception {
+        DownloadQueue queue = newQueue(2, 1);
+        List<CompletableFuture<Void>> futures = new CopyOnWriteArrayList<>();
+        for (int reportId = 1; reportId <= 8; reportId++) {
+            futures.add(queue.enqueue(report(reportId, Status.FINISHED)));
+        }
+        for (CompletableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(8, downloaded.size());
+        assertTrue(maxRunning.get() <= 2, "At most two downloads should run at a time, but " + maxRunning.get() + " did");
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void testRetriesFailedDownloads() throws Exception {
+        DownloadQueue queue = newQueue(1, 3);
+        failuresLeft.put(1, new AtomicInteger(2));
+        failuresLeft.put(2, new AtomicInteger(5));
+
+        queue.enqueue(report(1, Status.FINISHED)).get(10, TimeUnit.SECONDS);
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> queue.enqueue(report(2, Status.FINISHED)).get(10, TimeUnit.SECONDS));
+
+        assertTrue(downloaded.contains("1"), "A download should succeed once the connection recovers");
+        assertEquals("Connection reset", failure.getCause().getMessage());
+        assertEquals(DownloadQueue.State.FAILED, queue.getState(2));
+        assertEquals(2, failuresLeft.get(2).get(), "A download should be attempted three times at most");
+    }
+
+    @Test
+    public void testReportsTheProgressOfDownloads() throws Exception {
+        DownloadQueue queue = newQueue(1, 1);
+        List<String> reported = new CopyOnWriteArrayList<>();
+        queue.setListener(new DownloadQueue.Listener() {
+            @Override
+            public void onStateChanged(DocumentsListItem document, DownloadQueue.State state) {
+                reported.add(document.getReportId() + " " + state);
+            }
+
+            @Override
+            public void onProgress(DocumentsListItem document, long bytes, long total) {
+                reported.add(document.getReportId() + " " + bytes + "/" + total);
+            }
+        });
+
+        queue.enqueue(report(1, Status.FINISHED)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("1 QUEUED", "1 DOWNLOADING", "1 0/200", "1 150/200", "1 PARSING", "1 DONE"), reported);
+        assertEquals(List.of(75), progressSeen, "The percentage should follow the bytes received");
+        assertEquals(-1, queue.getProgressPercent(1), "A finished download should not show a percentage");
+    }
+
+    @Test
+    public void testPreparsedFileGivesTheSameData() throws Exception {
+        Path file = SyntheticExport.writeReport(PREPARSE_FILE_ID, 2_000);
+        CsvManager.parseCsvFile(PREPARSE_FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        Map<String, String> transactions = Map.copyOf(TransactionsParser.getInstance().getAllData());
+        Map<String, String> dividends = Map.copyOf(DividendsParser.getInstance().getAllData());
+
+        CsvManager.preparseCsvFile(PREPARSE_FILE_ID);
+        CsvManager.parseCsvFile(PREPARSE_FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        assertEquals(transactions, TransactionsParser.getInstance().getAllData());
+        assertEquals(dividends, DividendsParser.getInstance().getAllData());
+
+        SyntheticExport.writeReport(PREPARSE_FILE_ID, 1_000);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        CsvManager.parseCsvFile(PREPARSE_FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        assertTrue(TransactionsParser.getInstance().getAllData().size() < transactions.size(),
+                "A file that changed after it was pre-parsed should be parsed again");
+    }
+}
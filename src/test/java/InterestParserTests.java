@@ -14,6 +14,7 @@ public class InterestParserTests {
     public void setUp() {
         parser = InterestParser.getInstance();
         parser.clearData(); // Ensure clean state before each test
+        parser.setHeaderMap(null); // The singleton keeps its header map between tests
     }
 
     @Test
@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import utils.csv.CsvRow;
+import utils.csv.MappedCsvReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedCsvReaderTest {
+    private Path csvFile;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        csvFile = Files.createTempFile("mapped-reader", ".csv");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(csvFile);
+    }
+
+    private MappedCsvReader openWith(String content) throws Exception {
+        Files.write(csvFile, content.getBytes(StandardCharsets.UTF_8));
+        return MappedCsvReader.open(csvFile);
+    }
+
+    @Test
+    public void testReadsRowsAndFields() throws Exception {
+        try (MappedCsvReader reader = openWith("Action,Name,Total\nMarket buy,Company A,100\n")) {
+            CsvRow header = reader.nextRow();
+            assertEquals(3, header.getFieldCount(), "Header should have three fields");
+            assertEquals("Name", header.getString(1), "Header field should match");
+
+            CsvRow row = reader.nextRow();
+            assertEquals("Market buy", row.getString(0), "Action field should match");
+            assertEquals("100", row.getString(2), "Total field should match");
+            assertEquals("Market buy,Company A,100", row.toLine(), "Line should be reconstructed without the line break");
+
+            assertNull(reader.nextRow(), "There should be no more rows");
+        }
+    }
+
+    @Test
+    public void testHandlesWindowsLineEndingsAndBlankLines() throws Exception {
+        try (MappedCsvReader reader = openWith("a,b\r\n\r\nc,d\r\ne,f")) {
+            assertEquals("a", reader.nextRow().getString(0));
+            assertEquals("d", reader.nextRow().getString(1), "Blank lines should be skipped");
+            assertEquals("f", reader.nextRow().getString(1), "Last row without a line break should be read");
+            assertNull(reader.nextRow());
+        }
+    }
+
+    @Test
+    public void testKeepsEmptyFields() throws Exception {
+        try (MappedCsvReader reader = openWith("a,,c,\n")) {
+            CsvRow row = reader.nextRow();
+            assertEquals(4, row.getFieldCount(), "Empty fields should be kept, including a trailing one");
+            assertEquals("", row.getString(1));
+            assertEquals("", row.getString(3));
+        }
+    }
+
+    @Test
+    public void testSkipsByteOrderMarkAndDecodesUtf8() throws Exception {
+        try (MappedCsvReader reader = openWith("﻿Action,Name\nDividend,Société Générale\n")) {
+            assertEquals("Action", reader.nextRow().getString(0), "Byte order mark should not be part of the first field");
+            assertEquals("Société Générale", reader.nextRow().getString(1), "UTF-8 names should be decoded");
+        }
+    }
+
+    @Test
+    public void testEmptyFileHasNoRows() throws Exception {
+        try (MappedCsvReader reader = openWith("")) {
+            assertNull(reader.nextRow());
+        }
+    }
+
+    @Test
+    public void testSplitStartsRangesAtLineStarts() throws Exception {
+        StringBuilder content = new StringBuilder("Action,Total\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("Deposit,").append(i).append("\n");
+        }
+        try (MappedCsvReader reader = openWith(content.toString())) {
+            reader.nextRow();
+            List<MappedCsvReader> chunks = reader.split(4, 64);
+
+            assertEquals(4, chunks.size(), "File should be split into the requested number of ranges");
+            int expected = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                MappedCsvReader chunk = chunks.get(i);
+                CsvRow row;
+                while ((row = chunk.nextRow()) != null) {
+                    assertEquals(String.valueOf(expected++), row.getString(1), "Rows should be read once and in order");
+                }
+                if (i + 1 < chunks.size()) {
+                    assertEquals(chunks.get(i + 1).getStart(), chunk.getPosition(), "Each range should end where the next one starts");
+                }
+            }
+            assertEquals(100, expected, "Every row should be read");
+        }
+    }
+
+    @Test
+    public void testSplitDoesNotCutQuotedLineBreaks() throws Exception {
+        StringBuilder content = new StringBuilder("Action,Notes,Total\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("Deposit,\"first line\nsecond, line\n\n").append(i).append("\",").append(i).append("\n");
+        }
+        try (MappedCsvReader reader = openWith(content.toString())) {
+            reader.nextRow();
+            List<MappedCsvReader> chunks = reader.split(8, 64);
+
+            assertTrue(chunks.size() > 1, "File should be split into several ranges");
+            int expected = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                MappedCsvReader chunk = chunks.get(i);
+                CsvRow row;
+                while ((row = chunk.nextRow()) != null) {
+                    assertEquals("Deposit", row.getString(0), "Every range should start at the start of a row");
+                    assertEquals(String.valueOf(expected++), row.getString(2));
+                }
+                if (i + 1 < chunks.size()) {
+                    assertEquals(chunks.get(i + 1).getStart(), chunk.getPosition(), "Each range should end where the next one starts");
+                }
+            }
+            assertEquals(100, expected, "Every row should be read");
+        }
+    }
+}
@@ -1,10 +1,13 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import utils.csv.CsvRow;
+import utils.parsers.OrderTotals;
 import utils.parsers.OrdersParser;
 
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,6 +19,7 @@ public class OrdersParserTest {
     public void setUp() {
         parser = OrdersParser.getInstance();
         parser.clearData(); // Ensure clean state before each test
+        parser.setHeaderMap(null); // The singleton keeps its header map between tests
     }
 
     @Test
@@ -123,4 +127,67 @@ public class OrdersParserTest {
         assertEquals("-100.00", parser.getSummarizedData().get("USD").get("totalProfit"), "Total profit for USD should be calculated correctly");
         assertEquals("200.00", parser.getSummarizedData().get("EUR").get("totalProfit"), "Total profit for EUR should be calculated correctly");
     }
+
+    @Test
+    public void testParseRowUsesActionFieldOnly() {
+        Dictionary<String, Integer> headerMap = new Hashtable<>();
+        headerMap.put("Action", 0);
+        headerMap.put("Name", 1);
+        headerMap.put("Total", 2);
+        headerMap.put("Currency (Total)", 3);
+        parser.setHeaderMap(headerMap);
+
+        parser.parse(CsvRow.fromLine("Market sell,buyback fund,120,USD"));
+
+        assertEquals("Market sell" + delimiter + "buyback fund" + delimiter + "120 USD", parser.getAllData().get("1"), "Parsed sell data should match");
+        assertEquals("120.00", parser.getSummarizedData().get("USD").get("totalIncome"), "A name containing 'buy' should not turn a sell into a buy");
+        assertEquals("0.00", parser.getSummarizedData().get("USD").get("totalExpenses"), "Total expenses should remain zero for USD");
+    }
+
+    @Test
+    public void testMergeMatchesSequentialParse() {
+        Dictionary<String, Integer> headerMap = new Hashtable<>();
+        headerMap.put("Action", 0);
+        headerMap.put("Name", 1);
+        headerMap.put("Total", 2);
+        headerMap.put("Currency (Total)", 3);
+        parser.setHeaderMap(headerMap);
+
+        OrdersParser firstChunk = parser.createEmpty();
+        OrdersParser secondChunk = parser.createEmpty();
+        firstChunk.parse("buy,Company A,100.10,USD");
+        firstChunk.parse("sell,Company B,200,EUR");
+        secondChunk.parse("sell,Company A,150.25,USD");
+        secondChunk.parse("buy,Company C,50,GBP");
+        parser.merge(firstChunk);
+        parser.merge(secondChunk);
+
+        assertNotSame(parser, firstChunk, "Empty copies should not be the singleton");
+        assertEquals(4, parser.getAllData().size(), "All rows should be merged");
+        assertEquals("sell" + delimiter + "Company A" + delimiter + "150.25 USD", parser.getAllData().get("3"), "Rows of the second chunk should follow the first");
+        assertEquals("150.25", parser.getSummarizedData().get("USD").get("totalIncome"), "Income should be merged per currency");
+        assertEquals("100.10", parser.getSummarizedData().get("USD").get("totalExpenses"), "Expenses should be merged per currency");
+        assertEquals("50.15", parser.getSummarizedData().get("USD").get("totalProfit"), "Profit should be recomputed after merging");
+        assertEquals("-50.00", parser.getSummarizedData().get("GBP").get("totalProfit"), "Currencies seen only in a later chunk should be added");
+    }
+
+    @Test
+    public void testCurrencyTotalsComputeProfitOnRead() {
+        Dictionary<String, Integer> headerMap = new Hashtable<>();
+        headerMap.put("Action", 0);
+        headerMap.put("Name", 1);
+        headerMap.put("Total", 2);
+        headerMap.put("Currency (Total)", 3);
+        parser.setHeaderMap(headerMap);
+
+        parser.parse("sell,Company A,150.25,USD");
+        parser.parse("buy,Company B,100,USD");
+
+        List<OrderTotals> totals = parser.getCurrencyTotals();
+        assertEquals(1, totals.size(), "There should be totals for one currency");
+        assertEquals("USD", totals.get(0).getCurrency());
+        assertEquals(15025, totals.get(0).getIncomeCents(), "Income should be kept in cents");
+        assertEquals(10000, totals.get(0).getExpensesCents(), "Expenses should be kept in cents");
+        assertEquals(5025, totals.get(0).getProfitCents(), "Profit should be income minus expenses");
+    }
 }
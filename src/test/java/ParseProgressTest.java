@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.ParseReportTask;
+import utils.parsers.ReportSnapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParseProgressTest {
+    private static final String FILE_ID = "parse-progress-test";
+    private static final Path FILE = SyntheticExport.reportFile(FILE_ID);
+
+    @AfterEach
+    public void deleteExport() throws Exception {
+        SyntheticExport.deleteReport(FILE_ID);
+    }
+
+    private static void writeExport(long seed) throws Exception {
+        SyntheticExport.writeReport(FILE_ID, 50_000, seed);
+    }
+
+    @Test
+    public void testReportsTheBytesParsed() throws Exception {
+        writeExport(1L);
+        long size = Files.size(FILE);
+        List<Long> updates = new CopyOnWriteArrayList<>();
+
+        CsvManager.loadReport(FILE_ID, CsvManager.ParseMode.SEQUENTIAL, new CsvManager.ParseProgress() {
+            @Override
+            public void onProgress(long parsedBytes, long totalBytes) {
+                assertEquals(size, totalBytes);
+                updates.add(parsedBytes);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        });
+
+        assertTrue(updates.size() > 5, "A large file should report its progress several times, but reported " + updates.size());
+        for (int i = 1; i < updates.size(); i++) {
+            assertTrue(updates.get(i) >= updates.get(i - 1), "The progress should never go back");
+        }
+        assertEquals(size, updates.get(updates.size() - 1).longValue());
+    }
+
+    @Test
+    public void testCancelledParseLeavesNothingBehind() throws Exception {
+        writeExport(2L);
+
+        assertThrows(CancellationException.class, () -> CsvManager.loadReport(FILE_ID, CsvManager.ParseMode.PARALLEL,
+                new CsvManager.ParseProgress() {
+                    private volatile boolean started;
+
+                    @Override
+                    public void onProgress(long parsedBytes, long totalBytes) {
+                        started = parsedBytes > 0;
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return started;
+                    }
+                }));
+
+        assertFalse(CsvManager.isPreparsed(FILE_ID), "A cancelled parse should not be cached");
+        assertFalse(Files.exists(ReportSnapshot.snapshotFileOf(FILE)), "A cancelled parse should not write a snapshot");
+    }
+
+    @Test
+    public void testDescribesProgressWithTheTimeLeft() {
+        long megabyte = 1024 * 1024;
+
+        assertEquals("Parsed 10.0 of 40.0 MB (25%), about 3 s left",
+                ParseReportTask.describeProgress(10 * megabyte, 40 * megabyte, 1_000_000_000L));
+        assertEquals("Parsed 0.0 of 40.0 MB (0%), estimating the time left",
+                ParseReportTask.describeProgress(0, 40 * megabyte, 0));
+        assertEquals("Parsed 40.0 MB", ParseReportTask.describeProgress(40 * megabyte, 40 * megabyte, 5_000_000_000L));
+    }
+}
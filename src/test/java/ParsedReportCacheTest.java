@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import app.models.ActionType;
+import java.util.EnumMap;
+import java.util.Map;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.ParsedReportCache;
+import utils.parsers.DividendsParser;
+import utils.parsers.InterestParser;
+import utils.parsers.OrdersParser;
+import utils.parsers.ParsedReport;
+import utils.parsers.Parser;
+import utils.parsers.TransactionsParser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParsedReportCacheTest {
+    private static final String FILE_ID = "parsed-report-cache-test";
+
+    @AfterEach
+    public void deleteExport() throws Exception {
+        SyntheticExport.deleteReport(FILE_ID);
+    }
+
+    private static ParsedReport emptyReport(String fileId, String checksum) {
+        Map<ActionType, Parser<?>> parsers = new EnumMap<>(ActionType.class);
+        parsers.put(ActionType.INTEREST, InterestParser.getInstance().createEmpty());
+        parsers.put(ActionType.TRANSACTION, TransactionsParser.getInstance().createEmpty());
+        parsers.put(ActionType.ORDER, OrdersParser.getInstance().createEmpty());
+        parsers.put(ActionType.DIVIDEND, DividendsParser.getInstance().createEmpty());
+        return new ParsedReport(fileId, checksum, parsers);
+    }
+
+    @Test
+    public void testEvictsTheLeastRecentlyUsedReportsBeyondTheBound() {
+        long reportBytes = emptyReport("size", "a").getEstimatedBytes();
+        assertTrue(reportBytes > 0);
+        ParsedReportCache cache = new ParsedReportCache(reportBytes * 2 + reportBytes / 2);
+        ParsedReport first = emptyReport("1", "a");
+        ParsedReport second = emptyReport("2", "a");
+
+        cache.put(first);
+        cache.put(second);
+        assertSame(first, cache.get("1", "a"), "Using the first report should make the second the eldest");
+        cache.put(emptyReport("3", "a"));
+
+        assertNull(cache.get("2", "a"));
+        assertSame(first, cache.get("1", "a"));
+        ParsedReportCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getEntries());
+        assertEquals(2 * reportBytes, stats.getBytes());
+    }
+
+    @Test
+    public void testDropsReportsOfChangedFilesAndRefusesOversizedOnes() {
+        ParsedReportCache cache = new ParsedReportCache(1L << 30);
+        cache.put(emptyReport("1", "old"));
+
+        assertNull(cache.get("1", "new"), "A report of an older version of the file should not be served");
+        assertFalse(cache.contains("1", null));
+        assertEquals(0, cache.getStats().getBytes());
+
+        ParsedReportCache tiny = new ParsedReportCache(1);
+        assertFalse(tiny.put(emptyReport("1", "a")));
+        assertEquals(0, tiny.getStats().getEntries());
+    }
+
+    @Test
+    public void testLoadingAReportAgainServesItFromTheCache() throws Exception {
+        SyntheticExport.writeReport(FILE_ID, 5_000);
+        CsvManager.parseCsvFile(FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        Map<String, String> orders = Map.copyOf(OrdersParser.getInstance().getAllData());
+        long hits = CsvManager.getReportCacheStats().getHits();
+
+        ParsedReport report = CsvManager.loadReport(FILE_ID);
+        CsvManager.parseCsvFile(FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        assertSame(report, CsvManager.loadReport(FILE_ID));
+
+        assertEquals(orders, Map.copyOf(report.getAllData(ActionType.ORDER)));
+        assertEquals(orders, Map.copyOf(OrdersParser.getInstance().getAllData()), "The shared parsers should be filled from the cache");
+        assertEquals(OrdersParser.getInstance().getCurrencyTotals().size(), report.getOrderTotals().size());
+        assertEquals(hits + 2, CsvManager.getReportCacheStats().getHits());
+        assertThrows(UnsupportedOperationException.class, () -> report.getOrderTotals().clear());
+    }
+}
@@ -0,0 +1,194 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.parsers.DividendsParser;
+import utils.parsers.InterestParser;
+import utils.parsers.OrdersParser;
+import utils.parsers.TransactionsParser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parses synthetic exports of growing size end to end and checks that the parse time and the heap retained
+ * by the parsers grow no worse than linearly with the number of rows. These measurements are tagged "scaling"
+ * and only run with {@code mvn -P scaling test}; the checks of the parallel parse run in every build.
+ */
+public class ParserScalingTest {
+    private static final int[] SIZES = {25_000, 50_000, 100_000, 200_000};
+    private static final long SEED = 212L;
+    private static final String MULTI_LINE_FILE_ID = "scaling-multi-line-notes";
+    private static final String BAD_ROW_FILE_ID = "scaling-bad-row";
+
+    // Allowed growth of the cost per row from the smallest to the largest export; timing and heap
+    // measurements are noisy, so only a clearly superlinear cost should fail.
+    private static final double MAX_TIME_PER_ROW_GROWTH = 2.0;
+    private static final double MAX_HEAP_PER_ROW_GROWTH = 1.5;
+
+    @BeforeAll
+    public static void writeExports() throws Exception {
+        CsvManager.setSnapshotsEnabled(false); // Every parse should read the whole file
+        for (int size : SIZES) {
+            SyntheticExport.writeReport(fileId(size), size, SEED);
+        }
+    }
+
+    @AfterAll
+    public static void deleteExports() throws Exception {
+        for (int size : SIZES) {
+            SyntheticExport.deleteReport(fileId(size));
+        }
+        SyntheticExport.deleteReport(MULTI_LINE_FILE_ID);
+        SyntheticExport.deleteReport(BAD_ROW_FILE_ID);
+        clearParsers();
+        CsvManager.setSnapshotsEnabled(true);
+    }
+
+    private static String fileId(int size) {
+        return "scaling-" + size;
+    }
+
+    private static void clearParsers() {
+        OrdersParser.getInstance().clearData();
+        TransactionsParser.getInstance().clearData();
+        DividendsParser.getInstance().clearData();
+        InterestParser.getInstance().clearData();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    @Test
+    @Tag("scaling")
+    public void testParseTimeGrowsLinearly() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            CsvManager.parseCsvFile(fileId(SIZES[1]), CsvManager.ParseMode.SEQUENTIAL); // Warm up the JIT
+        }
+
+        double[] nanosPerRow = new double[SIZES.length];
+        for (int s = 0; s < SIZES.length; s++) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                CsvManager.parseCsvFile(fileId(SIZES[s]), CsvManager.ParseMode.SEQUENTIAL);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            nanosPerRow[s] = (double) best / SIZES[s];
+        }
+
+        double growth = nanosPerRow[SIZES.length - 1] / nanosPerRow[0];
+        assertTrue(growth <= MAX_TIME_PER_ROW_GROWTH, String.format(
+                "Parse time per row grew %.2fx from %d to %d rows (%.0f ns to %.0f ns)",
+                growth, SIZES[0], SIZES[SIZES.length - 1], nanosPerRow[0], nanosPerRow[SIZES.length - 1]));
+    }
+
+    @Test
+    @Tag("scaling")
+    public void testRetainedHeapGrowsLinearly() throws Exception {
+        double[] bytesPerRow = new double[SIZES.length];
+        for (int s = 0; s < SIZES.length; s++) {
+            clearParsers();
+            long before = usedHeapAfterGc();
+            CsvManager.parseCsvFile(fileId(SIZES[s]), CsvManager.ParseMode.SEQUENTIAL);
+            long retained = usedHeapAfterGc() - before;
+            assertEquals(SIZES[s], OrdersParser.getInstance().getAllData().size() + TransactionsParser.getInstance().getAllData().size()
+                    + DividendsParser.getInstance().getAllData().size() + InterestParser.getInstance().getAllData().size()
+                    + countConversions(SIZES[s]), "Every row should be parsed");
+            bytesPerRow[s] = (double) retained / SIZES[s];
+        }
+
+        // The smallest export is dominated by fixed overheads, so growth is measured from the second size on
+        double growth = bytesPerRow[SIZES.length - 1] / bytesPerRow[1];
+        assertTrue(growth <= MAX_HEAP_PER_ROW_GROWTH, String.format(
+                "Retained heap per row grew %.2fx from %d to %d rows (%.0f B to %.0f B)",
+                growth, SIZES[1], SIZES[SIZES.length - 1], bytesPerRow[1], bytesPerRow[SIZES.length - 1]));
+    }
+
+    @Test
+    public void testParallelParseHandlesLineBreaksInQuotedFields() throws Exception {
+        // Long notes make almost every byte lie inside a quoted field, so the parallel ranges have to be placed around them
+        String notes = ",\"" + "first line ".repeat(200) + "\nsecond, line x\",";
+        List<String> lines = new ArrayList<>();
+        lines.add(SyntheticExport.HEADER);
+        for (String line : SyntheticExport.rows(60_000, SEED)) {
+            if (line.contains(",Bank Transfer,")) {
+                lines.add(line.replace(",Bank Transfer,", notes));
+            }
+        }
+        Files.write(SyntheticExport.reportFile(MULTI_LINE_FILE_ID), lines);
+
+        CsvManager.parseCsvFile(MULTI_LINE_FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        List<Map<String, String>> sequential = copyAllData();
+        String sequentialTotals = describeTransactionTotals();
+        CsvManager.parseCsvFile(MULTI_LINE_FILE_ID, CsvManager.ParseMode.PARALLEL);
+
+        assertEquals(sequential, copyAllData(), "A parallel parse should read the same rows as a sequential one");
+        assertEquals(sequentialTotals, describeTransactionTotals());
+    }
+
+    @Test
+    public void testParallelParseFailsOnABadRowWithoutParsingAgain() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(SyntheticExport.HEADER);
+        lines.addAll(SyntheticExport.rows(60_000, SEED));
+        lines.add("Bogus action,2024-01-02 03:04:05,,,,,,,,,,,,1,EUR,,,,,,,,");
+        Path file = SyntheticExport.reportFile(BAD_ROW_FILE_ID);
+        Files.write(file, lines);
+        long size = Files.size(file);
+        AtomicLong mostParsed = new AtomicLong();
+        AtomicLong largestDrop = new AtomicLong();
+
+        assertThrows(IllegalArgumentException.class, () -> CsvManager.loadReport(BAD_ROW_FILE_ID, CsvManager.ParseMode.PARALLEL,
+                new CsvManager.ParseProgress() {
+                    @Override
+                    public void onProgress(long parsedBytes, long totalBytes) {
+                        largestDrop.accumulateAndGet(mostParsed.accumulateAndGet(parsedBytes, Math::max) - parsedBytes, Math::max);
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return false;
+                    }
+                }));
+        assertTrue(largestDrop.get() < size / 2, "A bad row should not make the file be parsed again sequentially");
+    }
+
+    private static List<Map<String, String>> copyAllData() {
+        return List.of(Map.copyOf(OrdersParser.getInstance().getAllData()), Map.copyOf(TransactionsParser.getInstance().getAllData()),
+                Map.copyOf(DividendsParser.getInstance().getAllData()), Map.copyOf(InterestParser.getInstance().getAllData()));
+    }
+
+    private static String describeTransactionTotals() {
+        StringBuilder sb = new StringBuilder();
+        TransactionsParser.getInstance().getCurrencyTotals().forEach(totals -> sb.append(totals.getCurrency()).append(' ')
+                .append(totals.getDepositCents()).append(' ').append(totals.getWithdrawalCents()).append('\n'));
+        return sb.toString();
+    }
+
+    private static int countConversions(int size) {
+        int conversions = 0;
+        for (String line : SyntheticExport.rows(size, SEED)) {
+            if (line.startsWith("Currency conversion,")) {
+                conversions++;
+            }
+        }
+        return conversions;
+    }
+}
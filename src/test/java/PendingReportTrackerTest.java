@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+
+import api.PendingReportTracker;
+import app.models.DataIncluded;
+import app.models.DocumentsListItem;
+import app.models.Status;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PendingReportTrackerTest {
+    private final Queue<List<DocumentsListItem>> histories = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger polls = new AtomicInteger();
+
+    private PendingReportTracker newTracker(Duration timeout) {
+        return new PendingReportTracker(() -> {
+            polls.incrementAndGet();
+            List<DocumentsListItem> history = histories.poll();
+            return history == null ? CompletableFuture.failedFuture(new IllegalStateException("offline"))
+                    : CompletableFuture.completedFuture(history);
+        }, Duration.ofMillis(5), Duration.ofMillis(20), timeout);
+    }
+
+    private DocumentsListItem report(int reportId, Status status) {
+        return new DocumentsListItem(reportId, null, null, new DataIncluded(true, true, true, true), status,
+                status == Status.FINISHED ? "https://example.com/" + reportId : null);
+    }
+
+    @Test
+    public void testPollsUntilTheReportIsDone() throws Exception {
+        PendingReportTracker tracker = newTracker(Duration.ofMinutes(1));
+        histories.add(List.of());
+        histories.add(List.of(report(1, Status.QUEUED), report(2, Status.FINISHED)));
+        histories.add(List.of(report(1, Status.QUEUED)));
+        histories.add(List.of(report(1, Status.PROCESSING)));
+        histories.add(List.of(report(1, Status.FINISHED)));
+        List<Status> updates = new CopyOnWriteArrayList<>();
+
+        DocumentsListItem done = tracker.track(1, document -> updates.add(document.getStatus())).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Status.FINISHED, done.getStatus());
+        assertEquals("https://example.com/1", done.getDownloadLink());
+        assertEquals(List.of(Status.QUEUED, Status.PROCESSING, Status.FINISHED), updates, "Each new status should be reported once");
+        assertEquals(5, polls.get());
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    public void testKeepsPollingAfterFailedPolls() throws Exception {
+        PendingReportTracker tracker = newTracker(Duration.ofMinutes(1));
+        CompletableFuture<DocumentsListItem> done = tracker.track(3, document -> {});
+
+        Thread.sleep(100);
+        assertFalse(done.isDone(), "A failed poll should not end the tracking");
+        histories.add(List.of(report(3, Status.FAILED)));
+
+        assertEquals(Status.FAILED, done.get(10, TimeUnit.SECONDS).getStatus());
+        assertTrue(polls.get() < 15, "Failed polls should back off, but there were " + polls.get());
+    }
+
+    @Test
+    public void testTracksEachReportOnce() throws Exception {
+        PendingReportTracker tracker = newTracker(Duration.ofMinutes(1));
+        List<Integer> updates = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<DocumentsListItem> first = tracker.track(4, document -> updates.add(1));
+        CompletableFuture<DocumentsListItem> second = tracker.track(4, document -> updates.add(2));
+        assertEquals(1, tracker.getPendingCount());
+        histories.add(List.of(report(4, Status.CANCELED)));
+
+        assertEquals(Status.CANCELED, first.get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(Status.CANCELED, second.get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(2, updates.size(), "Both listeners should be told about the new status");
+    }
+
+    @Test
+    public void testGivesUpAfterTheTimeout() {
+        PendingReportTracker tracker = newTracker(Duration.ofMillis(50));
+        for (int i = 0; i < 100; i++) {
+            histories.add(List.of(report(5, Status.RUNNING)));
+        }
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> tracker.track(5, document -> {}).get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof TimeoutException);
+        assertEquals(0, tracker.getPendingCount());
+    }
+}
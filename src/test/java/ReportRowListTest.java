@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import app.models.ActionType;
+import java.util.ArrayList;
+import java.util.List;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.ReportRowList;
+import utils.parsers.ParsedReport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportRowListTest {
+    private static final String FILE_ID = "report-row-list-test";
+
+    @AfterEach
+    public void deleteExport() throws Exception {
+        SyntheticExport.deleteReport(FILE_ID);
+    }
+
+    @Test
+    public void testShowsTheSameRowsAsTheFullDataUnderSectionHeadings() throws Exception {
+        SyntheticExport.writeReport(FILE_ID, 5_000);
+        ParsedReport report = CsvManager.loadReport(FILE_ID);
+
+        List<String> expected = new ArrayList<>();
+        expected.add("Dividends:");
+        expected.addAll(report.getAllData(ActionType.DIVIDEND).values());
+        expected.add("Transactions:");
+        expected.addAll(report.getAllData(ActionType.TRANSACTION).values());
+        expected.add("Interest:");
+        expected.addAll(report.getAllData(ActionType.INTEREST).values());
+        expected.add("Orders:");
+        expected.addAll(report.getAllData(ActionType.ORDER).values());
+
+        ReportRowList rows = new ReportRowList(report);
+        assertEquals(expected.size(), rows.size());
+        for (int position = 0; position < rows.size(); position++) {
+            assertEquals(position, rows.get(position).intValue());
+            assertEquals(expected.get(position), rows.getText(position));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> rows.getText(rows.size()));
+    }
+
+    @Test
+    public void testKeepsOnlyTheRecentlyShownRows() throws Exception {
+        SyntheticExport.writeReport(FILE_ID, 5_000);
+        ReportRowList rows = new ReportRowList(CsvManager.loadReport(FILE_ID));
+        assertTrue(rows.size() > 2 * ReportRowList.RECENT_ROWS);
+
+        int last = rows.size() - 1;
+        String text = rows.getText(last);
+        assertSame(text, rows.getText(last), "A recently shown row should not be built again");
+        for (int position = 0; position < rows.size(); position++) {
+            rows.getText(position);
+        }
+        assertEquals(ReportRowList.RECENT_ROWS, rows.getRecentRowCount());
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import app.models.ActionType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import testdata.SyntheticExport;
+import utils.CsvManager;
+import utils.parsers.DividendsParser;
+import utils.parsers.InterestParser;
+import utils.parsers.OrdersParser;
+import utils.parsers.Parser;
+import utils.parsers.ReportSnapshot;
+import utils.parsers.TransactionsParser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportSnapshotTest {
+    private static final String FILE_ID = "report-snapshot-test";
+    private static final Path FILE = SyntheticExport.reportFile(FILE_ID);
+
+    @AfterEach
+    public void deleteExport() throws Exception {
+        SyntheticExport.deleteReport(FILE_ID);
+    }
+
+    private static EnumMap<ActionType, Parser<?>> emptyParsers() {
+        EnumMap<ActionType, Parser<?>> parsers = new EnumMap<>(ActionType.class);
+        parsers.put(ActionType.INTEREST, InterestParser.getInstance().createEmpty());
+        parsers.put(ActionType.TRANSACTION, TransactionsParser.getInstance().createEmpty());
+        parsers.put(ActionType.ORDER, OrdersParser.getInstance().createEmpty());
+        parsers.put(ActionType.DIVIDEND, DividendsParser.getInstance().createEmpty());
+        return parsers;
+    }
+
+    @Test
+    public void testSnapshotHoldsTheParsedData() throws Exception {
+        SyntheticExport.writeReport(FILE_ID, 10_000);
+        CsvManager.parseCsvFile(FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        assertTrue(Files.exists(ReportSnapshot.snapshotFileOf(FILE)), "Parsing a file should write its snapshot");
+
+        EnumMap<ActionType, Parser<?>> parsers = emptyParsers();
+        ReportSnapshot.Key key = ReportSnapshot.Key.of(FILE, CsvManager.getChecksum(FILE_ID));
+        assertTrue(ReportSnapshot.read(FILE, key, parsers));
+
+        assertEquals(Map.copyOf(OrdersParser.getInstance().getAllData()), Map.copyOf(parsers.get(ActionType.ORDER).getAllData()));
+        assertEquals(Map.copyOf(TransactionsParser.getInstance().getAllData()), Map.copyOf(parsers.get(ActionType.TRANSACTION).getAllData()));
+        assertEquals(Map.copyOf(DividendsParser.getInstance().getAllData()), Map.copyOf(parsers.get(ActionType.DIVIDEND).getAllData()));
+        assertEquals(Map.copyOf(InterestParser.getInstance().getAllData()), Map.copyOf(parsers.get(ActionType.INTEREST).getAllData()));
+        for (ActionType actionType : parsers.keySet()) {
+            assertEquals(getShared(actionType).getSummarizedData(), parsers.get(actionType).getSummarizedData(),
+                    "The totals of " + actionType + " should survive the snapshot");
+        }
+    }
+
+    @Test
+    public void testSnapshotOfAnotherVersionOfTheFileIsIgnored() throws Exception {
+        SyntheticExport.writeReport(FILE_ID, 1_000);
+        CsvManager.parseCsvFile(FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        ReportSnapshot.Key key = ReportSnapshot.Key.of(FILE, CsvManager.getChecksum(FILE_ID));
+        EnumMap<ActionType, Parser<?>> parsers = emptyParsers();
+
+        assertFalse(ReportSnapshot.read(FILE, new ReportSnapshot.Key(Files.size(FILE), 0L, CsvManager.getChecksum(FILE_ID)), parsers));
+        assertFalse(ReportSnapshot.read(FILE, new ReportSnapshot.Key(Files.size(FILE) + 1, Files.getLastModifiedTime(FILE).toMillis(),
+                CsvManager.getChecksum(FILE_ID)), parsers));
+        assertTrue(parsers.get(ActionType.ORDER).getAllData().isEmpty(), "An ignored snapshot should not fill the parsers");
+
+        Files.write(ReportSnapshot.snapshotFileOf(FILE), new byte[] {1, 2, 3});
+        assertFalse(ReportSnapshot.read(FILE, key, parsers), "A snapshot that is not one should be ignored");
+        int orders = OrdersParser.getInstance().getAllData().size();
+        CsvManager.parseCsvFile(FILE_ID, CsvManager.ParseMode.SEQUENTIAL);
+        assertEquals(orders, OrdersParser.getInstance().getAllData().size(), "A broken snapshot should fall back to parsing");
+    }
+
+    private static Parser<?> getShared(ActionType actionType) {
+        if (actionType == ActionType.ORDER) {
+            return OrdersParser.getInstance();
+        } else if (actionType == ActionType.TRANSACTION) {
+            return TransactionsParser.getInstance();
+        } else if (actionType == ActionType.DIVIDEND) {
+            return DividendsParser.getInstance();
+        }
+        return InterestParser.getInstance();
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import utils.csv.CsvRow;
+import utils.parsers.Cents;
+import utils.parsers.Currencies;
+import utils.parsers.RowDecoder;
+import utils.parsers.RowStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowDecoderTest {
+    private static final String delimiter = " ---> ";
+
+    @Test
+    public void testResolvesColumnIndices() {
+        RowDecoder decoder = RowDecoder.forHeader(CsvRow.fromLine("Action,Time,ISIN,Ticker,Name,Notes,Total,Currency (Total)"));
+
+        assertEquals(0, decoder.getActionIndex());
+        assertEquals(1, decoder.getTimeIndex());
+        assertEquals(2, decoder.getIsinIndex());
+        assertEquals(3, decoder.getTickerIndex());
+        assertEquals(4, decoder.getNameIndex());
+        assertEquals(5, decoder.getNotesIndex());
+        assertEquals(6, decoder.getTotalIndex());
+        assertEquals(7, decoder.getCurrencyIndex());
+    }
+
+    @Test
+    public void testReusesTheDecoderOfAnIdenticalHeader() {
+        String header = "Action,Time,Name,Total,Currency (Total)";
+        RowDecoder first = RowDecoder.forHeader(CsvRow.fromLine(header));
+        RowDecoder second = RowDecoder.forHeader(CsvRow.fromLine(header));
+        RowDecoder other = RowDecoder.forHeader(CsvRow.fromLine("Action,Name,Total,Currency (Total)"));
+
+        assertSame(first, second, "Identical headers should share one decoder");
+        assertNotSame(first, other, "Different headers should get their own decoder");
+        assertEquals(header, first.getFingerprint());
+    }
+
+    @Test
+    public void testMissingRequiredColumnsFailAtHeaderTime() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> RowDecoder.forHeader(CsvRow.fromLine("Action,Time,Name,Total")));
+        assertTrue(e.getMessage().contains("Currency (Total)"), "The message should name the missing column");
+
+        e = assertThrows(IllegalArgumentException.class,
+                () -> RowDecoder.forHeader(CsvRow.fromLine("Time,Name,Currency (Total)")));
+        assertTrue(e.getMessage().contains("Action, Total"), "The message should name every missing column");
+    }
+
+    @Test
+    public void testOptionalColumnsAreMissing() {
+        RowDecoder decoder = RowDecoder.forHeader(CsvRow.fromLine("Action,Total,Currency (Total)"));
+
+        assertEquals(RowDecoder.MISSING, decoder.getTimeIndex());
+        assertEquals(RowDecoder.MISSING, decoder.getIsinIndex());
+        assertEquals(RowDecoder.MISSING, decoder.getTickerIndex());
+        assertEquals(RowDecoder.MISSING, decoder.getNameIndex());
+        assertEquals(RowDecoder.MISSING, decoder.getNotesIndex());
+    }
+
+    @Test
+    public void testMissingNameIsStoredAsEmpty() {
+        RowDecoder decoder = RowDecoder.forHeader(CsvRow.fromLine("Action,Total,Currency (Total)"));
+        RowStore store = new RowStore(false);
+        CsvRow row = CsvRow.fromLine("Market buy,100,USD");
+
+        store.add(row, decoder, decoder.getActionIndex(), decoder.getNameIndex(), Cents.parse(row, 1), Currencies.idOf(row, 2));
+
+        assertEquals("Market buy" + delimiter + delimiter + "100 USD", store.describe(0));
+        assertEquals(RowStore.NO_TIMESTAMP, store.getTimestamp(0));
+    }
+}
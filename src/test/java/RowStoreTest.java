@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import utils.csv.CsvRow;
+import utils.parsers.Cents;
+import utils.parsers.Currencies;
+import utils.parsers.RowDecoder;
+import utils.parsers.RowStore;
+import utils.parsers.SymbolTable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowStoreTest {
+    private static final String delimiter = " ---> ";
+
+    private static final RowDecoder DECODER = RowDecoder.forHeader(CsvRow.fromLine("Action,Time,Ticker,Name,Total,Currency (Total)"));
+
+    private void add(RowStore store, String line) {
+        CsvRow row = CsvRow.fromLine(line);
+        store.add(row, DECODER, 0, 3, Cents.parse(row, 4), Currencies.idOf(row, 5));
+    }
+
+    @Test
+    public void testDescribeKeepsAmountAsWritten() {
+        RowStore store = new RowStore(false);
+        String[] amounts = {"100", "100.5", "100.50", "-0.05", "1.005", "+5", "007", "-0", " 5"};
+        for (String amount : amounts) {
+            add(store, "Market buy,2024-01-02 03:04:05,AAPL,Apple," + amount + ",USD");
+        }
+
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals("Market buy" + delimiter + "Apple" + delimiter + amounts[i] + " USD", store.describe(i),
+                    "Amount \"" + amounts[i] + "\" should be shown as written");
+        }
+    }
+
+    @Test
+    public void testStoresTypedColumns() {
+        RowStore store = new RowStore(true);
+        add(store, "Dividend,2024-01-02 03:04:05.5,AAPL,  Apple  ,12.34,EUR");
+        add(store, "Dividend,not a time,,Apple,1,EUR");
+
+        assertEquals(1704164645500L, store.getTimestamp(0), "Time should be read as UTC epoch milliseconds");
+        assertEquals(RowStore.NO_TIMESTAMP, store.getTimestamp(1), "An unreadable time should not fail the row");
+        assertEquals(1234, store.getAmountCents(0));
+        assertEquals("EUR", store.getCurrency(0));
+        assertEquals("AAPL", store.getTicker(0));
+        assertEquals("Dividend" + delimiter + "Apple" + delimiter + "12.34 EUR", store.describe(0), "Names should be stripped");
+    }
+
+    @Test
+    public void testMapViewIteratesInRowOrder() {
+        RowStore store = new RowStore(false);
+        for (int i = 0; i < 5000; i++) {
+            add(store, "Market sell,,T" + (i % 7) + ",Name " + (i % 3) + "," + i + ",USD");
+        }
+        Map<String, String> view = store.asMap();
+
+        assertEquals(5000, view.size());
+        assertEquals("Market sell" + delimiter + "Name 1" + delimiter + "4999 USD", view.get("5000"));
+        assertNull(view.get("0"), "Row numbers start at 1");
+        assertNull(view.get("05"), "Keys must be plain row numbers");
+        assertNull(view.get("5001"));
+        List<String> keys = new ArrayList<>(view.keySet());
+        assertEquals("1", keys.get(0));
+        assertEquals("4097", keys.get(4096), "Iteration should continue across chunks in row order");
+    }
+
+    @Test
+    public void testAppendRemapsDictionaries() {
+        RowStore first = new RowStore(false);
+        RowStore second = new RowStore(false);
+        add(first, "Market buy,,AAPL,Apple,1,USD");
+        add(second, "Limit sell,,MSFT,Microsoft,2.5,USD");
+        add(second, "Market buy,,AAPL,Apple,+3,USD");
+
+        first.append(second);
+
+        assertEquals(3, first.size());
+        assertEquals("Limit sell" + delimiter + "Microsoft" + delimiter + "2.5 USD", first.describe(1));
+        assertEquals("Market buy" + delimiter + "Apple" + delimiter + "+3 USD", first.describe(2), "Irregular amounts should survive appending");
+        assertEquals("MSFT", first.getTicker(1));
+    }
+
+    @Test
+    public void testAppendCopiesAcrossChunkBoundaries() {
+        RowStore first = new RowStore(false);
+        RowStore second = new RowStore(false);
+        for (int i = 0; i < 5000; i++) {
+            add(first, "Market buy,2024-01-02 03:04:05,T" + (i % 7) + ",First " + (i % 3) + "," + i + ",USD");
+        }
+        for (int i = 0; i < 9000; i++) {
+            add(second, "Market sell,,T" + (i % 5) + ",Second " + (i % 4) + "," + (i % 1000 == 0 ? "+" : "") + i + ",EUR");
+        }
+
+        first.append(second);
+
+        assertEquals(14000, first.size());
+        assertEquals("Market buy" + delimiter + "First 1" + delimiter + "4999 USD", first.describe(4999));
+        for (int i = 0; i < 9000; i++) {
+            assertEquals(second.describe(i), first.describe(5000 + i), "Row " + i + " of the appended store should be copied");
+            assertEquals(second.getAmountCents(i), first.getAmountCents(5000 + i));
+            assertEquals(second.getTicker(i), first.getTicker(5000 + i));
+            assertEquals(RowStore.NO_TIMESTAMP, first.getTimestamp(5000 + i));
+        }
+        assertEquals("Market sell" + delimiter + "Second 0" + delimiter + "+8000 EUR", first.describe(13000), "Irregular amounts should move with their rows");
+    }
+
+    @Test
+    public void testSymbolsAreSharedAcrossStores() {
+        RowStore first = new RowStore(false);
+        RowStore second = new RowStore(true);
+        add(first, "Market buy,,AAPL,Apple,1,USD");
+        add(first, "Market buy,,AAPL,\"Apple \"\"A\"\"\",1,USD");
+        add(second, "Dividend,,AAPL, Apple ,1,USD");
+
+        assertSame(first.getTicker(0), second.getTicker(0), "Equal values should be stored once per session");
+        assertEquals("Market buy" + delimiter + "Apple \"A\"" + delimiter + "1 USD", first.describe(1), "Escaped quotes should be decoded");
+        assertEquals("Dividend" + delimiter + "Apple" + delimiter + "1 USD", second.describe(0));
+        assertSame(SymbolTable.get(SymbolTable.intern("Apple")), SymbolTable.get(SymbolTable.intern(new String("Apple"))));
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+
+import api.SingleFlightCache;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightCacheTest {
+    private final List<CompletableFuture<String>> loads = new ArrayList<>();
+
+    private SingleFlightCache<String> newCache(Duration timeToLive) {
+        return new SingleFlightCache<>(() -> {
+            CompletableFuture<String> load = new CompletableFuture<>();
+            loads.add(load);
+            return load;
+        }, timeToLive);
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlightCache<String> cache = newCache(Duration.ofMinutes(1));
+
+        CompletableFuture<String> first = cache.get();
+        CompletableFuture<String> second = cache.get();
+        assertEquals(1, loads.size(), "The second caller should join the load in flight");
+        assertNotSame(first, second, "Every caller should get its own future");
+
+        loads.get(0).complete("history");
+        assertEquals("history", first.get());
+        assertEquals("history", second.get());
+        assertEquals("history", cache.get().get(), "The value should be served from the cache");
+        assertEquals(1, loads.size());
+    }
+
+    @Test
+    public void testExpiredValuesAreLoadedAgain() throws Exception {
+        SingleFlightCache<String> cache = newCache(Duration.ZERO);
+
+        CompletableFuture<String> first = cache.get();
+        loads.get(0).complete("history");
+        first.get();
+        cache.get();
+
+        assertEquals(2, loads.size(), "A value past its time to live should be loaded again");
+    }
+
+    @Test
+    public void testFailuresAreNotKept() throws Exception {
+        SingleFlightCache<String> cache = newCache(Duration.ofMinutes(1));
+
+        CompletableFuture<String> failed = cache.get();
+        loads.get(0).completeExceptionally(new IllegalStateException("offline"));
+        assertTrue(failed.isCompletedExceptionally());
+
+        cache.get();
+        assertEquals(2, loads.size(), "A failure should not be served from the cache");
+    }
+
+    @Test
+    public void testLoadsThatFinishAtOnceAreServed() throws Exception {
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        results.add(CompletableFuture.failedFuture(new IllegalStateException("no API key")));
+        results.add(CompletableFuture.completedFuture("history"));
+        SingleFlightCache<String> cache = new SingleFlightCache<>(() -> results.remove(0), Duration.ofMinutes(1));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> cache.get().get());
+        assertEquals("no API key", failure.getCause().getMessage());
+        assertEquals("history", cache.get().get(), "A failed load should be started again");
+        assertEquals("history", cache.get().get(), "A load that finished at once should be cached");
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void testInvalidateDetachesTheLoadInFlight() throws Exception {
+        SingleFlightCache<String> cache = newCache(Duration.ofMinutes(1));
+
+        CompletableFuture<String> before = cache.get();
+        cache.invalidate();
+        CompletableFuture<String> after = cache.get();
+        assertEquals(2, loads.size(), "A caller after invalidation should start a new load");
+
+        loads.get(0).complete("old history");
+        loads.get(1).complete("new history");
+        assertEquals("old history", before.get(), "Callers of the old load should still get its value");
+        assertEquals("new history", after.get());
+        assertEquals("new history", cache.get().get(), "Only the new load should be cached");
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import testdata.SyntheticExport;
+import utils.csv.CsvRow;
+import utils.csv.MappedCsvReader;
+import utils.csv.StreamingCsvReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingCsvReaderTest {
+
+    private List<String> readInChunks(byte[] content, int maxChunk, long seed) {
+        StreamingCsvReader reader = new StreamingCsvReader();
+        List<String> rows = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(seed);
+        int position = 0;
+        while (position < content.length) {
+            int length = Math.min(content.length - position, 1 + random.nextInt(maxChunk));
+            ByteBuffer chunk = ByteBuffer.wrap(content, position, length);
+            reader.feed(chunk, row -> rows.add(row.toLine()));
+            assertEquals(position, chunk.position(), "Feeding a chunk should not move its position");
+            position += length;
+        }
+        reader.finish(row -> rows.add(row.toLine()));
+        assertEquals(rows.size(), reader.getRowCount());
+        return rows;
+    }
+
+    @Test
+    public void testChunkedInputGivesTheRowsOfTheWholeFile() throws Exception {
+        Path file = Files.createTempFile("streaming-reader", ".csv");
+        try {
+            SyntheticExport.write(file, 3_000, 212L);
+            List<String> expected = new ArrayList<>();
+            try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+                CsvRow row;
+                while ((row = reader.nextRow()) != null) {
+                    expected.add(row.toLine());
+                }
+            }
+            byte[] content = Files.readAllBytes(file);
+
+            assertEquals(expected, readInChunks(content, 7, 1L), "Tiny chunks should split rows and quoted fields anywhere");
+            assertEquals(expected, readInChunks(content, 5_000, 2L));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testHandlesByteOrderMarkLineBreaksAndAMissingFinalLineBreak() {
+        byte[] content = "﻿Action,Name\r\nDeposit,\"A,\r\nB\"\r\n\r\nWithdrawal,C".getBytes(StandardCharsets.UTF_8);
+
+        List<String> rows = readInChunks(content, 2, 3L);
+
+        assertEquals(3, rows.size());
+        assertEquals("Action,Name", rows.get(0), "The byte order mark should be skipped even if it arrives in pieces");
+        assertEquals("Withdrawal,C", rows.get(2), "The last row should be read once the input ends");
+    }
+
+    @Test
+    public void testCarriesOnlyTheUnfinishedRow() {
+        StreamingCsvReader reader = new StreamingCsvReader();
+        List<String> rows = new ArrayList<>();
+
+        reader.feed(ByteBuffer.wrap("Action,Total\nDeposit,1".getBytes(StandardCharsets.UTF_8)), row -> rows.add(row.toLine()));
+
+        assertEquals(List.of("Action,Total"), rows, "An unterminated row should wait for more bytes");
+        assertEquals("Deposit,1".length(), reader.getCarriedBytes());
+    }
+}
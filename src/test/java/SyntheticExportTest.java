@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import app.models.SubAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import testdata.SyntheticExport;
+import utils.csv.CsvRow;
+import utils.parsers.RowDecoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SyntheticExportTest {
+    private Path csvFile;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        csvFile = Files.createTempFile("synthetic-export", ".csv");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Test
+    public void testSameSeedGivesTheSameExport() throws Exception {
+        SyntheticExport.write(csvFile, 500, 7);
+        List<String> lines = Files.readAllLines(csvFile);
+
+        assertEquals(SyntheticExport.HEADER, lines.get(0), "The export should start with the header row");
+        assertEquals(SyntheticExport.rows(500, 7), lines.subList(1, lines.size()), "The same seed should give the same rows");
+        assertNotEquals(SyntheticExport.rows(500, 8), lines.subList(1, lines.size()), "Another seed should give other rows");
+    }
+
+    @Test
+    public void testRowsMatchTheHeaderAndMixEveryAction() {
+        RowDecoder decoder = RowDecoder.forHeader(CsvRow.fromLine(SyntheticExport.HEADER));
+        int columnCount = CsvRow.fromLine(SyntheticExport.HEADER).getFieldCount();
+        Set<SubAction> seen = EnumSet.noneOf(SubAction.class);
+        Set<String> currencies = new HashSet<>();
+        boolean nameWithComma = false;
+
+        for (String line : SyntheticExport.rows(2000, 1)) {
+            CsvRow row = CsvRow.fromLine(line);
+            assertEquals(columnCount, row.getFieldCount(), "Every row should have a field for every column: " + line);
+            seen.add(SubAction.fromString(row.getString(decoder.getActionIndex())));
+            currencies.add(row.getString(decoder.getCurrencyIndex()));
+            nameWithComma |= row.getString(decoder.getNameIndex()).contains(",");
+        }
+
+        assertEquals(EnumSet.complementOf(EnumSet.of(SubAction.OTHER_ORDER)), seen, "Every kind of row should appear");
+        assertTrue(currencies.size() > 2, "Rows should use several currencies");
+        assertTrue(nameWithComma, "Some names should be quoted because they contain commas");
+    }
+}
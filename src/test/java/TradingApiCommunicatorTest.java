@@ -0,0 +1,155 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import api.TradingApiCommunicator;
+import api.TradingApiException;
+import app.models.DocumentsListItem;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import utils.KeySaver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TradingApiCommunicatorTest {
+    private HttpServer server;
+    private String originalApiUrl;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private volatile boolean unauthorized;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        KeySaver.getInstance().setApiKey("test-key");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v0/history/exports", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestHeaders().getFirst("Authorization") + " " + body);
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            if (exchange.getRequestMethod().equals("GET")) {
+                try {
+                    Thread.sleep(100); // Keep the request in flight long enough for other callers to join it
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] response = (exchange.getRequestMethod().equals("GET") ? "[{\"reportId\": 1}]" : "{\"reportId\": 2}")
+                    .getBytes(StandardCharsets.UTF_8);
+            int status = 200;
+            if (unauthorized) {
+                response = "{\"errorMessage\": \"Invalid API key\"}".getBytes(StandardCharsets.UTF_8);
+                status = 401;
+            }
+            if (body.equals("invalid")) {
+                response = "Bad request".getBytes(StandardCharsets.UTF_8);
+                status = 400;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        TradingApiCommunicator.getScheduler().setLimit(TradingApiCommunicator.GET_HISTORY_EXPORTS, 100, Duration.ofSeconds(1));
+        TradingApiCommunicator.getScheduler().setLimit(TradingApiCommunicator.POST_HISTORY_EXPORTS, 100, Duration.ofSeconds(1));
+        originalApiUrl = TradingApiCommunicator.getApiUrl();
+        TradingApiCommunicator.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TradingApiCommunicator.setApiUrl(originalApiUrl);
+        TradingApiCommunicator.getScheduler().setLimit(TradingApiCommunicator.GET_HISTORY_EXPORTS, 1, Duration.ofMinutes(1));
+        TradingApiCommunicator.getScheduler().setLimit(TradingApiCommunicator.POST_HISTORY_EXPORTS, 1, Duration.ofSeconds(30));
+        server.stop(0);
+    }
+
+    @Test
+    public void testGetsExportHistoryFromTheConfiguredUrl() throws Exception {
+        List<DocumentsListItem> history = TradingApiCommunicator.getExportHistoryAsync().get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, history.size(), "The history should be decoded into one item per export");
+        assertEquals(1, history.get(0).getReportId());
+        assertEquals(List.of("GET " + KeySaver.getInstance().getApiKey() + " "), requests, "One authorized GET should be sent");
+    }
+
+    @Test
+    public void testPostsExportRequestBody() throws Exception {
+        JsonObject response = TradingApiCommunicator.postExportHistoryAsync("{\"timeFrom\": \"x\"}").get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, response.get("reportId").getAsInt());
+        assertEquals(List.of("POST " + KeySaver.getInstance().getApiKey() + " {\"timeFrom\": \"x\"}"), requests);
+    }
+
+    @Test
+    public void testErrorStatusGivesAnErrorMessage() throws Exception {
+        JsonObject response = TradingApiCommunicator.postExportHistoryAsync("invalid").get(10, TimeUnit.SECONDS);
+
+        assertEquals("The Trading212 API responded with status 400.", response.get("errorMessage").getAsString());
+    }
+
+    @Test
+    public void testConcurrentHistoryRequestsShareOneCall() throws Exception {
+        List<CompletableFuture<List<DocumentsListItem>>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(TradingApiCommunicator.getExportHistoryAsync());
+        }
+        List<DocumentsListItem> shared = futures.get(0).get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<List<DocumentsListItem>> future : futures) {
+            assertSame(shared, future.get(10, TimeUnit.SECONDS), "Every caller should get the one decoded list");
+        }
+        assertSame(shared, TradingApiCommunicator.getExportHistoryAsync().get(10, TimeUnit.SECONDS));
+
+        assertEquals(1, requests.size(), "Concurrent and repeated history requests should share one call");
+    }
+
+    @Test
+    public void testNewExportInvalidatesTheHistory() throws Exception {
+        TradingApiCommunicator.getExportHistoryAsync().get(10, TimeUnit.SECONDS);
+        TradingApiCommunicator.postExportHistoryAsync("{}").get(10, TimeUnit.SECONDS);
+        TradingApiCommunicator.getExportHistoryAsync().get(10, TimeUnit.SECONDS);
+
+        assertEquals(3, requests.size(), "The history should be fetched again after a new export");
+    }
+
+    @Test
+    public void testReusesTheConnectionBetweenCalls() throws Exception {
+        TradingApiCommunicator.getExportHistoryAsync().get(10, TimeUnit.SECONDS);
+        TradingApiCommunicator.postExportHistoryAsync("{}").get(10, TimeUnit.SECONDS);
+        TradingApiCommunicator.postExportHistoryAsync("{}").get(10, TimeUnit.SECONDS);
+
+        assertEquals(3, clientPorts.size());
+        assertEquals(1, clientPorts.stream().distinct().count(), "All calls should share one pooled connection");
+    }
+
+    @Test
+    public void testHistoryErrorGivesTheMessageOfTheApi() {
+        unauthorized = true;
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> TradingApiCommunicator.getExportHistoryAsync().get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof TradingApiException, "An error response should fail with its message");
+        TradingApiException error = (TradingApiException) failure.getCause();
+        assertEquals(401, error.getStatusCode());
+        assertEquals("Invalid API key", error.getMessage());
+    }
+
+    @Test
+    public void testFailsWhenTheServerIsUnreachable() throws Exception {
+        server.stop(0);
+
+        assertThrows(ExecutionException.class, () -> TradingApiCommunicator.getExportHistoryAsync().get(10, TimeUnit.SECONDS));
+        assertNull(TradingApiCommunicator.postExportHistoryAsync("{}").get(10, TimeUnit.SECONDS));
+    }
+}
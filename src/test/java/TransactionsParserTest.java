@@ -2,6 +2,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.List;
+import utils.csv.CsvRow;
+import utils.parsers.TransactionTotals;
 import utils.parsers.TransactionsParser;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,6 +17,7 @@ public class TransactionsParserTest {
     public void setUp() {
         parser = TransactionsParser.getInstance();
         parser.clearData(); // Ensure clean state before each test
+        parser.setHeaderMap(null); // The singleton keeps its header map between tests
     }
 
     @Test
@@ -108,4 +112,56 @@ public class TransactionsParserTest {
         assertTrue(parser.getAllData().isEmpty(), "All data should be cleared");
         assertTrue(parser.getSummarizedData().isEmpty(), "Summarized data should be cleared");
     }
+
+    @Test
+    public void testParseRowUsesActionFieldOnly() {
+        Dictionary<String, Integer> headerMap = new Hashtable<>();
+        headerMap.put("Action", 0);
+        headerMap.put("Notes", 1);
+        headerMap.put("Total", 2);
+        headerMap.put("Currency (Total)", 3);
+        parser.setHeaderMap(headerMap);
+
+        parser.parse(CsvRow.fromLine("Withdrawal,Deposit refund,80,EUR"));
+
+        assertEquals("Deposit refund" + delimiter + "80 EUR", parser.getAllData().get("1"), "Parsed withdrawal data should match");
+        assertEquals("80.00", parser.getSummarizedData().get("EUR").get("totalWithdrawals"), "Notes mentioning a deposit should not turn a withdrawal into a deposit");
+        assertNull(parser.getSummarizedData().get("EUR").get("totalDeposits"), "No deposits should be recorded");
+    }
+
+    @Test
+    public void testDepositAndWithdrawalInSameCurrency() {
+        Dictionary<String, Integer> headerMap = new Hashtable<>();
+        headerMap.put("Notes", 0);
+        headerMap.put("Total", 1);
+        headerMap.put("Currency (Total)", 2);
+        parser.setHeaderMap(headerMap);
+
+        parser.parse("Deposit,0.10,USD");
+        parser.parse("Deposit,0.20,USD");
+        parser.parse("Withdraw,-50.5,USD");
+
+        assertEquals("0.30", parser.getSummarizedData().get("USD").get("totalDeposits"), "Deposits should be summed exactly");
+        assertEquals("-50.50", parser.getSummarizedData().get("USD").get("totalWithdrawals"), "Withdrawal should be tracked next to deposits of the same currency");
+    }
+
+    @Test
+    public void testCurrencyTotalsAreTyped() {
+        Dictionary<String, Integer> headerMap = new Hashtable<>();
+        headerMap.put("Notes", 0);
+        headerMap.put("Total", 1);
+        headerMap.put("Currency (Total)", 2);
+        parser.setHeaderMap(headerMap);
+
+        parser.parse("Withdraw,-20,GBP");
+        parser.parse("Deposit,100.5,EUR");
+
+        List<TransactionTotals> totals = parser.getCurrencyTotals();
+        assertEquals(2, totals.size(), "There should be totals for two currencies");
+        TransactionTotals gbp = totals.stream().filter(t -> t.getCurrency().equals("GBP")).findFirst().orElseThrow();
+        assertFalse(gbp.hasDeposits(), "A currency seen only through a withdrawal should have no deposits");
+        assertEquals(-2000, gbp.getWithdrawalCents(), "Withdrawal should be kept in cents");
+        TransactionTotals eur = totals.stream().filter(t -> t.getCurrency().equals("EUR")).findFirst().orElseThrow();
+        assertEquals(10050, eur.getDepositCents(), "Deposit should be kept in cents");
+    }
 }
@@ -0,0 +1,341 @@
+package testdata;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import utils.CsvDownloader;
+import utils.parsers.ReportSnapshot;
+
+/**
+ * Generates synthetic Trading212 history exports for tests and benchmarks.
+ * The rows use the column layout of a real export and a realistic mix of orders, dividends, interest,
+ * deposits, withdrawals and currency conversions in several currencies. Some instrument names contain
+ * commas and are quoted. The same number of rows and seed always give the same file.
+ */
+public final class SyntheticExport {
+    /** The header row of a Trading212 history export. */
+    public static final String HEADER = "Action,Time,ISIN,Ticker,Name,Notes,ID,No. of shares,Price / share,"
+            + "Currency (Price / share),Exchange rate,Result,Currency (Result),Total,Currency (Total),"
+            + "Withholding tax,Currency (Withholding tax),Currency conversion from amount,"
+            + "Currency (Currency conversion from amount),Currency conversion to amount,"
+            + "Currency (Currency conversion to amount),Currency conversion fee,Currency (Currency conversion fee)";
+
+    /** The directory the application keeps downloaded reports in. */
+    public static final Path DOWNLOAD_LOCATION_PATH = Paths.get("src/main/java/", "data");
+
+    /** The seed of the reports written by {@link #writeReport(String, int)}. */
+    public static final long DEFAULT_SEED = 212L;
+
+    private static final int COLUMN_COUNT = 23;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2015, 1, 2, 9, 30);
+    private static final String[] CURRENCIES = {"GBP", "USD", "EUR", "CHF"};
+    private static final String[][] INSTRUMENTS = {
+            {"US0378331005", "AAPL", "Apple", "USD"},
+            {"US5949181045", "MSFT", "Microsoft", "USD"},
+            {"US02079K3059", "GOOGL", "\"Alphabet, Inc. (Class A)\"", "USD"},
+            {"US0846707026", "BRK.B", "\"Berkshire Hathaway, Inc. (Class B)\"", "USD"},
+            {"GB0002374006", "DGE", "Diageo", "GBP"},
+            {"GB00BH4HKS39", "VOD", "Vodafone", "GBP"},
+            {"IE00B3XXRP09", "VUSA", "\"Vanguard S&P 500 UCITS ETF, Dist\"", "GBP"},
+            {"DE0007164600", "SAP", "SAP SE", "EUR"},
+            {"NL0010273215", "ASML", "\"ASML Holding, N.V.\"", "EUR"},
+            {"CH0038863350", "NESN", "Nestle", "CHF"}
+    };
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private SyntheticExport() {
+    }
+
+    /**
+     * Writes an export with a header row and the given number of data rows.
+     *
+     * @param file the file to write; an existing file is replaced.
+     * @param rows the number of data rows.
+     * @param seed the seed of the random choices.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, int rows, long seed) throws IOException {
+        Generator generator = new Generator(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (int i = 0; i < rows; i++) {
+                writer.write(generator.nextRow(i));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Gets the path at which the application keeps the downloaded report with an ID.
+     *
+     * @param fileId the ID of the report file.
+     * @return the path of the file.
+     */
+    public static Path reportFile(String fileId) {
+        return DOWNLOAD_LOCATION_PATH.resolve(fileId + ".csv");
+    }
+
+    /**
+     * Writes an export with the {@link #DEFAULT_SEED} as the downloaded report with an ID.
+     *
+     * @param fileId the ID of the report file; an existing file is replaced.
+     * @param rows   the number of data rows.
+     * @return the path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static Path writeReport(String fileId, int rows) throws IOException {
+        return writeReport(fileId, rows, DEFAULT_SEED);
+    }
+
+    /**
+     * Writes an export as the downloaded report with an ID.
+     *
+     * @param fileId the ID of the report file; an existing file is replaced.
+     * @param rows   the number of data rows.
+     * @param seed   the seed of the random choices.
+     * @return the path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static Path writeReport(String fileId, int rows, long seed) throws IOException {
+        Files.createDirectories(DOWNLOAD_LOCATION_PATH);
+        Path file = reportFile(fileId);
+        write(file, rows, seed);
+        return file;
+    }
+
+    /**
+     * Deletes the downloaded report with an ID, along with the checksum and snapshot the application keeps next to it.
+     *
+     * @param fileId the ID of the report file.
+     * @throws IOException if a file cannot be deleted.
+     */
+    public static void deleteReport(String fileId) throws IOException {
+        Path file = reportFile(fileId);
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(CsvDownloader.checksumFileOf(file));
+        Files.deleteIfExists(ReportSnapshot.snapshotFileOf(file));
+    }
+
+    /**
+     * Generates the data rows of an export, without the header row.
+     *
+     * @param rows the number of data rows.
+     * @param seed the seed of the random choices.
+     * @return the rows, in file order.
+     */
+    public static List<String> rows(int rows, long seed) {
+        Generator generator = new Generator(seed);
+        List<String> lines = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            lines.add(generator.nextRow(i));
+        }
+        return lines;
+    }
+
+    /**
+     * Produces the rows of one export. Every row is one to eleven minutes after the previous one,
+     * so a million rows cover roughly ten years of history.
+     */
+    private static final class Generator {
+        private final SplittableRandom random;
+        private LocalDateTime time = START_TIME;
+
+        /**
+         * Creates a generator.
+         *
+         * @param seed the seed of the random choices.
+         */
+        Generator(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        /**
+         * Generates the next row.
+         *
+         * @param index the index of the row, used for its ID.
+         * @return the row as a CSV line without a line terminator.
+         */
+        String nextRow(int index) {
+            this.time = this.time.plusSeconds(60 + this.random.nextInt(600));
+            String[] row = new String[COLUMN_COUNT];
+            Arrays.fill(row, "");
+            row[1] = TIME_FORMAT.format(this.time);
+            int kind = this.random.nextInt(100);
+            if (kind < 30) {
+                fillOrder(row, "buy", index);
+            } else if (kind < 45) {
+                fillOrder(row, "sell", index);
+            } else if (kind < 65) {
+                fillDividend(row);
+            } else if (kind < 75) {
+                fillInterest(row);
+            } else if (kind < 85) {
+                fillTransfer(row, "Deposit", index);
+            } else if (kind < 90) {
+                fillTransfer(row, "Withdrawal", index);
+            } else {
+                fillConversion(row, index);
+            }
+            return String.join(",", row);
+        }
+
+        /**
+         * Fills the columns of a market or limit order.
+         *
+         * @param row   the columns of the row.
+         * @param side  "buy" or "sell".
+         * @param index the index of the row.
+         */
+        private void fillOrder(String[] row, String side, int index) {
+            String[] instrument = pickInstrument(row);
+            String totalCurrency = pickAccountCurrency();
+            long shares = 1 + this.random.nextInt(250);
+            long priceCents = 500 + this.random.nextInt(60000);
+            row[0] = (this.random.nextInt(3) == 0 ? "Limit " : "Market ") + side;
+            row[6] = "EOF" + index;
+            row[7] = String.valueOf(shares);
+            row[8] = formatCents(priceCents);
+            row[9] = instrument[3];
+            row[10] = instrument[3].equals(totalCurrency) ? "1.00000000" : String.format(Locale.US, "%.8f", 0.6 + this.random.nextDouble() * 0.8);
+            if (side.equals("sell")) {
+                row[11] = formatCents(this.random.nextInt(200001) - 100000);
+                row[12] = totalCurrency;
+            }
+            row[13] = formatCents(shares * priceCents);
+            row[14] = totalCurrency;
+        }
+
+        /**
+         * Fills the columns of a dividend payment.
+         *
+         * @param row the columns of the row.
+         */
+        private void fillDividend(String[] row) {
+            String[] instrument = pickInstrument(row);
+            long totalCents = 1 + this.random.nextInt(50000);
+            row[0] = this.random.nextInt(10) == 0 ? "Dividend (Dividend manufactured payment)" : "Dividend (Ordinary)";
+            row[7] = String.valueOf(1 + this.random.nextInt(250));
+            row[8] = formatCents(1 + this.random.nextInt(500));
+            row[9] = instrument[3];
+            row[13] = formatCents(totalCents);
+            row[14] = pickAccountCurrency();
+            row[15] = formatCents(totalCents * 15 / 85);
+            row[16] = instrument[3];
+        }
+
+        /**
+         * Fills the columns of an interest payment.
+         *
+         * @param row the columns of the row.
+         */
+        private void fillInterest(String[] row) {
+            row[0] = this.random.nextInt(4) == 0 ? "Lending interest" : "Interest on cash";
+            row[5] = "Interest payment";
+            row[13] = formatCents(1 + this.random.nextInt(2000));
+            row[14] = pickAccountCurrency();
+        }
+
+        /**
+         * Fills the columns of a deposit or withdrawal. Transfers are often round amounts without decimals.
+         *
+         * @param row    the columns of the row.
+         * @param action "Deposit" or "Withdrawal".
+         * @param index  the index of the row.
+         */
+        private void fillTransfer(String[] row, String action, int index) {
+            row[0] = action;
+            row[5] = this.random.nextBoolean() ? "Bank Transfer" : "\"Card payment, Visa\"";
+            row[6] = "TR" + index;
+            long totalCents = 100 * (10 + this.random.nextInt(5000));
+            row[13] = this.random.nextBoolean() ? String.valueOf(totalCents / 100) : formatCents(totalCents + this.random.nextInt(100));
+            row[14] = pickAccountCurrency();
+        }
+
+        /**
+         * Fills the columns of a currency conversion.
+         *
+         * @param row   the columns of the row.
+         * @param index the index of the row.
+         */
+        private void fillConversion(String[] row, int index) {
+            String from = pickAccountCurrency();
+            String to = CURRENCIES[(indexOf(from) + 1 + this.random.nextInt(CURRENCIES.length - 1)) % CURRENCIES.length];
+            long fromCents = 100 + this.random.nextInt(500000);
+            row[0] = "Currency conversion";
+            row[6] = "CC" + index;
+            row[13] = formatCents(fromCents);
+            row[14] = from;
+            row[17] = formatCents(fromCents);
+            row[18] = from;
+            row[19] = formatCents(fromCents * (80 + this.random.nextInt(40)) / 100);
+            row[20] = to;
+            row[21] = formatCents(fromCents * 15 / 10000);
+            row[22] = from;
+        }
+
+        /**
+         * Picks an instrument and fills its ISIN, Ticker and Name columns.
+         *
+         * @param row the columns of the row.
+         * @return the ISIN, ticker, name and trading currency of the instrument.
+         */
+        private String[] pickInstrument(String[] row) {
+            String[] instrument = INSTRUMENTS[this.random.nextInt(INSTRUMENTS.length)];
+            row[2] = instrument[0];
+            row[3] = instrument[1];
+            row[4] = instrument[2];
+            return instrument;
+        }
+
+        /**
+         * Picks the currency of the Total column. Most rows are in the account currency, GBP.
+         *
+         * @return the currency code.
+         */
+        private String pickAccountCurrency() {
+            return this.random.nextInt(2) == 0 ? CURRENCIES[0] : CURRENCIES[this.random.nextInt(CURRENCIES.length)];
+        }
+
+        /**
+         * Gets the position of a currency in {@link #CURRENCIES}.
+         *
+         * @param currency the currency code.
+         * @return the position of the currency.
+         */
+        private static int indexOf(String currency) {
+            for (int i = 0; i < CURRENCIES.length; i++) {
+                if (CURRENCIES[i].equals(currency)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Unknown currency " + currency);
+        }
+
+        /**
+         * Formats an amount in cents with two decimals, as the export does.
+         *
+         * @param cents the amount in cents.
+         * @return the formatted amount.
+         */
+        private static String formatCents(long cents) {
+            String sign = cents < 0 ? "-" : "";
+            long abs = Math.abs(cents);
+            long fraction = abs % 100;
+            return sign + (abs / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+        }
+    }
+}